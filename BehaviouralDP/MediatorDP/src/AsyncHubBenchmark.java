@@ -0,0 +1,162 @@
+import example.smartHome.DeliveryPolicy;
+import example.smartHome.DeviceLag;
+import example.smartHome.SmartDevice;
+import example.smartHome.SmartHomeHub;
+import example.smartHome.SmartHomeMediator;
+import example.smartHome.utils.EventEnum;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// A sensor fires door events, alternating opened and closed, at a steady pace to one device that takes a
+// millisecond per event and several fast devices. The run is synchronous first, then through per-device
+// mailboxes with each overflow policy. Reports how long the sensor is held up per event and the percentiles of
+// fan-out latency, from firing an event to a fast device handling it. Every fast device checks that it sees
+// every event in firing order. Prints one CSV row per run.
+//
+// Usage: AsyncHubBenchmark [fastDevices] [events] [mailboxCapacity]
+public class AsyncHubBenchmark {
+    private static final long PACE_NANOS = 100_000;
+
+    static class SlowDevice extends SmartDevice {
+        SlowDevice(SmartHomeMediator mediator) {
+            super(mediator);
+        }
+
+        @Override
+        public void onEvent(EventEnum event) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Records the latency of the k-th event it receives, which must be the k-th event fired.
+    static class FastDevice extends SmartDevice {
+        final long[] sentAt;
+        final long[] latencies;
+        final AtomicReference<String> failure;
+        volatile int received;
+
+        FastDevice(SmartHomeMediator mediator, long[] sentAt, AtomicReference<String> failure) {
+            super(mediator);
+            this.sentAt = sentAt;
+            this.latencies = new long[sentAt.length];
+            this.failure = failure;
+        }
+
+        @Override
+        public void onEvent(EventEnum event) {
+            int k = received;
+            EventEnum expected = k % 2 == 0 ? EventEnum.DOOR_OPENED : EventEnum.DOOR_CLOSED;
+            if(event != expected){
+                failure.compareAndSet(null, "Event " + k + " arrived as " + event);
+            }
+            latencies[k] = System.nanoTime() - sentAt[k];
+            received = k + 1;
+        }
+    }
+
+    // Like DoorSensor, without printing each event.
+    static class Sensor extends SmartDevice {
+        final SmartHomeMediator hub;
+
+        Sensor(SmartHomeMediator mediator) {
+            super(mediator);
+            this.hub = mediator;
+        }
+
+        @Override
+        public Set<EventEnum> interestedEvents() {
+            return EnumSet.noneOf(EventEnum.class);
+        }
+
+        @Override
+        public void onEvent(EventEnum event) {
+            hub.onEvent(this, event);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int fastDevices = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        System.out.println("mode,senderMeanMicros,p50Micros,p99Micros,p999Micros,maxMicros,slowDelivered,slowPending,slowDropped");
+        run("sync", null, fastDevices, events, capacity);
+        for(DeliveryPolicy policy : DeliveryPolicy.values()){
+            run(policy.name(), policy, fastDevices, events, capacity);
+        }
+    }
+
+    static void run(String name, DeliveryPolicy policy, int fastDevices, int events, int capacity) throws Exception {
+        SmartHomeHub hub = new SmartHomeHub();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        if(policy != null){
+            hub.enableAsyncDelivery(executor, capacity, policy);
+        }
+        long[] sentAt = new long[events];
+        AtomicReference<String> failure = new AtomicReference<>();
+        // Registered first, so in synchronous mode it holds up every other device.
+        SlowDevice slow = new SlowDevice(hub);
+        hub.registerDevice("SlowCamera", slow);
+        List<FastDevice> fast = new ArrayList<>();
+        for(int d = 0; d < fastDevices; d++){
+            FastDevice device = new FastDevice(hub, sentAt, failure);
+            fast.add(device);
+            hub.registerDevice("Fast" + d, device);
+        }
+        Sensor sensor = new Sensor(hub);
+        hub.registerDevice("DoorSensor", sensor);
+
+        long senderNanos = 0;
+        long next = System.nanoTime();
+        for(int k = 0; k < events; k++){
+            while(System.nanoTime() < next){
+                LockSupport.parkNanos(next - System.nanoTime());
+            }
+            next += PACE_NANOS;
+            sentAt[k] = System.nanoTime();
+            sensor.onEvent(k % 2 == 0 ? EventEnum.DOOR_OPENED : EventEnum.DOOR_CLOSED);
+            senderNanos += System.nanoTime() - sentAt[k];
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        for(FastDevice device : fast){
+            while(device.received < events && System.nanoTime() < deadline){
+                Thread.sleep(1);
+            }
+            if(device.received < events){
+                failure.compareAndSet(null, "A fast device only received " + device.received + " of " + events + " events");
+            }
+        }
+        DeviceLag slowLag = hub.getLag(slow);
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        if(failure.get() != null){
+            throw new IllegalStateException(name + ": " + failure.get());
+        }
+
+        long[] all = new long[fastDevices * events];
+        for(int d = 0; d < fastDevices; d++){
+            System.arraycopy(fast.get(d).latencies, 0, all, d * events, events);
+        }
+        Arrays.sort(all);
+        System.out.printf("%s,%.1f,%.1f,%.1f,%.1f,%.1f,%s,%s,%s%n", name, senderNanos / 1e3 / events,
+                percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999), all[all.length - 1] / 1e3,
+                slowLag == null ? "" : slowLag.getDelivered(), slowLag == null ? "" : slowLag.getPending(),
+                slowLag == null ? "" : slowLag.getDropped());
+    }
+
+    static double percentile(long[] sorted, double fraction) {
+        return sorted[(int) Math.min(sorted.length - 1, (long) (sorted.length * fraction))] / 1e3;
+    }
+}
@@ -0,0 +1,94 @@
+import example.smartHome.SmartDevice;
+import example.smartHome.SmartHomeHub;
+import example.smartHome.SmartHomeMediator;
+import example.smartHome.utils.EventEnum;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+// Dispatch cost with 10k registered devices, of which only some care about DOOR_OPENED. "broadcast" is the
+// hub's previous behaviour, calling every device and letting it ignore the event. "routed" is SmartHomeHub's
+// routing table. Checks that both deliver the event to the same number of devices. Prints one CSV row per hub
+// and interested count.
+//
+// Usage: HubBenchmark [devices] [events]
+public class HubBenchmark {
+
+    static long handled;
+
+    // Reacts to DOOR_OPENED only if interested, like the if/else in Light or Thermostat.
+    static class CountingDevice extends SmartDevice {
+        final boolean interested;
+
+        CountingDevice(SmartHomeMediator mediator, boolean interested) {
+            super(mediator);
+            this.interested = interested;
+        }
+
+        @Override
+        public Set<EventEnum> interestedEvents() {
+            return interested ? EnumSet.of(EventEnum.DOOR_OPENED) : EnumSet.noneOf(EventEnum.class);
+        }
+
+        @Override
+        public void onEvent(EventEnum event) {
+            if(interested && event == EventEnum.DOOR_OPENED){
+                handled++;
+            }
+        }
+    }
+
+    // The hub before routing: every event goes to every other device.
+    static class BroadcastHub implements SmartHomeMediator {
+        final List<SmartDevice> devices = new ArrayList<>();
+
+        @Override
+        public void registerDevice(String name, SmartDevice device) {
+            devices.add(device);
+        }
+
+        @Override
+        public void onEvent(SmartDevice device, EventEnum event) {
+            for(SmartDevice localDevice: devices){
+                if(localDevice != device){
+                    localDevice.onEvent(event);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        int devices = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        System.out.println("hub,devices,interested,nsPerEvent,handledPerEvent");
+        for(int interested = 10; interested <= devices; interested *= 10){
+            long broadcast = run("broadcast", new BroadcastHub(), devices, interested, events);
+            long routed = run("routed", new SmartHomeHub(), devices, interested, events);
+            if(broadcast != routed){
+                throw new IllegalStateException("broadcast handled " + broadcast + " events, routed handled " + routed);
+            }
+        }
+    }
+
+    static long run(String name, SmartHomeMediator hub, int devices, int interested, int events) {
+        int every = devices / interested;
+        for(int i = 0; i < devices; i++){
+            hub.registerDevice("Device" + i, new CountingDevice(hub, i % every == 0));
+        }
+        SmartDevice sensor = new CountingDevice(hub, false);
+        // Warm up, then measure.
+        for(int i = 0; i < events; i++){
+            hub.onEvent(sensor, EventEnum.DOOR_OPENED);
+        }
+        handled = 0;
+        long begin = System.nanoTime();
+        for(int i = 0; i < events; i++){
+            hub.onEvent(sensor, EventEnum.DOOR_OPENED);
+        }
+        long elapsed = System.nanoTime() - begin;
+        System.out.printf("%s,%d,%d,%.0f,%d%n", name, devices, interested, (double) elapsed / events, handled / events);
+        return handled;
+    }
+}
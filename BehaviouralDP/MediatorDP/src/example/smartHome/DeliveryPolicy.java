@@ -0,0 +1,14 @@
+package example.smartHome;
+
+// What an asynchronous device's mailbox does with a new event when it is full.
+public enum DeliveryPolicy {
+    // The sender waits for room, so a slow device slows down its sensors. A device sending to itself from its
+    // own delivery does not wait; see DeviceMailbox. Devices whose onEvent sends to each other can still wait on
+    // each other's full mailboxes, as can senders running on every thread of the executor, so such devices
+    // should use a DROP policy.
+    BLOCK,
+    // The oldest queued event is discarded to make room.
+    DROP_OLDEST,
+    // The new event is discarded, and the events already queued are kept.
+    DROP_NEWEST
+}
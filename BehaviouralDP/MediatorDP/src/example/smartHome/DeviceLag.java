@@ -0,0 +1,45 @@
+package example.smartHome;
+
+// A snapshot of how far an asynchronous device is behind the events sent to it.
+public class DeviceLag {
+    private final int pending;
+    private final long delivered;
+    private final long dropped;
+    private final long maxDelayNanos;
+
+    DeviceLag(int pending, long delivered, long dropped, long maxDelayNanos){
+        this.pending = pending;
+        this.delivered = delivered;
+        this.dropped = dropped;
+        this.maxDelayNanos = maxDelayNanos;
+    }
+
+    // Events queued but not yet delivered.
+    public int getPending() {
+        return pending;
+    }
+
+    public long getDelivered() {
+        return delivered;
+    }
+
+    // Events discarded by DROP_OLDEST or DROP_NEWEST, or by BLOCK when the sender could not wait for room.
+    public long getDropped() {
+        return dropped;
+    }
+
+    // The longest time an event has waited in the mailbox before delivery.
+    public long getMaxDelayNanos() {
+        return maxDelayNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceLag{" +
+                "pending=" + pending +
+                ", delivered=" + delivered +
+                ", dropped=" + dropped +
+                ", maxDelayNanos=" + maxDelayNanos +
+                '}';
+    }
+}
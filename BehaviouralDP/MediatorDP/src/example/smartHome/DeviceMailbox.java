@@ -0,0 +1,137 @@
+package example.smartHome;
+
+import example.smartHome.utils.EventEnum;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Queues events for one device and delivers them on a shared executor, in order and never on two threads at
+// once. Senders only enqueue and, if the mailbox is idle, schedule it; the scheduled task delivers a batch and
+// reschedules itself while events remain, so one slow device holds at most one executor thread.
+//
+// Under BLOCK, an event sent to a full mailbox from that mailbox's own delivery, e.g. by a device that reacts
+// to an event by raising one routed back to itself, is dropped and counted: waiting there would wait for the
+// only thread that can make room.
+class DeviceMailbox implements Runnable {
+    private static final int BATCH = 64;
+
+    private static class Delivery {
+        final EventEnum event;
+        final long enqueuedAt;
+
+        Delivery(EventEnum event, long enqueuedAt){
+            this.event = event;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final SmartDevice device;
+    private final Executor executor;
+    private final DeliveryPolicy policy;
+    private final BlockingQueue<Delivery> queue;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final LongAdder dropped = new LongAdder();
+    // Only written by the delivering task, which never runs twice at once.
+    private volatile long delivered;
+    private volatile long maxDelayNanos;
+    // The thread running this mailbox's deliveries, or null between batches.
+    private volatile Thread deliveringThread;
+
+    DeviceMailbox(SmartDevice device, Executor executor, int capacity, DeliveryPolicy policy){
+        this.device = device;
+        this.executor = executor;
+        this.policy = policy;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    void offer(EventEnum event) {
+        Delivery delivery = new Delivery(event, System.nanoTime());
+        switch (policy) {
+            case BLOCK:
+                if(deliveringThread == Thread.currentThread()){
+                    if(!queue.offer(delivery)){
+                        dropped.increment();
+                        return;
+                    }
+                    break;
+                }
+                try {
+                    queue.put(delivery);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.increment();
+                    return;
+                }
+                break;
+            case DROP_OLDEST:
+                while(!queue.offer(delivery)){
+                    if(queue.poll() != null){
+                        dropped.increment();
+                    }
+                }
+                break;
+            case DROP_NEWEST:
+                if(!queue.offer(delivery)){
+                    dropped.increment();
+                    return;
+                }
+                break;
+        }
+        schedule();
+    }
+
+    @Override
+    public void run() {
+        deliveringThread = Thread.currentThread();
+        try {
+            int count = 0;
+            while(count < BATCH && deliverOne()){
+                count++;
+            }
+        } finally {
+            deliveringThread = null;
+            scheduled.set(false);
+            // An event queued after the last poll found the flag still set and did not schedule.
+            if(!queue.isEmpty()){
+                try {
+                    schedule();
+                } catch (RejectedExecutionException e) {
+                    // The executor is shutting down; the rest stays pending.
+                }
+            }
+        }
+    }
+
+    DeviceLag lag() {
+        return new DeviceLag(queue.size(), delivered, dropped.sum(), maxDelayNanos);
+    }
+
+    private boolean deliverOne() {
+        Delivery delivery = queue.poll();
+        if(delivery == null){
+            return false;
+        }
+        long delay = System.nanoTime() - delivery.enqueuedAt;
+        if(delay > maxDelayNanos){
+            maxDelayNanos = delay;
+        }
+        device.onEvent(delivery.event);
+        delivered++;
+        return true;
+    }
+
+    private void schedule() {
+        if(scheduled.compareAndSet(false, true)){
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                throw e;
+            }
+        }
+    }
+}
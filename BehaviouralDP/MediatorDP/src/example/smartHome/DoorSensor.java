@@ -2,12 +2,21 @@ package example.smartHome;
 
 import example.smartHome.utils.EventEnum;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public class DoorSensor extends SmartDevice{
 
     public DoorSensor(SmartHomeMediator mediator) {
         super(mediator);
     }
 
+    // Only raises events, so the hub never routes any to it.
+    @Override
+    public Set<EventEnum> interestedEvents() {
+        return EnumSet.noneOf(EventEnum.class);
+    }
+
     @Override
     public void onEvent(EventEnum event) {
 
@@ -2,6 +2,9 @@ package example.smartHome;
 
 import example.smartHome.utils.EventEnum;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public class Light extends SmartDevice{
 
     boolean isOn;
@@ -21,6 +24,11 @@ public class Light extends SmartDevice{
         this.isOn = false;
     }
 
+    @Override
+    public Set<EventEnum> interestedEvents() {
+        return EnumSet.of(EventEnum.DOOR_OPENED, EventEnum.DOOR_CLOSED);
+    }
+
     @Override
     public void onEvent(EventEnum event) {
         if(event.equals(EventEnum.DOOR_OPENED)){
@@ -2,6 +2,9 @@ package example.smartHome;
 
 import example.smartHome.utils.EventEnum;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public abstract class SmartDevice {
     SmartHomeMediator smartHomeMediator;
 
@@ -10,4 +13,9 @@ public abstract class SmartDevice {
     }
 
     public abstract void onEvent(EventEnum event);
+
+    // The events the hub routes to this device, read once when it is registered.
+    public Set<EventEnum> interestedEvents(){
+        return EnumSet.allOf(EventEnum.class);
+    }
 }
@@ -2,26 +2,76 @@ package example.smartHome;
 
 import example.smartHome.utils.EventEnum;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
+// Routes each event only to the devices that declared interest in it (SmartDevice.interestedEvents), so
+// dispatch cost grows with the number of interested devices rather than with every registered device. The
+// routing table maps each event type to an array of its handlers. Registering copies the table, and onEvent
+// reads the current copy without locking.
+//
+// By default onEvent calls every handler on the sender's thread. After enableAsyncDelivery each device gets
+// its own bounded mailbox served by a shared executor instead. Sensors then return as soon as the event is
+// queued, and a slow device only delays itself.
 public class SmartHomeHub implements SmartHomeMediator{
 
-    List<SmartDevice> devices;
+    private static final SmartDevice[] NO_DEVICES = new SmartDevice[0];
+
+    volatile Map<EventEnum, SmartDevice[]> routes;
+    Map<SmartDevice, DeviceMailbox> mailboxes;
+    volatile Executor deliveryExecutor;
+    int mailboxCapacity;
+    DeliveryPolicy deliveryPolicy;
 
     public SmartHomeHub(){
-        devices = new ArrayList<>();
+        routes = new EnumMap<>(EventEnum.class);
+        mailboxes = new ConcurrentHashMap<>();
+    }
+
+    // Call before events start flowing. capacity is the number of events a device's mailbox holds before
+    // the policy applies.
+    public synchronized void enableAsyncDelivery(Executor executor, int capacity, DeliveryPolicy policy){
+        this.mailboxCapacity = capacity;
+        this.deliveryPolicy = policy;
+        this.deliveryExecutor = executor;
+    }
+
+    // How far behind an asynchronous device is, or null if it has not been sent anything yet.
+    public DeviceLag getLag(SmartDevice device){
+        DeviceMailbox mailbox = mailboxes.get(device);
+        return mailbox == null ? null : mailbox.lag();
     }
+
     @Override
-    public void registerDevice(String name, SmartDevice device) {
-        this.devices.add(device);
+    public synchronized void registerDevice(String name, SmartDevice device) {
+        Map<EventEnum, SmartDevice[]> updated = new EnumMap<>(routes);
+        for(EventEnum event: device.interestedEvents()){
+            SmartDevice[] handlers = updated.getOrDefault(event, NO_DEVICES);
+            SmartDevice[] grown = Arrays.copyOf(handlers, handlers.length + 1);
+            grown[handlers.length] = device;
+            updated.put(event, grown);
+        }
+        routes = updated;
     }
 
     @Override
     public void onEvent(SmartDevice device, EventEnum event) {
-        for(SmartDevice localDevice: devices){
-            if(localDevice != device){
+        SmartDevice[] handlers = routes.get(event);
+        if(handlers == null)
+            return;
+        Executor executor = deliveryExecutor;
+        for(SmartDevice localDevice: handlers){
+            if(localDevice == device){
+                continue;
+            }
+            if(executor == null){
                 localDevice.onEvent(event);
+            } else {
+                mailboxes.computeIfAbsent(localDevice, key -> new DeviceMailbox(key, executor, mailboxCapacity, deliveryPolicy))
+                        .offer(event);
             }
         }
     }
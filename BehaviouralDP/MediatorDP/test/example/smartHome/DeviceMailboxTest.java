@@ -0,0 +1,230 @@
+package example.smartHome;
+
+import example.smartHome.utils.EventEnum;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class DeviceMailboxTest {
+
+    private static final EventEnum OPENED = EventEnum.DOOR_OPENED;
+    private static final EventEnum CLOSED = EventEnum.DOOR_CLOSED;
+
+    // Remembers every event it is sent, in order, and then runs an optional reaction.
+    static class RecordingDevice extends SmartDevice {
+        final List<EventEnum> events = new ArrayList<>();
+        Consumer<EventEnum> reaction = event -> {};
+
+        RecordingDevice(SmartHomeMediator mediator) {
+            super(mediator);
+        }
+
+        @Override
+        public Set<EventEnum> interestedEvents() {
+            return EnumSet.allOf(EventEnum.class);
+        }
+
+        @Override
+        public void onEvent(EventEnum event) {
+            synchronized(this) {
+                events.add(event);
+            }
+            reaction.accept(event);
+        }
+
+        synchronized List<EventEnum> events() {
+            return new ArrayList<>(events);
+        }
+    }
+
+    // Runs submitted tasks only when asked, so a test decides when mailboxes deliver. Rejects tasks while
+    // `rejecting` is set, as a shut-down executor would.
+    static class ManualExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+        volatile boolean rejecting;
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            if(rejecting){
+                throw new RejectedExecutionException("rejecting");
+            }
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while((task = poll()) != null){
+                task.run();
+            }
+        }
+
+        boolean runOne() {
+            Runnable task = poll();
+            if(task == null){
+                return false;
+            }
+            task.run();
+            return true;
+        }
+
+        private synchronized Runnable poll() {
+            return tasks.poll();
+        }
+    }
+
+    @Test
+    public void testEachDeviceGetsItsEventsInTheOrderSent() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        SmartHomeHub hub = new SmartHomeHub();
+        hub.enableAsyncDelivery(executor, 64, DeliveryPolicy.BLOCK);
+        RecordingDevice first = new RecordingDevice(hub);
+        RecordingDevice second = new RecordingDevice(hub);
+        RecordingDevice sensor = new RecordingDevice(hub);
+        hub.registerDevice("first", first);
+        hub.registerDevice("second", second);
+
+        Random random = new Random(7);
+        List<EventEnum> sent = new ArrayList<>();
+        for(int i = 0; i < 20_000; i++){
+            EventEnum event = random.nextBoolean() ? OPENED : CLOSED;
+            sent.add(event);
+            hub.onEvent(sensor, event);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while((first.events().size() < sent.size() || second.events().size() < sent.size()) && System.nanoTime() < deadline){
+            Thread.sleep(5);
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(sent, first.events());
+        Assertions.assertEquals(sent, second.events());
+        Assertions.assertEquals(0, hub.getLag(first).getDropped());
+        Assertions.assertEquals(sent.size(), hub.getLag(second).getDelivered());
+    }
+
+    @Test
+    public void testDropOldestKeepsTheNewestEventsAndCountsTheRest() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingDevice device = new RecordingDevice(null);
+        DeviceMailbox mailbox = new DeviceMailbox(device, executor, 3, DeliveryPolicy.DROP_OLDEST);
+        List<EventEnum> sent = List.of(OPENED, OPENED, CLOSED, OPENED, CLOSED, CLOSED, OPENED);
+        sent.forEach(mailbox::offer);
+
+        Assertions.assertEquals(4, mailbox.lag().getDropped());
+        Assertions.assertEquals(3, mailbox.lag().getPending());
+        executor.runAll();
+        Assertions.assertEquals(sent.subList(4, 7), device.events());
+        Assertions.assertEquals(3, mailbox.lag().getDelivered());
+    }
+
+    @Test
+    public void testDropNewestKeepsTheQueuedEventsAndCountsTheRest() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingDevice device = new RecordingDevice(null);
+        DeviceMailbox mailbox = new DeviceMailbox(device, executor, 3, DeliveryPolicy.DROP_NEWEST);
+        List<EventEnum> sent = List.of(OPENED, CLOSED, CLOSED, OPENED, OPENED, CLOSED, OPENED);
+        sent.forEach(mailbox::offer);
+
+        Assertions.assertEquals(4, mailbox.lag().getDropped());
+        executor.runAll();
+        Assertions.assertEquals(sent.subList(0, 3), device.events());
+
+        // Once the device has caught up there is room again.
+        mailbox.offer(CLOSED);
+        executor.runAll();
+        Assertions.assertEquals(List.of(OPENED, CLOSED, CLOSED, CLOSED), device.events());
+        Assertions.assertEquals(4, mailbox.lag().getDropped());
+    }
+
+    @Test
+    public void testBlockParksTheSenderUntilTheDeviceMakesRoom() throws InterruptedException {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingDevice device = new RecordingDevice(null);
+        DeviceMailbox mailbox = new DeviceMailbox(device, executor, 2, DeliveryPolicy.BLOCK);
+        mailbox.offer(OPENED);
+        mailbox.offer(CLOSED);
+
+        Thread sender = new Thread(() -> mailbox.offer(OPENED));
+        sender.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while(sender.getState() != Thread.State.WAITING && System.nanoTime() < deadline){
+            Thread.sleep(1);
+        }
+        Assertions.assertEquals(Thread.State.WAITING, sender.getState());
+        Assertions.assertEquals(2, mailbox.lag().getPending());
+
+        executor.runAll();
+        sender.join(TimeUnit.SECONDS.toMillis(10));
+        Assertions.assertFalse(sender.isAlive());
+        executor.runAll();
+        Assertions.assertEquals(List.of(OPENED, CLOSED, OPENED), device.events());
+        Assertions.assertEquals(0, mailbox.lag().getDropped());
+    }
+
+    @Test
+    public void testRejectedScheduleKeepsTheEventsForTheNextOne() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingDevice device = new RecordingDevice(null);
+        DeviceMailbox mailbox = new DeviceMailbox(device, executor, 256, DeliveryPolicy.BLOCK);
+
+        // The sender is told; the event stays queued and the mailbox can be scheduled again.
+        executor.rejecting = true;
+        Assertions.assertThrows(RejectedExecutionException.class, () -> mailbox.offer(OPENED));
+        Assertions.assertEquals(1, mailbox.lag().getPending());
+        executor.rejecting = false;
+        for(int i = 0; i < 99; i++){
+            mailbox.offer(CLOSED);
+        }
+
+        // A batch that cannot reschedule the rest leaves it pending instead of throwing on the executor thread.
+        executor.rejecting = true;
+        Assertions.assertTrue(executor.runOne());
+        Assertions.assertFalse(executor.runOne());
+        int delivered = device.events().size();
+        Assertions.assertTrue(delivered > 0 && delivered < 100);
+        Assertions.assertEquals(100 - delivered, mailbox.lag().getPending());
+
+        executor.rejecting = false;
+        mailbox.offer(OPENED);
+        executor.runAll();
+        Assertions.assertEquals(101, device.events().size());
+        Assertions.assertEquals(OPENED, device.events().get(0));
+        Assertions.assertEquals(OPENED, device.events().get(100));
+        Assertions.assertEquals(0, mailbox.lag().getDropped());
+    }
+
+    @Test
+    public void testDeviceSendingToItselfUnderBlockDropsInsteadOfWaitingForever() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingDevice device = new RecordingDevice(null);
+        DeviceMailbox mailbox = new DeviceMailbox(device, executor, 1, DeliveryPolicy.BLOCK);
+        // Each OPENED makes the device raise two CLOSED events that are routed back to itself.
+        device.reaction = event -> {
+            if(event == OPENED){
+                mailbox.offer(CLOSED);
+                mailbox.offer(CLOSED);
+            }
+        };
+
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            mailbox.offer(OPENED);
+            executor.runAll();
+        });
+        Assertions.assertEquals(List.of(OPENED, CLOSED), device.events());
+        Assertions.assertEquals(1, mailbox.lag().getDropped());
+    }
+}
@@ -0,0 +1,83 @@
+import example.stockMarketApp.BombayStockMarket;
+import example.stockMarketApp.ConflatingPublisher;
+import example.stockMarketApp.Stock;
+import example.stockMarketApp.StockMarket;
+import example.stockMarketApp.UserClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// A synthetic feed of ticks (1M per second by default) spread over a set of stocks, each watched by the same
+// subscribers, published directly with notify() and then through a ConflatingPublisher. Counts the subscriber
+// updates each way. Prints one CSV row per run.
+//
+// Usage: ConflationBenchmark [ticksPerSecond] [seconds] [maxLatencyMicros]
+public class ConflationBenchmark {
+    private static final int STOCKS = 100;
+    private static final int SUBSCRIBERS = 20;
+
+    interface Publisher {
+        void publish(Stock stock);
+    }
+
+    public static void main(String[] args) throws Exception {
+        long ticksPerSecond = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        long maxLatencyMicros = args.length > 2 ? Long.parseLong(args[2]) : 1_000;
+        System.out.println("mode,targetTicksPerSecond,ticksPerSecond,updatesPerSecond,updatesPerTick");
+
+        StockMarket direct = new BombayStockMarket();
+        LongAdder directUpdates = new LongAdder();
+        List<Stock> directStocks = subscribe(direct, directUpdates);
+        run("direct", ticksPerSecond, seconds, directStocks, direct::notify, directUpdates);
+
+        StockMarket conflated = new BombayStockMarket();
+        LongAdder conflatedUpdates = new LongAdder();
+        List<Stock> conflatedStocks = subscribe(conflated, conflatedUpdates);
+        try(ConflatingPublisher publisher = new ConflatingPublisher(conflated, maxLatencyMicros, TimeUnit.MICROSECONDS)){
+            run("conflating-" + maxLatencyMicros + "us", ticksPerSecond, seconds, conflatedStocks, publisher::publish, conflatedUpdates);
+        }
+    }
+
+    static List<Stock> subscribe(StockMarket market, LongAdder updates) {
+        List<Stock> stocks = new ArrayList<>();
+        for(int s = 0; s < STOCKS; s++){
+            Stock stock = new Stock("Stock" + s, "100USD");
+            stocks.add(stock);
+            market.registerStock(stock);
+        }
+        for(int c = 0; c < SUBSCRIBERS; c++){
+            UserClient client = updates::increment;
+            for(Stock stock : stocks){
+                market.registerClient(client, stock);
+            }
+        }
+        return stocks;
+    }
+
+    // Publishes at the target rate, in batches paced against the clock, for the given number of seconds.
+    static void run(String name, long ticksPerSecond, int seconds, List<Stock> stocks, Publisher publisher, LongAdder updates) {
+        String[] prices = new String[64];
+        for(int i = 0; i < prices.length; i++){
+            prices[i] = (400 + i) + "USD";
+        }
+        long ticks = 0;
+        long begin = System.nanoTime();
+        long end = begin + seconds * 1_000_000_000L;
+        long now;
+        while((now = System.nanoTime()) < end){
+            long due = (now - begin) * ticksPerSecond / 1_000_000_000L;
+            for(; ticks < due; ticks++){
+                // Bursty: runs of ticks hit the same stock before moving on.
+                Stock stock = stocks.get((int) ((ticks / 8) % stocks.size()));
+                stock.setPrice(prices[(int) (ticks % prices.length)]);
+                publisher.publish(stock);
+            }
+        }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        long delivered = updates.sum();
+        System.out.printf("%s,%d,%.0f,%.0f,%.3f%n", name, ticksPerSecond, ticks / elapsed, delivered / elapsed, (double) delivered / ticks);
+    }
+}
@@ -0,0 +1,107 @@
+import example.stockMarketApp.BombayStockMarket;
+import example.stockMarketApp.DeliveryPolicy;
+import example.stockMarketApp.Stock;
+import example.stockMarketApp.SubscriberLag;
+import example.stockMarketApp.UserClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// One publisher, many fast subscribers and one subscriber that takes a millisecond per update, delivered
+// synchronously and then through per-subscriber mailboxes with each overflow policy. Shows how much the slow
+// subscriber holds back publishing and the fast subscribers, and how far behind it falls. Prints one CSV row
+// per run.
+//
+// Usage: DeliveryBenchmark [fastClients] [millis] [mailboxCapacity]
+public class DeliveryBenchmark {
+    private static final int STOCKS = 32;
+
+    public static void main(String[] args) throws Exception {
+        int fastClients = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 2_000;
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+        System.out.println("mode,notifiesPerSecond,fastDeliveriesPerSecond,fastMaxDelayMicros,slowDelivered,slowPending,slowDropped,slowConflated");
+        run("sync", null, fastClients, millis, capacity);
+        for(DeliveryPolicy policy : DeliveryPolicy.values()){
+            run(policy.name(), policy, fastClients, millis, capacity);
+        }
+    }
+
+    static void run(String name, DeliveryPolicy policy, int fastClients, long millis, int capacity) throws Exception {
+        BombayStockMarket market = new BombayStockMarket();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        if(policy != null){
+            market.enableAsyncDelivery(executor, capacity, policy);
+        }
+        List<Stock> stocks = new ArrayList<>();
+        for(int s = 0; s < STOCKS; s++){
+            stocks.add(new Stock("Stock" + s, "100USD"));
+        }
+        LongAdder fastDeliveries = new LongAdder();
+        List<UserClient> fast = new ArrayList<>();
+        for(int c = 0; c < fastClients; c++){
+            UserClient client = new UserClient() {
+                @Override
+                public void display() {
+                }
+
+                @Override
+                public void update(Stock stock) {
+                    fastDeliveries.increment();
+                }
+            };
+            fast.add(client);
+            for(Stock stock : stocks){
+                market.registerClient(client, stock);
+            }
+        }
+        UserClient slow = new UserClient() {
+            @Override
+            public void display() {
+            }
+
+            @Override
+            public void update(Stock stock) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        for(Stock stock : stocks){
+            market.registerClient(slow, stock);
+        }
+
+        long notifies = 0;
+        long begin = System.nanoTime();
+        long end = begin + millis * 1_000_000;
+        while(System.nanoTime() < end){
+            Stock stock = stocks.get((int) (notifies % STOCKS));
+            stock.setPrice((100 + notifies % 50) + "USD");
+            market.notify(stock);
+            notifies++;
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        long delivered = fastDeliveries.sum();
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        if(policy == null){
+            System.out.printf("%s,%.0f,%.0f,,,,,%n", name, notifies / seconds, delivered / seconds);
+            return;
+        }
+        long fastMaxDelay = 0;
+        for(UserClient client : fast){
+            SubscriberLag lag = market.getLag(client);
+            fastMaxDelay = Math.max(fastMaxDelay, lag.getMaxDelayNanos());
+        }
+        SubscriberLag slowLag = market.getLag(slow);
+        System.out.printf("%s,%.0f,%.0f,%d,%d,%d,%d,%d%n", name, notifies / seconds, delivered / seconds, fastMaxDelay / 1000,
+                slowLag.getDelivered(), slowLag.getPending(), slowLag.getDropped(), slowLag.getConflated());
+    }
+}
@@ -0,0 +1,114 @@
+import example.stockMarketApp.BombayStockMarket;
+import example.stockMarketApp.Stock;
+import example.stockMarketApp.StockMarket;
+import example.stockMarketApp.UserClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// notify() throughput of BombayStockMarket with several publisher threads, with and without other threads
+// constantly registering and unregistering clients. A run fails if any thread throws or if a client that stayed
+// subscribed the whole time missed a notification; BombayStockMarketTest makes the same checks as a unit test.
+// Prints one CSV row per run.
+//
+// Usage: MarketBenchmark [publishers] [churnThreads] [millis]
+public class MarketBenchmark {
+    private static final int STOCKS = 16;
+    private static final int STABLE_CLIENTS_PER_STOCK = 8;
+
+    public static void main(String[] args) throws Exception {
+        int publishers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int churnThreads = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        long millis = args.length > 2 ? Long.parseLong(args[2]) : 2_000;
+        System.out.println("run,publishers,churnThreads,notifiesPerSecond,deliveriesPerSecond,subscriptionChangesPerSecond");
+        run("no-churn", publishers, 0, millis);
+        run("churn", publishers, churnThreads, millis);
+    }
+
+    static void run(String name, int publishers, int churnThreads, long millis) throws Exception {
+        StockMarket market = new BombayStockMarket();
+        List<Stock> stocks = new ArrayList<>();
+        AtomicLong[] notifies = new AtomicLong[STOCKS];
+        AtomicLong[] stableDeliveries = new AtomicLong[STOCKS];
+        LongAdder deliveries = new LongAdder();
+        for(int s = 0; s < STOCKS; s++){
+            Stock stock = new Stock("Stock" + s, "100USD");
+            stocks.add(stock);
+            market.registerStock(stock);
+            notifies[s] = new AtomicLong();
+            stableDeliveries[s] = new AtomicLong();
+            AtomicLong counter = stableDeliveries[s];
+            for(int c = 0; c < STABLE_CLIENTS_PER_STOCK; c++){
+                market.registerClient(() -> {
+                    counter.incrementAndGet();
+                    deliveries.increment();
+                }, stock);
+            }
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        LongAdder subscriptionChanges = new LongAdder();
+        CountDownLatch done = new CountDownLatch(publishers + churnThreads);
+        for(int p = 0; p < publishers; p++){
+            start(done, failure, () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while(running.get()){
+                    int s = random.nextInt(STOCKS);
+                    // Counted before notify, so a stable client can never be ahead of the count.
+                    notifies[s].incrementAndGet();
+                    market.notify(stocks.get(s));
+                }
+            });
+        }
+        for(int c = 0; c < churnThreads; c++){
+            start(done, failure, () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                UserClient transientClient = deliveries::increment;
+                while(running.get()){
+                    Stock stock = stocks.get(random.nextInt(STOCKS));
+                    market.registerClient(transientClient, stock);
+                    market.unregisterClient(transientClient, stock);
+                    subscriptionChanges.add(2);
+                }
+            });
+        }
+        long begin = System.nanoTime();
+        Thread.sleep(millis);
+        running.set(false);
+        done.await();
+        double seconds = (System.nanoTime() - begin) / 1e9;
+
+        if(failure.get() != null){
+            throw new IllegalStateException(name + " failed", failure.get());
+        }
+        long totalNotifies = 0;
+        for(int s = 0; s < STOCKS; s++){
+            totalNotifies += notifies[s].get();
+            if(stableDeliveries[s].get() != notifies[s].get() * STABLE_CLIENTS_PER_STOCK){
+                throw new IllegalStateException(name + ": stable clients of stock " + s + " got " + stableDeliveries[s].get()
+                        + " notifications, expected " + notifies[s].get() * STABLE_CLIENTS_PER_STOCK);
+            }
+        }
+        System.out.printf("%s,%d,%d,%.0f,%.0f,%.0f%n", name, publishers, churnThreads, totalNotifies / seconds,
+                deliveries.sum() / seconds, subscriptionChanges.sum() / seconds);
+    }
+
+    private static void start(CountDownLatch done, AtomicReference<Throwable> failure, Runnable body) {
+        new Thread(() -> {
+            try {
+                body.run();
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                done.countDown();
+            }
+        }).start();
+    }
+}
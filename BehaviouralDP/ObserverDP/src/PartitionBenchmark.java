@@ -0,0 +1,98 @@
+import example.stockMarketApp.PartitionedStockMarket;
+import example.stockMarketApp.QuoteBook;
+import example.stockMarketApp.Stock;
+import example.stockMarketApp.UserClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Delivery throughput of PartitionedStockMarket from 1 to N partitions. The subscribers do a little work per
+// update, so delivery rather than publishing is the bottleneck. One publisher per partition publishes
+// increasing prices for its own share of the stocks. Every subscriber checks that it sees each stock's prices in
+// publishing order; the run fails otherwise. Prints one CSV row per partition count.
+//
+// Usage: PartitionBenchmark [maxPartitions] [ticksPerPublisher] [workPerUpdate]
+public class PartitionBenchmark {
+    private static final int STOCKS = 256;
+    private static final int SUBSCRIBERS_PER_STOCK = 4;
+
+    static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        int maxPartitions = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(4, Runtime.getRuntime().availableProcessors());
+        int ticksPerPublisher = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int work = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        System.out.println("partitions,cores,ticksPerSecond,deliveriesPerSecond");
+        for(int partitions = 1; partitions <= maxPartitions; partitions *= 2){
+            run(partitions, ticksPerPublisher, work);
+        }
+    }
+
+    static void run(int partitionCount, int ticksPerPublisher, int work) throws Exception {
+        PartitionedStockMarket market = new PartitionedStockMarket(partitionCount);
+        QuoteBook quotes = market.getQuotes();
+        LongAdder deliveries = new LongAdder();
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Stock> stocks = new ArrayList<>();
+        for(int s = 0; s < STOCKS; s++){
+            Stock stock = new Stock("P" + s, "0USD");
+            stocks.add(stock);
+            market.registerStock(stock);
+            for(int c = 0; c < SUBSCRIBERS_PER_STOCK; c++){
+                market.registerClient(new UserClient() {
+                    long lastPrice = -1;
+
+                    @Override
+                    public void display() {
+                    }
+
+                    // Only ever called on the stock's partition thread, so lastPrice needs no synchronization.
+                    @Override
+                    public void update(Stock updated) {
+                        long price = quotes.price(updated.getSymbolId());
+                        if(price < lastPrice){
+                            failure.compareAndSet(null, updated.getName() + " went from " + lastPrice + " back to " + price);
+                        }
+                        lastPrice = price;
+                        long x = price;
+                        for(int i = 0; i < work; i++){
+                            x = x * 6364136223846793005L + 1442695040888963407L;
+                        }
+                        sink += x;
+                        deliveries.increment();
+                    }
+                }, stock);
+            }
+        }
+        market.awaitQuiescence();
+
+        CountDownLatch done = new CountDownLatch(partitionCount);
+        long begin = System.nanoTime();
+        for(int p = 0; p < partitionCount; p++){
+            int publisher = p;
+            new Thread(() -> {
+                List<Stock> own = new ArrayList<>();
+                for(Stock stock : stocks){
+                    if(stock.getSymbolId() % partitionCount == publisher){
+                        own.add(stock);
+                    }
+                }
+                for(int i = 0; i < ticksPerPublisher; i++){
+                    market.publishQuote(own.get(i % own.size()), i);
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        market.close();
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        if(failure.get() != null){
+            throw new IllegalStateException(failure.get());
+        }
+        System.out.printf("%d,%d,%.0f,%.0f%n", partitionCount, Runtime.getRuntime().availableProcessors(),
+                (double) partitionCount * ticksPerPublisher / seconds, deliveries.sum() / seconds);
+    }
+}
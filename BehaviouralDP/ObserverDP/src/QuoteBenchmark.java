@@ -0,0 +1,89 @@
+import example.stockMarketApp.BombayStockMarket;
+import example.stockMarketApp.Prices;
+import example.stockMarketApp.QuoteBook;
+import example.stockMarketApp.Stock;
+import example.stockMarketApp.UserClient;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// Tick processing with String prices ("450USD", set with setPrice and parsed by the subscriber) against
+// fixed-point quotes (publishQuote, read by the subscriber from the QuoteBook). Each tick updates one stock and
+// notifies its subscriber. Reports nanoseconds and bytes allocated per tick on the publishing thread. Prints
+// one CSV row per model.
+//
+// Usage: QuoteBenchmark [ticks]
+public class QuoteBenchmark {
+    private static final int STOCKS = 100;
+
+    static long sink;
+
+    interface Tick {
+        void run(long i);
+    }
+
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        System.out.println("model,nanosPerTick,allocatedBytesPerTick");
+
+        BombayStockMarket stringMarket = new BombayStockMarket();
+        List<Stock> stringStocks = stocks(stringMarket, "S", stock -> {
+            String price = stock.getPrice();
+            sink += Long.parseLong(price.substring(0, price.length() - 3));
+        });
+        run("string", ticks, i -> {
+            Stock stock = stringStocks.get((int) (i % STOCKS));
+            stock.setPrice((400 + i % 100) + "USD");
+            stringMarket.notify(stock);
+        });
+
+        BombayStockMarket quoteMarket = new BombayStockMarket();
+        QuoteBook quotes = quoteMarket.getQuotes();
+        List<Stock> quoteStocks = stocks(quoteMarket, "Q", stock -> sink += quotes.price(stock.getSymbolId()) / Prices.SCALE);
+        run("fixed-point", ticks, i -> {
+            Stock stock = quoteStocks.get((int) (i % STOCKS));
+            quoteMarket.publishQuote(stock, Prices.of(400 + i % 100));
+        });
+    }
+
+    interface Reader {
+        void read(Stock stock);
+    }
+
+    static List<Stock> stocks(BombayStockMarket market, String prefix, Reader reader) {
+        List<Stock> stocks = new ArrayList<>();
+        for(int s = 0; s < STOCKS; s++){
+            Stock stock = new Stock(prefix + s, "400USD");
+            stocks.add(stock);
+            market.registerStock(stock);
+            market.registerClient(new UserClient() {
+                @Override
+                public void display() {
+                }
+
+                @Override
+                public void update(Stock updated) {
+                    reader.read(updated);
+                }
+            }, stock);
+        }
+        return stocks;
+    }
+
+    static void run(String name, int ticks, Tick tick) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for(int i = 0; i < ticks; i++){
+            tick.run(i);
+        }
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long begin = System.nanoTime();
+        for(int i = 0; i < ticks; i++){
+            tick.run(i);
+        }
+        long elapsed = System.nanoTime() - begin;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        System.out.printf("%s,%.1f,%.2f%n", name, (double) elapsed / ticks, (double) allocated / ticks);
+    }
+}
@@ -0,0 +1,72 @@
+import example.stockMarketApp.BombayStockMarket;
+import example.stockMarketApp.QuoteBook;
+import example.stockMarketApp.Stock;
+import example.stockMarketApp.TickLog;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Journals ticks published through BombayStockMarket into a TickLog, then measures how fast a reader catches up
+// by replaying the whole log, how fast a reopened log recovers its end, and how fast it restores the latest
+// quotes. Prints one CSV row per phase. TickLogTest checks what the phases produce.
+//
+// Usage: TickLogBenchmark [ticks]
+public class TickLogBenchmark {
+    private static final int STOCKS = 1024;
+
+    static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path file = Files.createTempFile("ticks", ".log");
+        try {
+            run(file, ticks);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    static void run(Path file, int ticks) throws Exception {
+        System.out.println("phase,ticks,millis,ticksPerSecond");
+        BombayStockMarket market = new BombayStockMarket();
+        TickLog log = new TickLog(file);
+        market.enableTickLog(log);
+        List<Stock> stocks = new ArrayList<>();
+        for(int s = 0; s < STOCKS; s++){
+            Stock stock = new Stock("T" + s, "0USD");
+            stocks.add(stock);
+            market.registerStock(stock);
+        }
+
+        long begin = System.nanoTime();
+        for(int i = 0; i < ticks; i++){
+            market.publishQuote(stocks.get(i % STOCKS), i);
+        }
+        print("append", ticks, begin);
+
+        long[] total = new long[1];
+        begin = System.nanoTime();
+        log.replay(1, (sequence, symbolId, price, currency) -> total[0] += price);
+        print("replay", ticks, begin);
+        sink = total[0];
+        log.close();
+
+        begin = System.nanoTime();
+        TickLog reopened = new TickLog(file);
+        print("recover", ticks, begin);
+
+        QuoteBook restored = new QuoteBook();
+        begin = System.nanoTime();
+        reopened.restore(restored);
+        print("restore", ticks, begin);
+        sink = restored.price(stocks.get(0).getSymbolId());
+        reopened.close();
+    }
+
+    static void print(String phase, int ticks, long begin) {
+        double millis = (System.nanoTime() - begin) / 1e6;
+        System.out.printf("%s,%d,%.1f,%.0f%n", phase, ticks, millis, ticks / millis * 1000);
+    }
+}
@@ -10,4 +10,9 @@ public class AnallyticsClient implements UserClient{
     public void display() {
         System.out.println("Displaying stock price in AnallyticsClient: "+ this.stockMarket.getStock());
     }
+
+    @Override
+    public void update(Stock stock) {
+        System.out.println("Displaying stock price in AnallyticsClient: "+ stock);
+    }
 }
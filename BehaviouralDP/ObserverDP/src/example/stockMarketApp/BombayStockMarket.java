@@ -1,16 +1,178 @@
 package example.stockMarketApp;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+// Safe for many publishing threads and concurrent subscription changes. Each stock's subscribers are a
+// copy-on-write list: registering or unregistering copies the list, and notify iterates an immutable snapshot
+// without taking a lock, so churn never blocks publishing.
+//
+// By default notify calls every subscriber on the publishing thread. After enableAsyncDelivery each subscriber
+// gets its own bounded mailbox served by a shared executor instead, so a slow subscriber only delays itself.
+// A client's mailbox is retired, and its pending updates dropped, when its last subscription is removed.
+// A subscriber that throws is reported and counted, and the others still get the update.
+//
+// Prices can also be published without Strings: publishQuote stores a fixed-point price in the QuoteBook slot
+// of the stock's symbol id, where subscribers read it back with getQuotes().price(stock.getSymbolId()). The
+// QuoteBook is authoritative for published quotes; Stock.getPrice() shows the latest quote too, unless
+// setPrice has set price text since. Price text is only parsed into the QuoteBook by registerStock.
+// Every published quote is a tick with a sequence number: its TickLog sequence after enableTickLog, otherwise
+// one counted by the market. registerClientWithSnapshot sends a late joiner the stock's state at the latest
+// sequence N and then every tick after N, with nothing missed or sent twice in between (see SnapshotCursor).
 public class BombayStockMarket implements StockMarket{
-    Stock stock;
-    Map<Stock, List<UserClient>> subscribedUsers;
+    // Stands for a plain notify, which has no tick; a snapshot client gets it whenever it arrives.
+    private static final long UNSEQUENCED = Long.MAX_VALUE;
+
+    volatile Stock stock;
+    final QuoteBook quotes = new QuoteBook();
+    volatile TickLog tickLog;
+    private final AtomicLong ticks = new AtomicLong();
+    private final LongAdder failed = new LongAdder();
+    Map<Stock, CopyOnWriteArrayList<UserClient>> subscribedUsers;
+    Map<UserClient, Subscriber> subscribers;
+    volatile Executor deliveryExecutor;
+    int mailboxCapacity;
+    DeliveryPolicy deliveryPolicy;
+
+    // A subscribed client: how many times it is registered for each stock, and its mailbox once asynchronous
+    // delivery has sent it something. Dropped from subscribers when its last subscription goes.
+    static class Subscriber {
+        final UserClient client;
+        final Map<Stock, Integer> stocks = new ConcurrentHashMap<>();
+        private SubscriberMailbox mailbox;
+        private boolean retired;
+
+        Subscriber(UserClient client){
+            this.client = client;
+        }
+
+        boolean isSubscribed(Stock stock){
+            return stocks.containsKey(stock);
+        }
+
+        synchronized SubscriberMailbox mailbox(Executor executor, int capacity, DeliveryPolicy policy){
+            if(mailbox == null && !retired){
+                mailbox = new SubscriberMailbox(client, this::isSubscribed, executor, capacity, policy);
+            }
+            return mailbox;
+        }
+
+        synchronized SubscriberMailbox existingMailbox(){
+            return mailbox;
+        }
+
+        synchronized void retire(){
+            retired = true;
+            if(mailbox != null){
+                mailbox.retire();
+            }
+        }
+    }
+
+    // Takes a client's place in a stock's subscriber list when it joined with a snapshot. The joining thread
+    // holds the cursor until the snapshot is out; ticks that reach the cursor before then are queued behind it,
+    // and those the snapshot already covers are dropped. After that, a publisher that finds the cursor idle takes
+    // it over with a CAS and delivers, while the others queue behind it, as in SubscriberMailbox. Only the owner
+    // ever calls the client, so it gets every tick after the snapshot once, in order, never on two threads at
+    // once, and no lock is held while it runs.
+    final class SnapshotCursor implements UserClient {
+        final UserClient client;
+        final Stock stock;
+        private final Queue<Long> pending = new ConcurrentLinkedQueue<>();
+        // The owner plus the ticks queued for it. Starts at one: the joining thread owns the cursor until it has
+        // sent the snapshot.
+        private final AtomicInteger draining = new AtomicInteger(1);
+        private volatile long snapshotSequence = UNSEQUENCED;
+
+        SnapshotCursor(UserClient client, Stock stock){
+            this.client = client;
+            this.stock = stock;
+        }
+
+        @Override
+        public void display() {
+            client.display();
+        }
+
+        @Override
+        public void update(Stock updated) {
+            offer(UNSEQUENCED);
+        }
+
+        // A publisher that takes over an idle cursor delivers its own tick without queueing it, which keeps the
+        // synchronous path free of allocation, and then delivers whatever was queued meanwhile.
+        void offer(long sequence){
+            if(draining.compareAndSet(0, 1)){
+                if(sequence > snapshotSequence){
+                    deliver(client, stock, deliveryExecutor);
+                }
+                drain(1);
+                return;
+            }
+            pending.add(sequence);
+            if(draining.getAndIncrement() == 0){
+                drain(1);
+            }
+        }
+
+        // Called by the joining thread once the cursor is in the subscriber list and sequence is the latest tick.
+        void start(long sequence){
+            snapshotSequence = sequence;
+            deliver(client, stock, deliveryExecutor);
+            drain(1);
+        }
+
+        // deliver() never throws, so the cursor cannot be left marked as draining.
+        private void drain(int missed){
+            do {
+                Long sequence;
+                while((sequence = pending.poll()) != null){
+                    if(sequence > snapshotSequence){
+                        deliver(client, stock, deliveryExecutor);
+                    }
+                }
+                missed = draining.addAndGet(-missed);
+            } while(missed != 0);
+        }
+    }
 
     public BombayStockMarket(){
-        subscribedUsers = new HashMap<>();
+        subscribedUsers = new ConcurrentHashMap<>();
+        subscribers = new ConcurrentHashMap<>();
+    }
+
+    // Call before publishing starts. capacity is the mailbox size for BLOCK and DROP_OLDEST; CONFLATE mailboxes
+    // hold at most one update per stock.
+    public synchronized void enableAsyncDelivery(Executor executor, int capacity, DeliveryPolicy policy){
+        this.mailboxCapacity = capacity;
+        this.deliveryPolicy = policy;
+        this.deliveryExecutor = executor;
+    }
+
+    // Call before publishing starts. Restores the latest quote of every symbol already in the log.
+    public synchronized void enableTickLog(TickLog log){
+        log.restore(quotes);
+        this.tickLog = log;
+    }
+
+    public TickLog getTickLog(){
+        return tickLog;
+    }
+
+    // How far behind an asynchronous subscriber is, or null if it has not been sent anything yet.
+    public SubscriberLag getLag(UserClient client){
+        Subscriber subscriber = subscribers.get(client);
+        SubscriberMailbox mailbox = subscriber == null ? null : subscriber.existingMailbox();
+        return mailbox == null ? null : mailbox.lag();
     }
     public void setStock(Stock stock){
         this.stock = stock;
@@ -19,35 +181,170 @@ public class BombayStockMarket implements StockMarket{
     public Stock getStock(){
         return this.stock;
     }
+    public QuoteBook getQuotes(){
+        return quotes;
+    }
+
+    // Deliveries to a subscriber that threw.
+    public long getFailedCount(){
+        return failed.sum();
+    }
+
+    // Stores the price (see Prices) and notifies subscribers. Allocates nothing on the synchronous path.
+    public void publishQuote(Stock stock, long price){
+        // The quote is stored before the tick takes its sequence number, so a snapshot taken at sequence N
+        // already shows every tick up to N.
+        quotes.setPrice(stock.getSymbolId(), price);
+        stock.quoted(quotes);
+        fanOut(stock, nextSequence(stock.getSymbolId(), price));
+    }
+
+    // Also seeds the stock's quote from its price text: an amount and a three-letter currency code, e.g. "450USD"
+    // or "450.25 USD". Text in any other shape leaves the quote unset.
     @Override
     public void registerStock(Stock stock) {
-        subscribedUsers.putIfAbsent(stock, new ArrayList<>());
+        subscribedUsers.putIfAbsent(stock, new CopyOnWriteArrayList<>());
+        String price = stock.price == null ? "" : stock.price.trim();
+        int letters = 0;
+        while(letters < price.length() && Character.isLetter(price.charAt(price.length() - 1 - letters))){
+            letters++;
+        }
+        int amountEnd = price.length() - letters;
+        while(amountEnd > 0 && Character.isWhitespace(price.charAt(amountEnd - 1))){
+            amountEnd--;
+        }
+        if(letters != 3 || amountEnd == 0){
+            return;
+        }
+        try {
+            quotes.setQuote(stock.getSymbolId(), Prices.parse(price, 0, amountEnd), Prices.currency(price.substring(price.length() - 3)));
+        } catch (NumberFormatException e) {
+            // Not a number, e.g. "1.2.3USD": the stock keeps its text price and has no quote.
+        }
     }
 
     @Override
     public void unregisterStock(Stock stock) {
-
-        if(subscribedUsers.containsKey(stock))
-            subscribedUsers.remove(stock);
+        CopyOnWriteArrayList<UserClient> clients = subscribedUsers.remove(stock);
+        if(clients != null){
+            for(UserClient client : clients){
+                untrack(clientOf(client), stock);
+            }
+        }
     }
 
     @Override
     public void registerClient(UserClient client, Stock stock) {
-        subscribedUsers.putIfAbsent(stock, new ArrayList<>());
-        subscribedUsers.get(stock).add(client);
+        track(client, stock);
+        subscribedUsers.computeIfAbsent(stock, key -> new CopyOnWriteArrayList<>()).add(client);
+    }
+
+    // Subscribes the client and sends it the stock's current state, then every tick published after that
+    // state, each once and in order. Returns the sequence N the snapshot was taken at: the ticks the client is
+    // sent are exactly the ones after N, which a TickLog reader can replay from N + 1. Updates from a plain
+    // notify are always sent.
+    public long registerClientWithSnapshot(UserClient client, Stock stock) {
+        track(client, stock);
+        SnapshotCursor cursor = new SnapshotCursor(client, stock);
+        subscribedUsers.computeIfAbsent(stock, key -> new CopyOnWriteArrayList<>()).add(cursor);
+        // Every tick after this one finds the cursor in the list, and every tick up to it is in the quotes.
+        long sequence = lastSequence();
+        cursor.start(sequence);
+        return sequence;
     }
 
     @Override
     public void unregisterClient(UserClient client, Stock stock) {
-        if(subscribedUsers.containsKey(stock))
-            subscribedUsers.get(stock).remove(client);
+        CopyOnWriteArrayList<UserClient> clients = subscribedUsers.get(stock);
+        if(clients != null && (clients.remove(client) || clients.remove(cursorFor(clients, client))))
+            untrack(client, stock);
     }
 
     @Override
     public void notify(Stock stock) {
+        fanOut(stock, UNSEQUENCED);
+    }
+
+    private void fanOut(Stock stock, long sequence) {
         this.setStock(stock);
-        for(UserClient client: subscribedUsers.get(stock)){
-            client.display();
+        CopyOnWriteArrayList<UserClient> clients = subscribedUsers.get(stock);
+        if(clients == null)
+            return;
+        Executor executor = deliveryExecutor;
+        for(UserClient client: clients){
+            if(client instanceof SnapshotCursor){
+                ((SnapshotCursor) client).offer(sequence);
+            } else {
+                deliver(client, stock, executor);
+            }
+        }
+    }
+
+    private long nextSequence(int symbolId, long price) {
+        TickLog log = tickLog;
+        if(log == null){
+            return ticks.incrementAndGet();
+        }
+        try {
+            return log.append(symbolId, price, quotes.currency(symbolId));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private long lastSequence() {
+        TickLog log = tickLog;
+        return log == null ? ticks.get() : log.getLastSequence();
+    }
+
+    // A subscriber that throws, or whose mailbox cannot be scheduled, is reported and counted, so it cannot keep
+    // the update from the subscribers after it.
+    private void deliver(UserClient client, Stock stock, Executor executor) {
+        try {
+            if(executor == null){
+                client.update(stock);
+            } else {
+                Subscriber subscriber = subscribers.get(client);
+                // Null if the client unsubscribed after notify took its snapshot of the list.
+                SubscriberMailbox mailbox = subscriber == null ? null : subscriber.mailbox(executor, mailboxCapacity, deliveryPolicy);
+                if(mailbox != null){
+                    mailbox.offer(stock);
+                }
+            }
+        } catch (RuntimeException e) {
+            failed.increment();
+            e.printStackTrace();
+        }
+    }
+
+    private void track(UserClient client, Stock stock) {
+        subscribers.compute(client, (key, subscriber) -> {
+            Subscriber tracked = subscriber == null ? new Subscriber(key) : subscriber;
+            tracked.stocks.merge(stock, 1, Integer::sum);
+            return tracked;
+        });
+    }
+
+    private void untrack(UserClient client, Stock stock) {
+        subscribers.computeIfPresent(client, (key, subscriber) -> {
+            subscriber.stocks.computeIfPresent(stock, (subscribedStock, count) -> count == 1 ? null : count - 1);
+            if(!subscriber.stocks.isEmpty()){
+                return subscriber;
+            }
+            subscriber.retire();
+            return null;
+        });
+    }
+
+    private static UserClient clientOf(UserClient entry) {
+        return entry instanceof SnapshotCursor ? ((SnapshotCursor) entry).client : entry;
+    }
+
+    private static UserClient cursorFor(List<UserClient> clients, UserClient client) {
+        for(UserClient entry : clients){
+            if(entry instanceof SnapshotCursor && ((SnapshotCursor) entry).client.equals(client))
+                return entry;
         }
+        return null;
     }
 }
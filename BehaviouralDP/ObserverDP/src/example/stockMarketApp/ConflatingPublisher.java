@@ -0,0 +1,116 @@
+package example.stockMarketApp;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Sits in front of a StockMarket for bursty feeds. publish() only marks a stock as changed; every maxLatency a
+// background drain calls market.notify() once for each stock that changed since the last drain. Subscribers
+// therefore see the latest price of a stock at most once per drain cycle and at most maxLatency late, no matter
+// how many ticks arrived in between.
+//
+// A notify that throws is reported and counted, and the drain goes on with the other stocks and keeps running.
+// It is not retried: the market already contains failures of single subscribers, so what reaches here is a
+// failure of the market itself, and notifying the stock again could send its other subscribers a repeat.
+public class ConflatingPublisher implements AutoCloseable {
+    private final StockMarket market;
+    private final Map<Stock, Boolean> pending = new ConcurrentHashMap<>();
+    private final Queue<Stock> pendingOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder notified = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final ScheduledExecutorService drainer;
+    private volatile boolean closed;
+
+    public ConflatingPublisher(StockMarket market, long maxLatency, TimeUnit unit){
+        this.market = market;
+        this.drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "conflating-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.drainer.scheduleAtFixedRate(this::drain, maxLatency, maxLatency, unit);
+    }
+
+    // Called after stock.setPrice(...) instead of market.notify(stock).
+    public void publish(Stock stock){
+        if(closed){
+            throw new IllegalStateException("ConflatingPublisher is closed");
+        }
+        published.increment();
+        markPending(stock);
+    }
+
+    // Delivers everything pending now instead of at the next cycle, and waits until it has been delivered.
+    public void flush(){
+        if(drainer.isShutdown()){
+            return;
+        }
+        try {
+            drainer.submit(this::drain).get();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public long getPublishedCount(){
+        return published.sum();
+    }
+
+    // Calls made to market.notify, at most one per changed stock per cycle.
+    public long getNotifiedCount(){
+        return notified.sum();
+    }
+
+    // Calls to market.notify that threw.
+    public long getFailedCount(){
+        return failed.sum();
+    }
+
+    // Delivers what is still pending and stops the drain. Publishing afterwards throws IllegalStateException.
+    @Override
+    public synchronized void close(){
+        if(closed){
+            return;
+        }
+        closed = true;
+        flush();
+        drainer.shutdown();
+    }
+
+    private void drain(){
+        // Only the stocks pending when the cycle starts; a stock published again during the cycle waits for the
+        // next one.
+        for(int remaining = pendingCount.get(); remaining > 0; remaining--){
+            Stock stock = pendingOrder.poll();
+            if(stock == null){
+                break;
+            }
+            pendingCount.decrementAndGet();
+            // Removed before notify, so a publish that arrives while subscribers run is delivered next cycle.
+            pending.remove(stock);
+            try {
+                market.notify(stock);
+                notified.increment();
+            } catch (RuntimeException e) {
+                // A scheduled task that throws is never run again, so the failure is reported here.
+                failed.increment();
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void markPending(Stock stock){
+        if(pending.putIfAbsent(stock, Boolean.TRUE) == null){
+            pendingOrder.offer(stock);
+            pendingCount.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package example.stockMarketApp;
+
+// What an asynchronous subscriber's mailbox does with a new update when it is full.
+public enum DeliveryPolicy {
+    // The publisher waits for room, so a slow subscriber slows down publishing. It waits in the middle of
+    // notifying a stock's subscribers, so the ones after the full mailbox get the update only once there is
+    // room, or once the full mailbox's client unsubscribes and the mailbox is retired.
+    BLOCK,
+    // The oldest queued update is discarded to make room.
+    DROP_OLDEST,
+    // The mailbox holds at most one pending update per stock, and a new update for a stock that is already
+    // pending replaces it, so the subscriber only sees the latest price. Never full.
+    CONFLATE
+}
@@ -10,4 +10,9 @@ public class InvestorClient implements UserClient{
     public void display() {
         System.out.println("Displaying stock price in InvestorClient: "+ this.stockMarket.getStock());
     }
+
+    @Override
+    public void update(Stock stock) {
+        System.out.println("Displaying stock price in InvestorClient: "+ stock);
+    }
 }
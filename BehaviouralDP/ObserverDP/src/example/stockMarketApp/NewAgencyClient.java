@@ -10,4 +10,9 @@ public class NewAgencyClient implements UserClient{
     public void display() {
         System.out.println("Displaying stock price in NewAgencyClient: "+ this.stockMarket.getStock());
     }
+
+    @Override
+    public void update(Stock stock) {
+        System.out.println("Displaying stock price in NewAgencyClient: "+ stock);
+    }
 }
\ No newline at end of file
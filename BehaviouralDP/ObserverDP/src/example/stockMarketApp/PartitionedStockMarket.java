@@ -0,0 +1,241 @@
+package example.stockMarketApp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// A market engine that shards stocks over N partitions by symbol id. Each partition has one thread that owns
+// its stocks' subscriber lists outright, so they are plain HashMaps touched by no other thread. Every call for a
+// stock is queued to its partition and run there in order. Subscribers are called with the updated stock
+// through UserClient.update(stock); getStock() gives the stock being delivered when called from a subscriber,
+// and the one notified last otherwise.
+// Different stocks are notified in parallel on different partitions, and one stock's updates stay in order.
+// A subscriber or task that throws is reported and counted, and the partition goes on with the next one.
+// Once closed, the market rejects every call that would queue work.
+public class PartitionedStockMarket implements StockMarket, AutoCloseable {
+    private final Partition[] partitions;
+    private final QuoteBook quotes = new QuoteBook();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile Stock stock;
+
+    private static class Partition implements Runnable {
+        final BlockingQueue<Runnable> tasks;
+        final Map<Stock, List<UserClient>> subscribedUsers = new HashMap<>();
+        final Thread thread;
+        final LongAdder failed;
+        final AtomicBoolean closed;
+        volatile boolean running = true;
+        // The stock whose subscribers are being called. Only used on the partition thread.
+        Stock delivering;
+
+        Partition(int index, int queueCapacity, LongAdder failed, AtomicBoolean closed){
+            this.tasks = new ArrayBlockingQueue<>(queueCapacity);
+            this.failed = failed;
+            this.closed = closed;
+            this.thread = new Thread(this, "market-partition-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        // Waits for room when the partition is behind, which slows down its publishers.
+        void submit(Runnable task){
+            try {
+                enqueue(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queueing to " + thread.getName(), e);
+            }
+        }
+
+        // Rechecks while waiting for room, so a caller racing close() is rejected rather than left waiting on a
+        // thread that has stopped.
+        void enqueue(Runnable task) throws InterruptedException {
+            do {
+                if(closed.get()){
+                    throw new IllegalStateException(thread.getName() + " is closed");
+                }
+            } while(!tasks.offer(task, 10, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public void run(){
+            while(running){
+                try {
+                    tasks.take().run();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    // Nothing else runs this partition's stocks, so it must outlive a failing task.
+                    reportFailure(e);
+                }
+            }
+        }
+
+        void reportFailure(RuntimeException e){
+            failed.increment();
+            e.printStackTrace();
+        }
+    }
+
+    public PartitionedStockMarket(int partitionCount){
+        this(partitionCount, 1 << 16);
+    }
+
+    public PartitionedStockMarket(int partitionCount, int queueCapacity){
+        this.partitions = new Partition[partitionCount];
+        for(int i = 0; i < partitionCount; i++){
+            partitions[i] = new Partition(i, queueCapacity, failed, closed);
+            partitions[i].thread.start();
+        }
+    }
+
+    public int getPartitionCount(){
+        return partitions.length;
+    }
+
+    public QuoteBook getQuotes(){
+        return quotes;
+    }
+
+    // Subscriber calls and other queued tasks that threw.
+    public long getFailedCount(){
+        return failed.sum();
+    }
+
+    @Override
+    public void registerStock(Stock stock) {
+        Partition partition = partitionFor(stock);
+        partition.submit(() -> partition.subscribedUsers.putIfAbsent(stock, new ArrayList<>()));
+    }
+
+    @Override
+    public void unregisterStock(Stock stock) {
+        Partition partition = partitionFor(stock);
+        partition.submit(() -> partition.subscribedUsers.remove(stock));
+    }
+
+    @Override
+    public void registerClient(UserClient client, Stock stock) {
+        Partition partition = partitionFor(stock);
+        partition.submit(() -> partition.subscribedUsers.computeIfAbsent(stock, key -> new ArrayList<>()).add(client));
+    }
+
+    @Override
+    public void unregisterClient(UserClient client, Stock stock) {
+        Partition partition = partitionFor(stock);
+        partition.submit(() -> {
+            List<UserClient> clients = partition.subscribedUsers.get(stock);
+            if(clients != null)
+                clients.remove(client);
+        });
+    }
+
+    @Override
+    public void notify(Stock stock) {
+        Partition partition = partitionFor(stock);
+        partition.submit(() -> {
+            this.stock = stock;
+            List<UserClient> clients = partition.subscribedUsers.get(stock);
+            if(clients == null)
+                return;
+            partition.delivering = stock;
+            for(UserClient client: clients){
+                // One failing subscriber does not keep the update from the others.
+                try {
+                    client.update(stock);
+                } catch (RuntimeException e) {
+                    partition.reportFailure(e);
+                }
+            }
+            partition.delivering = null;
+        });
+    }
+
+    // Stores the price (see Prices) and notifies the stock's subscribers on its partition.
+    public void publishQuote(Stock stock, long price) {
+        quotes.setPrice(stock.getSymbolId(), price);
+        stock.quoted(quotes);
+        notify(stock);
+    }
+
+    // A subscriber calling this from update() gets the stock it is being sent, as with a single-threaded market.
+    // Anyone else gets the stock notified last on any partition, or null before the first notify.
+    @Override
+    public Stock getStock() {
+        Thread current = Thread.currentThread();
+        for(Partition partition : partitions){
+            if(partition.thread == current && partition.delivering != null){
+                return partition.delivering;
+            }
+        }
+        return stock;
+    }
+
+    // Waits until every partition has run everything queued before this call. Returns at once after close().
+    public void awaitQuiescence() throws InterruptedException {
+        if(closed.get()){
+            return;
+        }
+        try {
+            quiesce();
+        } catch (IllegalStateException e) {
+            // Closed while queueing: the partitions are being stopped, so there is nothing more to wait for.
+        }
+    }
+
+    // Runs what is already queued, then stops the partition threads. Later calls do nothing. If the caller is
+    // interrupted while waiting, the partitions are stopped without finishing their queues and the interrupt is
+    // kept.
+    @Override
+    public void close() {
+        if(!closed.compareAndSet(false, true)){
+            return;
+        }
+        try {
+            quiesce();
+            for(Partition partition : partitions){
+                partition.tasks.put(() -> partition.running = false);
+            }
+            for(Partition partition : partitions){
+                partition.thread.join();
+            }
+        } catch (InterruptedException e) {
+            for(Partition partition : partitions){
+                partition.running = false;
+                partition.thread.interrupt();
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Queues a latch behind everything already queued on each partition and waits for all of them. Once closed,
+    // a partition that stops before reaching the latch ends the wait.
+    private void quiesce() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(partitions.length);
+        for(Partition partition : partitions){
+            if(closed.get()){
+                partition.tasks.put(done::countDown);
+            } else {
+                partition.enqueue(done::countDown);
+            }
+        }
+        while(!done.await(10, TimeUnit.MILLISECONDS)){
+            for(Partition partition : partitions){
+                if(!partition.thread.isAlive()){
+                    return;
+                }
+            }
+        }
+    }
+
+    private Partition partitionFor(Stock stock) {
+        return partitions[stock.getSymbolId() % partitions.length];
+    }
+}
@@ -0,0 +1,82 @@
+package example.stockMarketApp;
+
+// Fixed-point prices and packed currency codes. A price is a long holding units of 1/SCALE, so "450.25" is
+// 4_502_500. A three-letter currency code is packed into an int, one ASCII letter per byte, so "USD" needs no
+// String. Neither allocates except when converting back to text.
+public final class Prices {
+    public static final long SCALE = 10_000;
+    public static final long NO_PRICE = Long.MIN_VALUE;
+
+    private Prices() {
+    }
+
+    public static long of(long units) {
+        return units * SCALE;
+    }
+
+    // Parses a decimal such as "450" or "450.25" from text[from, to). Digits beyond the fourth decimal place are
+    // truncated.
+    public static long parse(CharSequence text, int from, int to) {
+        if(from >= to){
+            throw new NumberFormatException("Empty price");
+        }
+        boolean negative = text.charAt(from) == '-';
+        boolean inFraction = false;
+        long units = 0;
+        long fraction = 0;
+        long fractionScale = SCALE;
+        boolean anyDigit = false;
+        for(int i = negative ? from + 1 : from; i < to; i++){
+            char c = text.charAt(i);
+            if(c == '.' && !inFraction){
+                inFraction = true;
+                continue;
+            }
+            if(c < '0' || c > '9'){
+                throw new NumberFormatException("Bad price " + text.subSequence(from, to));
+            }
+            anyDigit = true;
+            if(!inFraction){
+                if(units > (Long.MAX_VALUE / SCALE - 9) / 10){
+                    throw new NumberFormatException("Price too large " + text.subSequence(from, to));
+                }
+                units = units * 10 + (c - '0');
+            } else if(fractionScale > 1){
+                fractionScale /= 10;
+                fraction += (c - '0') * fractionScale;
+            }
+        }
+        if(!anyDigit){
+            throw new NumberFormatException("Bad price " + text.subSequence(from, to));
+        }
+        long price = units * SCALE + fraction;
+        return negative ? -price : price;
+    }
+
+    public static String toString(long price) {
+        if(price == NO_PRICE){
+            return "-";
+        }
+        String sign = price < 0 ? "-" : "";
+        long abs = Math.abs(price);
+        long units = abs / SCALE;
+        long fraction = abs % SCALE;
+        if(fraction == 0){
+            return sign + units;
+        }
+        String digits = String.valueOf(SCALE + fraction).substring(1).replaceAll("0+$", "");
+        return sign + units + "." + digits;
+    }
+
+    public static int currency(CharSequence code) {
+        if(code.length() != 3){
+            throw new IllegalArgumentException("Currency code must have three letters: " + code);
+        }
+        // One byte per letter; masking keeps a char above 0xFF from spilling into its neighbours.
+        return ((code.charAt(0) & 0xFF) << 16) | ((code.charAt(1) & 0xFF) << 8) | (code.charAt(2) & 0xFF);
+    }
+
+    public static String currencyCode(int currency) {
+        return "" + (char) ((currency >> 16) & 0xFF) + (char) ((currency >> 8) & 0xFF) + (char) (currency & 0xFF);
+    }
+}
@@ -0,0 +1,111 @@
+package example.stockMarketApp;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Latest price and currency per symbol id, in dense primitive arrays, so updating or reading a quote is an
+// array write or read with no allocation. Slots live in fixed-size chunks allocated on demand; growing only
+// copies the chunk directory, so a concurrent update is never lost.
+//
+// price and currency are each read atomically. A price and currency that belong together are read with quote:
+// setQuote changes both under a per-slot version that is odd while the write is in progress, and quote retries
+// until it has read both within one even version. setPrice only changes the price, which a single write covers.
+public class QuoteBook {
+    private static final int SLOTS_PER_CHUNK = 1024;
+
+    private static class Chunk {
+        final AtomicLongArray prices = new AtomicLongArray(SLOTS_PER_CHUNK);
+        final AtomicIntegerArray currencies = new AtomicIntegerArray(SLOTS_PER_CHUNK);
+        final AtomicLongArray versions = new AtomicLongArray(SLOTS_PER_CHUNK);
+
+        Chunk(){
+            for(int i = 0; i < SLOTS_PER_CHUNK; i++){
+                prices.set(i, Prices.NO_PRICE);
+            }
+        }
+    }
+
+    private volatile Chunk[] chunks = new Chunk[0];
+
+    public void setQuote(int symbolId, long price, int currency) {
+        Chunk chunk = chunkFor(symbolId);
+        int slot = symbolId % SLOTS_PER_CHUNK;
+        long version;
+        // Taking the slot by making its version odd also keeps two setQuote calls from interleaving.
+        while((version = chunk.versions.get(slot)) % 2 != 0 || !chunk.versions.compareAndSet(slot, version, version + 1)){
+            Thread.onSpinWait();
+        }
+        chunk.currencies.set(slot, currency);
+        chunk.prices.set(slot, price);
+        chunk.versions.set(slot, version + 2);
+    }
+
+    public void setPrice(int symbolId, long price) {
+        chunkFor(symbolId).prices.set(symbolId % SLOTS_PER_CHUNK, price);
+    }
+
+    // Prices.NO_PRICE if the symbol has no quote yet.
+    public long price(int symbolId) {
+        Chunk chunk = existingChunk(symbolId);
+        return chunk == null ? Prices.NO_PRICE : chunk.prices.get(symbolId % SLOTS_PER_CHUNK);
+    }
+
+    // A packed code (see Prices.currency), or 0 if the symbol has no currency, e.g. no quote yet or only prices
+    // published for a stock whose price text gave none.
+    public int currency(int symbolId) {
+        Chunk chunk = existingChunk(symbolId);
+        return chunk == null ? 0 : chunk.currencies.get(symbolId % SLOTS_PER_CHUNK);
+    }
+
+    // Price and currency as text, e.g. "450.25USD", taken from one consistent state; just the price if there is no
+    // currency, and null if there is no quote.
+    public String quote(int symbolId) {
+        Chunk chunk = existingChunk(symbolId);
+        if(chunk == null){
+            return null;
+        }
+        int slot = symbolId % SLOTS_PER_CHUNK;
+        while(true){
+            long version = chunk.versions.get(slot);
+            if(version % 2 != 0){
+                Thread.onSpinWait();
+                continue;
+            }
+            long price = chunk.prices.get(slot);
+            int currency = chunk.currencies.get(slot);
+            if(chunk.versions.get(slot) == version){
+                if(price == Prices.NO_PRICE){
+                    return null;
+                }
+                return currency == 0 ? Prices.toString(price) : Prices.toString(price) + Prices.currencyCode(currency);
+            }
+        }
+    }
+
+    private Chunk existingChunk(int symbolId) {
+        Chunk[] current = chunks;
+        int index = symbolId / SLOTS_PER_CHUNK;
+        return index < current.length ? current[index] : null;
+    }
+
+    private Chunk chunkFor(int symbolId) {
+        if(symbolId < 0){
+            throw new IllegalArgumentException("Bad symbol id " + symbolId);
+        }
+        Chunk chunk = existingChunk(symbolId);
+        return chunk != null ? chunk : allocate(symbolId / SLOTS_PER_CHUNK);
+    }
+
+    private synchronized Chunk allocate(int index) {
+        Chunk[] current = chunks;
+        if(index >= current.length){
+            current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+        }
+        if(current[index] == null){
+            current[index] = new Chunk();
+        }
+        chunks = current;
+        return current[index];
+    }
+}
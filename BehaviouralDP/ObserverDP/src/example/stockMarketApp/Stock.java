@@ -3,20 +3,51 @@ package example.stockMarketApp;
 public class Stock {
     String name;
     String price;
+    // Index of this stock's quote in a market's QuoteBook; see BombayStockMarket.publishQuote.
+    final int symbolId;
+    // The QuoteBook of the market that last published a quote for this stock, or null once setPrice has set the
+    // price text since. Whichever was set last is the stock's price.
+    private volatile QuoteBook quotedIn;
     public Stock(String name, String price){
         this.name = name;
         this.price = price;
+        this.symbolId = SymbolTable.getInstance().intern(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSymbolId() {
+        return symbolId;
+    }
+
+    // The latest published quote, e.g. "450.25USD", if one was published after the last setPrice; otherwise the
+    // price text.
+    public String getPrice() {
+        QuoteBook quotes = quotedIn;
+        String quote = quotes == null ? null : quotes.quote(symbolId);
+        return quote != null ? quote : price;
     }
 
     public void setPrice(String price) {
         this.price = price;
+        this.quotedIn = null;
+    }
+
+    // Called by markets when they store a quote for this stock. Skips the volatile write when nothing changes,
+    // which is every tick after the first.
+    void quoted(QuoteBook quotes) {
+        if(quotedIn != quotes){
+            quotedIn = quotes;
+        }
     }
 
     @Override
     public String toString() {
         return "Stock{" +
                 "name='" + name + '\'' +
-                ", price='" + price + '\'' +
+                ", price='" + getPrice() + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,53 @@
+package example.stockMarketApp;
+
+// A snapshot of how far an asynchronous subscriber is behind the market.
+public class SubscriberLag {
+    private final int pending;
+    private final long delivered;
+    private final long dropped;
+    private final long conflated;
+    private final long maxDelayNanos;
+
+    SubscriberLag(int pending, long delivered, long dropped, long conflated, long maxDelayNanos){
+        this.pending = pending;
+        this.delivered = delivered;
+        this.dropped = dropped;
+        this.conflated = conflated;
+        this.maxDelayNanos = maxDelayNanos;
+    }
+
+    // Updates queued but not yet delivered.
+    public int getPending() {
+        return pending;
+    }
+
+    public long getDelivered() {
+        return delivered;
+    }
+
+    // Updates discarded by DROP_OLDEST.
+    public long getDropped() {
+        return dropped;
+    }
+
+    // Updates merged into an already pending update by CONFLATE.
+    public long getConflated() {
+        return conflated;
+    }
+
+    // The longest time an update has waited in the mailbox before delivery.
+    public long getMaxDelayNanos() {
+        return maxDelayNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriberLag{" +
+                "pending=" + pending +
+                ", delivered=" + delivered +
+                ", dropped=" + dropped +
+                ", conflated=" + conflated +
+                ", maxDelayNanos=" + maxDelayNanos +
+                '}';
+    }
+}
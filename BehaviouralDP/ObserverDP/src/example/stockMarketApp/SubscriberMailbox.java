@@ -0,0 +1,186 @@
+package example.stockMarketApp;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+// Queues updates for one subscriber and delivers them on a shared executor, in order and never on two threads
+// at once. Publishers only enqueue and, if the mailbox is idle, schedule it; the scheduled task delivers a batch
+// and reschedules itself while updates remain, so one slow subscriber holds at most one executor thread.
+//
+// Updates for a stock the client has unsubscribed from since they were queued are skipped. Once the client has
+// no subscriptions left the market retires the mailbox: pending updates are discarded and new ones ignored.
+class SubscriberMailbox implements Runnable {
+    private static final int BATCH = 64;
+
+    private static class Update {
+        final Stock stock;
+        final long enqueuedAt;
+
+        Update(Stock stock, long enqueuedAt){
+            this.stock = stock;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final UserClient client;
+    private final Predicate<Stock> subscribed;
+    private final Executor executor;
+    private final DeliveryPolicy policy;
+    // BLOCK and DROP_OLDEST.
+    private final BlockingQueue<Update> queue;
+    // CONFLATE: when each pending stock was first queued, and the order they were queued in.
+    private final Map<Stock, Long> pendingSince;
+    private final Queue<Stock> pendingOrder;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    // Only written by the delivering task, which never runs twice at once.
+    private volatile long delivered;
+    private volatile long maxDelayNanos;
+    private volatile boolean retired;
+
+    SubscriberMailbox(UserClient client, Predicate<Stock> subscribed, Executor executor, int capacity, DeliveryPolicy policy){
+        this.client = client;
+        this.subscribed = subscribed;
+        this.executor = executor;
+        this.policy = policy;
+        this.queue = policy == DeliveryPolicy.CONFLATE ? null : new ArrayBlockingQueue<>(capacity);
+        this.pendingSince = policy == DeliveryPolicy.CONFLATE ? new ConcurrentHashMap<>() : null;
+        this.pendingOrder = policy == DeliveryPolicy.CONFLATE ? new ConcurrentLinkedQueue<>() : null;
+    }
+
+    void offer(Stock stock) {
+        if(retired){
+            return;
+        }
+        long now = System.nanoTime();
+        switch (policy) {
+            case BLOCK:
+                // Parks the publisher while the mailbox is full; see DeliveryPolicy.BLOCK.
+                try {
+                    queue.put(new Update(stock, now));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.increment();
+                    return;
+                }
+                break;
+            case DROP_OLDEST:
+                Update update = new Update(stock, now);
+                while(!queue.offer(update)){
+                    if(queue.poll() != null){
+                        dropped.increment();
+                    }
+                }
+                break;
+            case CONFLATE:
+                if(pendingSince.putIfAbsent(stock, now) == null){
+                    pendingOrder.offer(stock);
+                } else {
+                    conflated.increment();
+                }
+                break;
+        }
+        schedule();
+    }
+
+    @Override
+    public void run() {
+        try {
+            int count = 0;
+            while(count < BATCH && deliverOne()){
+                count++;
+            }
+        } finally {
+            scheduled.set(false);
+            // An update queued after the last poll found the flag still set and did not schedule.
+            if(hasPending()){
+                try {
+                    schedule();
+                } catch (RejectedExecutionException e) {
+                    // The executor is shutting down; the rest stays pending.
+                }
+            }
+        }
+    }
+
+    // Discards what is pending and ignores later offers. A publisher parked on a full BLOCK mailbox gets room
+    // and moves on.
+    void retire() {
+        retired = true;
+        if(policy == DeliveryPolicy.CONFLATE){
+            pendingOrder.clear();
+            pendingSince.clear();
+        } else {
+            queue.clear();
+        }
+    }
+
+    SubscriberLag lag() {
+        int pending = policy == DeliveryPolicy.CONFLATE ? pendingSince.size() : queue.size();
+        return new SubscriberLag(pending, delivered, dropped.sum(), conflated.sum(), maxDelayNanos);
+    }
+
+    private boolean deliverOne() {
+        if(retired){
+            retire();
+            return false;
+        }
+        Stock stock;
+        long enqueuedAt;
+        if(policy == DeliveryPolicy.CONFLATE){
+            stock = pendingOrder.poll();
+            if(stock == null){
+                return false;
+            }
+            // Removed before delivery, so an update arriving while the client runs is queued again. Gone already
+            // if retire() cleared the mailbox since the poll, and then there is nothing to deliver.
+            Long since = pendingSince.remove(stock);
+            if(since == null){
+                return true;
+            }
+            enqueuedAt = since;
+        } else {
+            Update update = queue.poll();
+            if(update == null){
+                return false;
+            }
+            stock = update.stock;
+            enqueuedAt = update.enqueuedAt;
+        }
+        if(!subscribed.test(stock)){
+            return true;
+        }
+        long delay = System.nanoTime() - enqueuedAt;
+        if(delay > maxDelayNanos){
+            maxDelayNanos = delay;
+        }
+        client.update(stock);
+        delivered++;
+        return true;
+    }
+
+    private void schedule() {
+        if(scheduled.compareAndSet(false, true)){
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                throw e;
+            }
+        }
+    }
+
+    private boolean hasPending() {
+        return policy == DeliveryPolicy.CONFLATE ? !pendingOrder.isEmpty() : !queue.isEmpty();
+    }
+}
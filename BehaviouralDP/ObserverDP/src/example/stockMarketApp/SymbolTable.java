@@ -0,0 +1,49 @@
+package example.stockMarketApp;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interns stock symbols to small dense ints, so per-stock state can live in arrays indexed by symbol id
+// instead of in maps keyed by Stock. Ids are shared by every market in the process and are never reused.
+public class SymbolTable {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[64];
+    private int size;
+
+    private static class Holder {
+        static final SymbolTable INSTANCE = new SymbolTable();
+    }
+
+    public static SymbolTable getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public int intern(String symbol) {
+        Integer id = ids.get(symbol);
+        if(id != null){
+            return id;
+        }
+        synchronized(this) {
+            return ids.computeIfAbsent(symbol, name -> {
+                if(size == names.length){
+                    names = Arrays.copyOf(names, size * 2);
+                }
+                names[size] = name;
+                return size++;
+            });
+        }
+    }
+
+    public String name(int symbolId) {
+        String[] current = names;
+        if(symbolId < 0 || symbolId >= current.length || current[symbolId] == null){
+            throw new IllegalArgumentException("Unknown symbol id " + symbolId);
+        }
+        return current[symbolId];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,164 @@
+package example.stockMarketApp;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Append-only, memory-mapped journal of price ticks. Each tick is a fixed 24-byte record
+// (sequence:long, symbolId:int, currency:int, price:long) at offset (sequence - 1) * 24, so sequence numbers
+// start at 1 and have no gaps. The file is mapped in fixed-size regions as it grows. Appends from different
+// threads only share an atomic counter. The sequence field is written last with release semantics, and a
+// reader stops at the first record whose sequence is not yet there, so it never sees a half-written tick.
+public class TickLog implements AutoCloseable {
+    private static final int RECORD_SIZE = 24;
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    public interface TickConsumer {
+        void accept(long sequence, int symbolId, long price, int currency);
+    }
+
+    private final FileChannel channel;
+    private final int ticksPerRegion;
+    private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+    private final AtomicLong nextSequence;
+
+    public TickLog(Path file) throws IOException {
+        this(file, 1 << 20);
+    }
+
+    public TickLog(Path file, int ticksPerRegion) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.ticksPerRegion = ticksPerRegion;
+        long existing = channel.size() / ((long) ticksPerRegion * RECORD_SIZE);
+        for(long r = 0; r < existing; r++){
+            region(r);
+        }
+        // Recovery: the log ends at the first slot without its sequence number.
+        long sequence = 1;
+        while(sequenceAt(sequence) == sequence){
+            sequence++;
+        }
+        wipeFrom((sequence - 1) * RECORD_SIZE);
+        this.nextSequence = new AtomicLong(sequence);
+    }
+
+    // Appends a tick and returns its sequence number.
+    public long append(int symbolId, long price, int currency) throws IOException {
+        long sequence = nextSequence.getAndIncrement();
+        long offset = (sequence - 1) * RECORD_SIZE;
+        MappedByteBuffer region = region(offset / ((long) ticksPerRegion * RECORD_SIZE));
+        int position = (int) (offset % ((long) ticksPerRegion * RECORD_SIZE));
+        region.putInt(position + 8, symbolId);
+        region.putInt(position + 12, currency);
+        region.putLong(position + 16, price);
+        LONG.setRelease(region, position, sequence);
+        return sequence;
+    }
+
+    // The sequence number of the newest tick, or 0 if the log is empty.
+    public long getLastSequence() {
+        return nextSequence.get() - 1;
+    }
+
+    // Passes every tick from fromSequence onwards, in order, and returns the sequence after the last one passed.
+    // Stops early at a tick that is still being written.
+    public long replay(long fromSequence, TickConsumer consumer) {
+        long sequence = Math.max(1, fromSequence);
+        long end = nextSequence.get();
+        long regionBytes = (long) ticksPerRegion * RECORD_SIZE;
+        MappedByteBuffer[] mapped = regions;
+        while(sequence < end){
+            long offset = (sequence - 1) * RECORD_SIZE;
+            int index = (int) (offset / regionBytes);
+            if(index >= mapped.length){
+                mapped = regions;
+                if(index >= mapped.length){
+                    break;
+                }
+            }
+            MappedByteBuffer region = mapped[index];
+            int position = (int) (offset % regionBytes);
+            if((long) LONG.getAcquire(region, position) != sequence){
+                break;
+            }
+            consumer.accept(sequence, region.getInt(position + 8), region.getLong(position + 16), region.getInt(position + 12));
+            sequence++;
+        }
+        return sequence;
+    }
+
+    // Rebuilds the latest quote of every symbol in the log, e.g. after a restart.
+    public void restore(QuoteBook quotes) {
+        replay(1, (sequence, symbolId, price, currency) -> quotes.setQuote(symbolId, price, currency));
+    }
+
+    public void flush() {
+        for(MappedByteBuffer region : regions){
+            region.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    // Zeroes everything after the recovered end, so ticks that outlived a torn one cannot come back into sequence
+    // once appends fill the gap. Only words that are not zero yet are written, which leaves the unused part of a
+    // preallocated region untouched.
+    private void wipeFrom(long offset) {
+        long regionBytes = (long) ticksPerRegion * RECORD_SIZE;
+        MappedByteBuffer[] mapped = regions;
+        for(int index = (int) (offset / regionBytes); index < mapped.length; index++){
+            MappedByteBuffer region = mapped[index];
+            boolean wiped = false;
+            for(int position = index == offset / regionBytes ? (int) (offset % regionBytes) : 0; position < regionBytes; position += 8){
+                if(region.getLong(position) != 0){
+                    region.putLong(position, 0);
+                    wiped = true;
+                }
+            }
+            if(wiped){
+                region.force();
+            }
+        }
+    }
+
+    private long sequenceAt(long sequence) throws IOException {
+        long offset = (sequence - 1) * RECORD_SIZE;
+        long regionBytes = (long) ticksPerRegion * RECORD_SIZE;
+        MappedByteBuffer[] mapped = regions;
+        int index = (int) (offset / regionBytes);
+        if(index >= mapped.length){
+            return 0;
+        }
+        return (long) LONG.getAcquire(mapped[index], (int) (offset % regionBytes));
+    }
+
+    private MappedByteBuffer region(long index) throws IOException {
+        MappedByteBuffer[] mapped = regions;
+        if(index < mapped.length){
+            return mapped[(int) index];
+        }
+        synchronized(this) {
+            mapped = regions;
+            if(index >= mapped.length){
+                long regionBytes = (long) ticksPerRegion * RECORD_SIZE;
+                MappedByteBuffer[] grown = Arrays.copyOf(mapped, (int) index + 1);
+                for(int r = mapped.length; r <= index; r++){
+                    grown[r] = channel.map(FileChannel.MapMode.READ_WRITE, r * regionBytes, regionBytes);
+                }
+                regions = mapped = grown;
+            }
+            return mapped[(int) index];
+        }
+    }
+}
@@ -2,4 +2,11 @@ package example.stockMarketApp;
 
 public interface UserClient {
     public void display();
+
+    // Called by the market with the stock that changed. Clients that read the stock back through
+    // StockMarket.getStock() can see a different stock once notifications are delivered concurrently, so
+    // clients should override this and use the stock passed in.
+    public default void update(Stock stock){
+        display();
+    }
 }
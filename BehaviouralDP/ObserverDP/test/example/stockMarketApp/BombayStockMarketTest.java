@@ -0,0 +1,377 @@
+package example.stockMarketApp;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class BombayStockMarketTest {
+
+    @TempDir
+    Path directory;
+
+    // Remembers every stock it is sent, in order.
+    static class RecordingClient implements UserClient {
+        final List<Stock> updates = new ArrayList<>();
+
+        @Override
+        public void display() {
+        }
+
+        @Override
+        public synchronized void update(Stock stock) {
+            updates.add(stock);
+        }
+
+        synchronized List<Stock> updates() {
+            return new ArrayList<>(updates);
+        }
+    }
+
+    // Runs submitted tasks only when asked, so a test decides when mailboxes deliver.
+    static class ManualExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while((task = poll()) != null){
+                task.run();
+            }
+        }
+
+        private synchronized Runnable poll() {
+            return tasks.poll();
+        }
+    }
+
+    @Test
+    public void testQueuedUpdatesForARemovedSubscriptionAreSkipped() {
+        BombayStockMarket market = new BombayStockMarket();
+        ManualExecutor executor = new ManualExecutor();
+        market.enableAsyncDelivery(executor, 16, DeliveryPolicy.BLOCK);
+        Stock tcs = new Stock("MBX-TCS", "100USD");
+        Stock infy = new Stock("MBX-INFY", "200USD");
+        RecordingClient client = new RecordingClient();
+        market.registerClient(client, tcs);
+        market.registerClient(client, infy);
+
+        market.notify(tcs);
+        market.notify(infy);
+        market.unregisterClient(client, tcs);
+        executor.runAll();
+        Assertions.assertEquals(List.of(infy), client.updates());
+        Assertions.assertNotNull(market.getLag(client));
+    }
+
+    @Test
+    public void testMailboxIsRetiredWithTheLastSubscription() {
+        BombayStockMarket market = new BombayStockMarket();
+        ManualExecutor executor = new ManualExecutor();
+        market.enableAsyncDelivery(executor, 16, DeliveryPolicy.DROP_OLDEST);
+        Stock tcs = new Stock("MBX-TCS", "100USD");
+        RecordingClient client = new RecordingClient();
+        market.registerClient(client, tcs);
+        market.registerClient(client, tcs);
+
+        market.notify(tcs);
+        market.unregisterClient(client, tcs);
+        Assertions.assertNotNull(market.getLag(client));
+        market.unregisterClient(client, tcs);
+        Assertions.assertNull(market.getLag(client));
+        Assertions.assertTrue(market.subscribers.isEmpty());
+
+        market.notify(tcs);
+        executor.runAll();
+        Assertions.assertEquals(List.of(), client.updates());
+    }
+
+    @Test
+    public void testSubscriptionChurnLeavesNoMailboxes() {
+        BombayStockMarket market = new BombayStockMarket();
+        ManualExecutor executor = new ManualExecutor();
+        market.enableAsyncDelivery(executor, 4, DeliveryPolicy.CONFLATE);
+        Stock tcs = new Stock("MBX-TCS", "100USD");
+        Stock infy = new Stock("MBX-INFY", "200USD");
+        market.registerStock(infy);
+        for(int i = 0; i < 1_000; i++){
+            RecordingClient client = new RecordingClient();
+            market.registerClient(client, tcs);
+            market.registerClient(client, infy);
+            market.notify(tcs);
+            market.unregisterClient(client, tcs);
+            market.unregisterStock(infy);
+            market.registerStock(infy);
+        }
+        executor.runAll();
+        Assertions.assertTrue(market.subscribers.isEmpty());
+    }
+
+    // Remembers the price it saw on each update.
+    static class PriceClient implements UserClient {
+        final QuoteBook quotes;
+        final List<Long> prices = new ArrayList<>();
+
+        PriceClient(QuoteBook quotes){
+            this.quotes = quotes;
+        }
+
+        @Override
+        public void display() {
+        }
+
+        @Override
+        public synchronized void update(Stock stock) {
+            prices.add(quotes.price(stock.getSymbolId()));
+        }
+
+        synchronized List<Long> prices() {
+            return new ArrayList<>(prices);
+        }
+    }
+
+    @Test
+    public void testSnapshotCoversEarlierTicksAndLaterOnesArriveOnce() throws IOException {
+        BombayStockMarket market = new BombayStockMarket();
+        try(TickLog log = new TickLog(directory.resolve("ticks.log"))){
+            market.enableTickLog(log);
+            Stock tcs = new Stock("SNAP-TCS", "0USD");
+            Stock infy = new Stock("SNAP-INFY", "0USD");
+            market.publishQuote(tcs, 1);
+            market.publishQuote(infy, 10);
+            market.publishQuote(tcs, 2);
+
+            PriceClient client = new PriceClient(market.getQuotes());
+            long sequence = market.registerClientWithSnapshot(client, tcs);
+            Assertions.assertEquals(3, sequence);
+            market.publishQuote(tcs, 3);
+            market.publishQuote(infy, 11);
+            market.publishQuote(tcs, 4);
+            Assertions.assertEquals(List.of(2L, 3L, 4L), client.prices());
+
+            market.unregisterClient(client, tcs);
+            market.publishQuote(tcs, 5);
+            Assertions.assertEquals(3, client.prices().size());
+            Assertions.assertTrue(market.subscribers.isEmpty());
+        }
+    }
+
+    // One publisher sends prices 1, 2, 3, ... while clients join. Each must get one update for its snapshot and
+    // one for every tick after the sequence it joined at, never going back, and end on the last price.
+    @Test
+    public void testLateJoinersMissNothingAndSeeNothingTwice() throws Exception {
+        BombayStockMarket market = new BombayStockMarket();
+        try(TickLog log = new TickLog(directory.resolve("ticks.log"))){
+            market.enableTickLog(log);
+            Stock stock = new Stock("SNAP-LATE", "0USD");
+            market.registerStock(stock);
+            int joiners = 100;
+            List<PriceClient> clients = new ArrayList<>();
+            long[] joinedAt = new long[joiners];
+            Thread publisher = new Thread(() -> {
+                for(long price = 1; price <= 200_000; price++){
+                    market.publishQuote(stock, price);
+                }
+            });
+            publisher.start();
+            for(int j = 0; j < joiners; j++){
+                PriceClient client = new PriceClient(market.getQuotes());
+                clients.add(client);
+                joinedAt[j] = market.registerClientWithSnapshot(client, stock);
+                Thread.yield();
+            }
+            publisher.join();
+
+            for(int j = 0; j < joiners; j++){
+                List<Long> prices = clients.get(j).prices();
+                Assertions.assertEquals(1 + log.getLastSequence() - joinedAt[j], prices.size());
+                for(int i = 1; i < prices.size(); i++){
+                    Assertions.assertTrue(prices.get(i) >= prices.get(i - 1), "went from " + prices.get(i - 1) + " to " + prices.get(i));
+                }
+                Assertions.assertEquals(200_000L, prices.get(prices.size() - 1));
+            }
+        }
+    }
+
+    // Publishing used to hold a lock shared by a stripe of stocks while subscribers ran.
+    @Test
+    public void testSlowSubscriberDoesNotHoldUpOtherPublishers() throws Exception {
+        BombayStockMarket market = new BombayStockMarket();
+        Stock stock = new Stock("SNAP-SLOW", "0USD");
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        UserClient slow = new UserClient() {
+            private boolean first = true;
+
+            @Override
+            public void display() {
+            }
+
+            @Override
+            public void update(Stock updated) {
+                boolean wait;
+                synchronized(this) {
+                    wait = first;
+                    first = false;
+                }
+                if(wait){
+                    entered.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        market.registerClient(slow, stock);
+        Thread blocked = new Thread(() -> market.publishQuote(stock, 1));
+        blocked.start();
+        entered.await();
+
+        PriceClient joiner = new PriceClient(market.getQuotes());
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            market.publishQuote(stock, 2);
+            market.registerClientWithSnapshot(joiner, stock);
+        });
+        release.countDown();
+        blocked.join();
+        Assertions.assertEquals(List.of(2L), joiner.prices());
+    }
+
+    // Several publishers on one stock: the snapshot client must never be called on two threads at once, and
+    // must get one update for every tick after its snapshot.
+    @Test
+    public void testSnapshotClientIsNeverCalledConcurrently() throws Exception {
+        BombayStockMarket market = new BombayStockMarket();
+        Stock stock = new Stock("SNAP-BUSY", "0USD");
+        AtomicInteger inUpdate = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        AtomicInteger updates = new AtomicInteger();
+        UserClient client = new UserClient() {
+            @Override
+            public void display() {
+            }
+
+            @Override
+            public void update(Stock updated) {
+                if(inUpdate.incrementAndGet() != 1)
+                    overlaps.incrementAndGet();
+                updates.incrementAndGet();
+                Thread.yield();
+                inUpdate.decrementAndGet();
+            }
+        };
+        long joinedAt = market.registerClientWithSnapshot(client, stock);
+        int publishers = 4;
+        int ticks = 20_000;
+        Thread[] threads = new Thread[publishers];
+        for(int p = 0; p < publishers; p++){
+            threads[p] = new Thread(() -> {
+                for(int i = 0; i < ticks; i++){
+                    market.publishQuote(stock, i);
+                }
+            });
+            threads[p].start();
+        }
+        for(Thread thread : threads){
+            thread.join();
+        }
+        Assertions.assertEquals(0, overlaps.get());
+        Assertions.assertEquals(1 + publishers * ticks - joinedAt, updates.get());
+    }
+
+    // Publishers and subscription churn on the same stocks at once. Clients that stay subscribed throughout must
+    // get every notification exactly once, and no thread may throw.
+    @Test
+    public void testChurnAlongsidePublishersLosesAndRepeatsNothing() throws Exception {
+        BombayStockMarket market = new BombayStockMarket();
+        List<Stock> stocks = new ArrayList<>();
+        for(int s = 0; s < 4; s++){
+            Stock stock = new Stock("CHURN-" + s, "0USD");
+            stocks.add(stock);
+            market.registerStock(stock);
+        }
+        int stayers = 8;
+        AtomicInteger[][] received = new AtomicInteger[stayers][stocks.size()];
+        for(int c = 0; c < stayers; c++){
+            AtomicInteger[] counts = received[c];
+            for(int s = 0; s < stocks.size(); s++){
+                counts[s] = new AtomicInteger();
+            }
+            UserClient client = new UserClient() {
+                @Override
+                public void display() {
+                }
+
+                @Override
+                public void update(Stock stock) {
+                    counts[stocks.indexOf(stock)].incrementAndGet();
+                }
+            };
+            for(Stock stock : stocks){
+                market.registerClient(client, stock);
+            }
+        }
+
+        int publishers = 3;
+        int notifies = 20_000;
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        CountDownLatch publishing = new CountDownLatch(publishers);
+        List<Thread> threads = new ArrayList<>();
+        for(int p = 0; p < publishers; p++){
+            threads.add(new Thread(() -> {
+                for(int i = 0; i < notifies; i++){
+                    market.notify(stocks.get(i % stocks.size()));
+                }
+                publishing.countDown();
+            }));
+        }
+        for(int t = 0; t < 2; t++){
+            int seed = t;
+            threads.add(new Thread(() -> {
+                RecordingClient churner = new RecordingClient();
+                for(int i = 0; publishing.getCount() > 0; i++){
+                    Stock stock = stocks.get((i + seed) % stocks.size());
+                    market.registerClient(churner, stock);
+                    if(i % 3 == 0){
+                        market.registerClientWithSnapshot(churner, stock);
+                        market.unregisterClient(churner, stock);
+                    }
+                    market.unregisterClient(churner, stock);
+                }
+            }));
+        }
+        for(Thread thread : threads){
+            thread.setUncaughtExceptionHandler((failed, e) -> thrown.compareAndSet(null, e));
+            thread.start();
+        }
+        for(Thread thread : threads){
+            thread.join();
+        }
+
+        Assertions.assertNull(thrown.get());
+        Assertions.assertEquals(0, market.getFailedCount());
+        for(AtomicInteger[] counts : received){
+            for(AtomicInteger count : counts){
+                Assertions.assertEquals(publishers * notifies / stocks.size(), count.get());
+            }
+        }
+        Assertions.assertEquals(stayers, market.subscribers.size());
+    }
+}
@@ -0,0 +1,117 @@
+package example.stockMarketApp;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ConflatingPublisherTest {
+
+    // Records notified stocks. The first notify of `failOnce` throws, as a misbehaving subscriber would.
+    static class FlakyMarket implements StockMarket {
+        final List<Stock> notified = new ArrayList<>();
+        Stock failOnce;
+
+        @Override
+        public void registerStock(Stock stock) {
+        }
+
+        @Override
+        public void unregisterStock(Stock stock) {
+        }
+
+        @Override
+        public void registerClient(UserClient client, Stock stock) {
+        }
+
+        @Override
+        public void unregisterClient(UserClient client, Stock stock) {
+        }
+
+        @Override
+        public synchronized void notify(Stock stock) {
+            if(stock == failOnce){
+                failOnce = null;
+                throw new IllegalStateException("subscriber failed");
+            }
+            notified.add(stock);
+        }
+
+        @Override
+        public Stock getStock() {
+            return null;
+        }
+
+        synchronized List<Stock> notified() {
+            return new ArrayList<>(notified);
+        }
+    }
+
+    @Test
+    public void testFailedNotifyIsCountedAndDrainKeepsRunning() throws InterruptedException {
+        FlakyMarket market = new FlakyMarket();
+        Stock tcs = new Stock("CP-TCS", "100USD");
+        Stock infy = new Stock("CP-INFY", "200USD");
+        Stock wipro = new Stock("CP-WIPRO", "300USD");
+        market.failOnce = tcs;
+        ConflatingPublisher publisher = new ConflatingPublisher(market, 5, TimeUnit.MILLISECONDS);
+
+        publisher.publish(tcs);
+        publisher.publish(infy);
+        publisher.flush();
+        Assertions.assertEquals(1, publisher.getFailedCount());
+        Assertions.assertEquals(List.of(infy), market.notified());
+
+        // The scheduled drain survived the failure and delivers new publishes.
+        publisher.publish(wipro);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(market.notified().size() < 2 && System.nanoTime() < deadline){
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(List.of(infy, wipro), market.notified());
+        Assertions.assertEquals(2, publisher.getNotifiedCount());
+        publisher.close();
+    }
+
+    // A subscriber that always throws must not cost the others their update, nor send them one twice.
+    @Test
+    public void testFaultySubscriberDoesNotStarveOrRepeatTheOthers() {
+        BombayStockMarket market = new BombayStockMarket();
+        Stock tcs = new Stock("CP-FAULTY", "100USD");
+        BombayStockMarketTest.RecordingClient before = new BombayStockMarketTest.RecordingClient();
+        BombayStockMarketTest.RecordingClient after = new BombayStockMarketTest.RecordingClient();
+        market.registerClient(before, tcs);
+        market.registerClient(() -> {
+            throw new IllegalStateException("subscriber failed");
+        }, tcs);
+        market.registerClient(after, tcs);
+        ConflatingPublisher publisher = new ConflatingPublisher(market, 1, TimeUnit.HOURS);
+
+        for(int cycle = 0; cycle < 3; cycle++){
+            publisher.publish(tcs);
+            publisher.flush();
+        }
+        Assertions.assertEquals(List.of(tcs, tcs, tcs), before.updates());
+        Assertions.assertEquals(List.of(tcs, tcs, tcs), after.updates());
+        Assertions.assertEquals(3, market.getFailedCount());
+        Assertions.assertEquals(0, publisher.getFailedCount());
+        publisher.close();
+    }
+
+    @Test
+    public void testPublishAfterCloseIsRejected() {
+        FlakyMarket market = new FlakyMarket();
+        Stock tcs = new Stock("CP-TCS", "100USD");
+        ConflatingPublisher publisher = new ConflatingPublisher(market, 1, TimeUnit.HOURS);
+        publisher.publish(tcs);
+        publisher.close();
+        Assertions.assertEquals(List.of(tcs), market.notified());
+
+        Assertions.assertThrows(IllegalStateException.class, () -> publisher.publish(tcs));
+        publisher.flush();
+        publisher.close();
+        Assertions.assertEquals(1, publisher.getPublishedCount());
+    }
+}
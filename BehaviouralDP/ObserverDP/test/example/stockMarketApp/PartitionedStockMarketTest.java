@@ -0,0 +1,83 @@
+package example.stockMarketApp;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PartitionedStockMarketTest {
+
+    @Test
+    public void testFailingSubscriberDoesNotStopItsPartition() throws InterruptedException {
+        PartitionedStockMarket market = new PartitionedStockMarket(1);
+        Stock stock = new Stock("PM-TCS", "100USD");
+        // Inherits update(), which calls this display().
+        UserClient failing = () -> {
+            throw new IllegalStateException("subscriber failed");
+        };
+        BombayStockMarketTest.RecordingClient recording = new BombayStockMarketTest.RecordingClient();
+        market.registerClient(failing, stock);
+        market.registerClient(recording, stock);
+
+        market.notify(stock);
+        market.notify(stock);
+        market.awaitQuiescence();
+        Assertions.assertEquals(List.of(stock, stock), recording.updates());
+        Assertions.assertEquals(2, market.getFailedCount());
+        market.close();
+    }
+
+    @Test
+    public void testGetStockFromASubscriberIsTheStockBeingDelivered() throws InterruptedException {
+        PartitionedStockMarket market = new PartitionedStockMarket(2);
+        Stock tcs = new Stock("PM-TCS-2", "100USD");
+        Stock infy = new Stock("PM-INFY", "200USD");
+        List<Stock> seen = new ArrayList<>();
+        // Keeps the default update(), which calls display(), which reads the market's stock.
+        UserClient client = () -> {
+            synchronized(seen) {
+                seen.add(market.getStock());
+            }
+        };
+        market.registerClient(client, tcs);
+        market.registerClient(client, infy);
+        for(int i = 0; i < 100; i++){
+            market.notify(i % 2 == 0 ? tcs : infy);
+        }
+        market.awaitQuiescence();
+        Assertions.assertEquals(0, market.getFailedCount());
+        synchronized(seen) {
+            Assertions.assertEquals(50, seen.stream().filter(tcs::equals).count());
+            Assertions.assertEquals(50, seen.stream().filter(infy::equals).count());
+        }
+        Assertions.assertNotNull(market.getStock());
+        market.close();
+    }
+
+    @Test
+    public void testClosedMarketRejectsWorkAndClosesOnce() throws InterruptedException {
+        PartitionedStockMarket market = new PartitionedStockMarket(2);
+        Stock stock = new Stock("PM-CLOSED", "100USD");
+        BombayStockMarketTest.RecordingClient client = new BombayStockMarketTest.RecordingClient();
+        market.registerClient(client, stock);
+        market.notify(stock);
+        market.close();
+        Assertions.assertEquals(List.of(stock), client.updates());
+
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            market.close();
+            market.awaitQuiescence();
+            Assertions.assertThrows(IllegalStateException.class, () -> market.notify(stock));
+        });
+    }
+
+    @Test
+    public void testCloseWhenInterruptedKeepsTheInterrupt() {
+        PartitionedStockMarket market = new PartitionedStockMarket(2);
+        Thread.currentThread().interrupt();
+        market.close();
+        Assertions.assertTrue(Thread.interrupted());
+    }
+}
@@ -0,0 +1,91 @@
+package example.stockMarketApp;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class QuoteBookTest {
+
+    @Test
+    public void testRegisterStockParsesPriceTextTolerantly() {
+        BombayStockMarket market = new BombayStockMarket();
+        Stock plain = new Stock("QB-PLAIN", "450USD");
+        Stock spaced = new Stock("QB-SPACED", " 450.25 USD ");
+        Stock malformed = new Stock("QB-BAD", "1.2.3USD");
+        Stock noAmount = new Stock("QB-NONE", "-USD");
+        market.registerStock(plain);
+        market.registerStock(spaced);
+        market.registerStock(malformed);
+        market.registerStock(noAmount);
+
+        QuoteBook quotes = market.getQuotes();
+        Assertions.assertEquals(Prices.of(450), quotes.price(plain.getSymbolId()));
+        Assertions.assertEquals(Prices.parse("450.25", 0, 6), quotes.price(spaced.getSymbolId()));
+        Assertions.assertEquals("USD", Prices.currencyCode(quotes.currency(spaced.getSymbolId())));
+        Assertions.assertEquals(Prices.NO_PRICE, quotes.price(malformed.getSymbolId()));
+        Assertions.assertEquals(Prices.NO_PRICE, quotes.price(noAmount.getSymbolId()));
+    }
+
+    @Test
+    public void testStockShowsWhicheverPriceWasSetLast() {
+        BombayStockMarket market = new BombayStockMarket();
+        Stock stock = new Stock("QB-LAST", "450USD");
+        market.registerStock(stock);
+        Assertions.assertEquals("450USD", stock.getPrice());
+
+        market.publishQuote(stock, Prices.parse("451.5", 0, 5));
+        Assertions.assertEquals("451.5USD", stock.getPrice());
+        Assertions.assertTrue(stock.toString().contains("451.5USD"));
+
+        stock.setPrice("460USD");
+        Assertions.assertEquals("460USD", stock.getPrice());
+    }
+
+    @Test
+    public void testCurrencyLettersStayInTheirOwnByte() {
+        int packed = Prices.currency("\u0141SD");
+        Assertions.assertEquals('S', (packed >> 8) & 0xFF);
+        Assertions.assertEquals('D', packed & 0xFF);
+        Assertions.assertEquals(0, packed >>> 24);
+    }
+
+    @Test
+    public void testQuoteIsNeverTorn() throws InterruptedException {
+        QuoteBook quotes = new QuoteBook();
+        int usd = Prices.currency("USD");
+        int eur = Prices.currency("EUR");
+        // Every USD quote has price 1 and every EUR quote price 2, so a mixed pair is a torn read.
+        quotes.setQuote(7, Prices.of(1), usd);
+        AtomicReference<String> torn = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            for(int i = 0; i < 200_000; i++){
+                if(i % 2 == 0){
+                    quotes.setQuote(7, Prices.of(2), eur);
+                } else {
+                    quotes.setQuote(7, Prices.of(1), usd);
+                }
+            }
+        });
+        writer.start();
+        while(writer.isAlive()){
+            String quote = quotes.quote(7);
+            if(!quote.equals("1USD") && !quote.equals("2EUR")){
+                torn.compareAndSet(null, quote);
+            }
+        }
+        writer.join();
+        Assertions.assertNull(torn.get());
+    }
+
+    @Test
+    public void testQuoteWithoutCurrencyIsJustThePrice() {
+        BombayStockMarket market = new BombayStockMarket();
+        Stock unseeded = new Stock("QB-UNSEEDED", "n/a");
+        market.registerStock(unseeded);
+        market.publishQuote(unseeded, Prices.of(12));
+
+        Assertions.assertEquals("12", market.getQuotes().quote(unseeded.getSymbolId()));
+        Assertions.assertEquals("12", unseeded.getPrice());
+    }
+}
@@ -0,0 +1,104 @@
+package example.stockMarketApp;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TickLogTest {
+    private static final int TICKS = 10_000;
+
+    @TempDir
+    Path directory;
+
+    // Publishes TICKS prices over a handful of stocks into a log with small regions, so the log grows over many.
+    private List<Stock> publish(BombayStockMarket market, TickLog log) {
+        market.enableTickLog(log);
+        List<Stock> stocks = new ArrayList<>();
+        for(int s = 0; s < 7; s++){
+            Stock stock = new Stock("TL-" + s, "0USD");
+            stocks.add(stock);
+            market.registerStock(stock);
+        }
+        for(int i = 0; i < TICKS; i++){
+            market.publishQuote(stocks.get(i % stocks.size()), i);
+        }
+        return stocks;
+    }
+
+    @Test
+    public void testReplayIsCompleteAndInOrder() throws IOException {
+        BombayStockMarket market = new BombayStockMarket();
+        try(TickLog log = new TickLog(directory.resolve("ticks.log"), 256)){
+            List<Stock> stocks = publish(market, log);
+            List<Long> prices = new ArrayList<>();
+            long[] last = {0};
+            long next = log.replay(1, (sequence, symbolId, price, currency) -> {
+                Assertions.assertEquals(last[0] + 1, sequence);
+                Assertions.assertEquals(stocks.get((int) (sequence - 1) % stocks.size()).getSymbolId(), symbolId);
+                last[0] = sequence;
+                prices.add(price);
+            });
+            Assertions.assertEquals(TICKS + 1L, next);
+            Assertions.assertEquals(TICKS, prices.size());
+            for(int i = 0; i < TICKS; i++){
+                Assertions.assertEquals(i, prices.get(i));
+            }
+            Assertions.assertEquals(TICKS + 1L, log.replay(TICKS - 9, (sequence, symbolId, price, currency) -> { }));
+        }
+    }
+
+    @Test
+    public void testReopenedLogRecoversItsEndAndRestoresQuotes() throws IOException {
+        Path file = directory.resolve("ticks.log");
+        BombayStockMarket market = new BombayStockMarket();
+        List<Stock> stocks;
+        try(TickLog log = new TickLog(file, 256)){
+            stocks = publish(market, log);
+        }
+
+        try(TickLog reopened = new TickLog(file, 256)){
+            Assertions.assertEquals(TICKS, reopened.getLastSequence());
+            QuoteBook restored = new QuoteBook();
+            reopened.restore(restored);
+            for(Stock stock : stocks){
+                int id = stock.getSymbolId();
+                Assertions.assertEquals(market.getQuotes().price(id), restored.price(id));
+                Assertions.assertEquals(market.getQuotes().currency(id), restored.currency(id));
+            }
+            Assertions.assertEquals(TICKS + 1L, reopened.append(stocks.get(0).getSymbolId(), 1, 0));
+        }
+    }
+
+    @Test
+    public void testTicksAfterATornOneDoNotComeBack() throws IOException {
+        Path file = directory.resolve("ticks.log");
+        try(TickLog log = new TickLog(file, 4)){
+            for(int i = 1; i <= 6; i++){
+                log.append(1, i, 0);
+            }
+        }
+        // Tick 2 lost its sequence number in a crash, while ticks 3 to 6 made it to disk.
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)){
+            channel.write(ByteBuffer.allocate(8), 24);
+        }
+
+        try(TickLog reopened = new TickLog(file, 4)){
+            Assertions.assertEquals(1, reopened.getLastSequence());
+            Assertions.assertEquals(2, reopened.append(1, 20, 0));
+        }
+        try(TickLog reopened = new TickLog(file, 4)){
+            Assertions.assertEquals(2, reopened.getLastSequence());
+            List<Long> prices = new ArrayList<>();
+            reopened.replay(1, (sequence, symbolId, price, currency) -> prices.add(price));
+            Assertions.assertEquals(List.of(1L, 20L), prices);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Multi-producer, single-consumer ring buffer in front of another LogWriter. Producers claim a preallocated
+// slot with a CAS on the tail and copy their bytes in; one writer thread drains published slots in batches
+// into the delegate. Slot hand-off uses per-slot sequence numbers, so no locks are taken on either side.
+//
+// A delegate write that fails loses that batch and is reported by the next flush or close; the writer thread
+// carries on. If the writer thread itself dies, every later write, flush and close throws instead of waiting
+// for a thread that is gone.
+public class AsyncLogWriter implements LogWriter {
+    private static final int BATCH_BYTES = 64 * 1024;
+    private static final int INITIAL_SLOT_BYTES = 256;
+    private static final long IDLE_PARK_NANOS = 50_000;
+
+    private final LogWriter delegate;
+    private final OverflowPolicy policy;
+    private final int sampleRate;
+    private final int capacity;
+    private final int mask;
+    private final byte[][] slots;
+    private final int[] lengths;
+    // Whether the slot holds a definition record, handed to delegate.writeDefinition rather than write.
+    private final boolean[] definitions;
+    // Slot i is free for the producer claiming sequence s when sequences[i] == s, and holds a published
+    // message for the consumer when sequences[i] == s + 1.
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail;
+    private final AtomicLong overflows;
+    private final AtomicLong dropped;
+    private final ByteBuffer batch;
+    private final Thread drainer;
+    private long head;
+    private volatile long drained;
+    private volatile boolean running;
+    private volatile IOException failure;
+    // Set when the writer thread stopped on an unexpected error; nothing enqueued will be written any more.
+    private volatile boolean dead;
+
+    public AsyncLogWriter(LogWriter delegate, int capacity, OverflowPolicy policy) {
+        this(delegate, capacity, policy, 100);
+    }
+
+    // With SAMPLE, one in every sampleRate messages that hit a full buffer waits for space; the rest are dropped.
+    public AsyncLogWriter(LogWriter delegate, int capacity, OverflowPolicy policy, int sampleRate) {
+        if(Integer.bitCount(capacity) != 1){
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.delegate = delegate;
+        this.policy = policy;
+        this.sampleRate = sampleRate;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.slots = new byte[capacity][INITIAL_SLOT_BYTES];
+        this.lengths = new int[capacity];
+        this.definitions = new boolean[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for(int i = 0; i < capacity; i++){
+            sequences.set(i, i);
+        }
+        this.tail = new AtomicLong();
+        this.overflows = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.batch = ByteBuffer.allocateDirect(BATCH_BYTES);
+        this.running = true;
+        this.drainer = new Thread(this::drain, "async-log-writer");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    @Override
+    public void write(ByteBuffer record) throws IOException {
+        enqueue(record, false);
+    }
+
+    // Definitions go through the ring like events, so the writer thread is the only one calling the delegate and
+    // a definition reaches it before the events enqueued after it. They wait for space under every policy, since
+    // an event whose definition was dropped cannot be decoded.
+    @Override
+    public void writeDefinition(ByteBuffer definition) throws IOException {
+        enqueue(definition, true);
+    }
+
+    // Waits until everything enqueued so far has reached the delegate.
+    @Override
+    public void flush() throws IOException {
+        long target = tail.get();
+        while(drained < target && drainer.isAlive()){
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        throwIfFailed();
+        throwIfDead();
+        delegate.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throwIfFailed();
+        throwIfDead();
+        delegate.close();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void enqueue(ByteBuffer record, boolean definition) throws IOException {
+        throwIfDead();
+        long sequence = claim(definition || policy == OverflowPolicy.BLOCK);
+        if(sequence < 0){
+            dropped.incrementAndGet();
+            return;
+        }
+        int index = (int) (sequence & mask);
+        int length = record.remaining();
+        if(slots[index].length < length){
+            slots[index] = new byte[length];
+        }
+        record.get(record.position(), slots[index], 0, length);
+        lengths[index] = length;
+        definitions[index] = definition;
+        sequences.set(index, sequence + 1);
+    }
+
+    private long claim(boolean keep) throws IOException {
+        while(true){
+            long sequence = tail.get();
+            long slotSequence = sequences.get((int) (sequence & mask));
+            if(slotSequence == sequence){
+                if(tail.compareAndSet(sequence, sequence + 1)){
+                    return sequence;
+                }
+            } else if(slotSequence < sequence){
+                // Full: the slot still holds a message from the previous lap.
+                if(!keep){
+                    if(policy == OverflowPolicy.DROP || overflows.incrementAndGet() % sampleRate != 0){
+                        return -1;
+                    }
+                    keep = true;
+                }
+                if(!running){
+                    return -1;
+                }
+                throwIfDead();
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            drainPublished();
+        } catch (Throwable e) {
+            failure = new IOException("The async log writer thread stopped", e);
+            dead = true;
+        }
+    }
+
+    private void drainPublished() {
+        while(running || head < tail.get()){
+            int count = 0;
+            batch.clear();
+            while(true){
+                int index = (int) (head & mask);
+                if(sequences.get(index) != head + 1){
+                    break;
+                }
+                int length = lengths[index];
+                if(definitions[index]){
+                    if(batch.position() > 0){
+                        break;
+                    }
+                    writeDefinitionToDelegate(ByteBuffer.wrap(slots[index], 0, length));
+                } else if(length > batch.remaining()){
+                    if(batch.position() > 0){
+                        break;
+                    }
+                    // Larger than a whole batch: hand it to the delegate on its own.
+                    writeToDelegate(ByteBuffer.wrap(slots[index], 0, length));
+                } else {
+                    batch.put(slots[index], 0, length);
+                }
+                sequences.set(index, head + capacity);
+                head++;
+                count++;
+            }
+            if(batch.position() > 0){
+                batch.flip();
+                writeToDelegate(batch);
+            }
+            drained = head;
+            if(count == 0){
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void writeToDelegate(ByteBuffer bytes) {
+        try {
+            delegate.write(bytes);
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new IOException(e);
+        }
+    }
+
+    private void writeDefinitionToDelegate(ByteBuffer definition) {
+        try {
+            delegate.writeDefinition(definition);
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new IOException(e);
+        }
+    }
+
+    private void throwIfFailed() throws IOException {
+        IOException e = failure;
+        if(e != null){
+            throw e;
+        }
+    }
+
+    private void throwIfDead() throws IOException {
+        if(dead){
+            throw new IOException("The async log writer thread has stopped", failure);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Layout of the binary log format written by Logger.enableBinaryFormat() and read by LogDecoder. All numbers
+// are big-endian.
+//
+//   DEFINE_CATEGORY  type:1 id:int length:int name:utf8
+//   DEFINE_TEMPLATE  type:1 id:int length:int pattern:utf8
+//   EVENT            type:1 epochNanos:long level:1 categoryId:int templateId:int argCount:int args...
+//
+// Each argument is a one-byte tag followed by its value: ARG_LONG long, ARG_BOOLEAN 1 byte, ARG_STRING
+// length:int utf8, ARG_NULL nothing. A category or template is always defined before the first event that
+// uses it. An event whose templateId is INLINE_TEMPLATE has no defined template: its first argument is the
+// pattern itself. A zero byte where a record type is expected is padding and is skipped.
+final class BinaryLogFormat {
+    static final byte PADDING = 0;
+    static final byte DEFINE_CATEGORY = 1;
+    static final byte DEFINE_TEMPLATE = 2;
+    static final byte EVENT = 3;
+
+    static final byte ARG_LONG = 1;
+    static final byte ARG_BOOLEAN = 2;
+    static final byte ARG_STRING = 3;
+    static final byte ARG_NULL = 4;
+
+    static final int INLINE_TEMPLATE = -1;
+
+    private BinaryLogFormat() {
+    }
+
+    static byte[] definition(byte type, int id, String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(9 + utf8.length).put(type).putInt(id).putInt(utf8.length).put(utf8).array();
+    }
+}
@@ -0,0 +1,122 @@
+import java.nio.charset.StandardCharsets;
+
+// A named logger handed out by Logger.getLogger. Its effective level is stored as one volatile int, so checking
+// a disabled level costs a single read and no message is built. Lines are written as
+// "timestamp: LEVEL category - message".
+public class CategoryLogger {
+    // A plain message is logged as this template with the message as its argument, so that messages built at
+    // runtime do not each become a template in the binary format.
+    private static final String LITERAL = "{}";
+
+    private final Logger owner;
+    private final int id;
+    private final String name;
+    // Rendered "LEVEL category - " for each level, empty for the root logger.
+    private final byte[][] headers;
+    private volatile int threshold;
+
+    CategoryLogger(Logger owner, int id, String name, LogLevel level) {
+        this.owner = owner;
+        this.id = id;
+        this.name = name;
+        this.headers = new byte[LogLevel.values().length][];
+        for(LogLevel each : LogLevel.values()){
+            headers[each.ordinal()] = name.isEmpty() ? new byte[0]
+                    : (each + " " + name + " - ").getBytes(StandardCharsets.UTF_8);
+        }
+        this.threshold = level.ordinal();
+    }
+
+    int getId() {
+        return id;
+    }
+
+    byte[] header(LogLevel level) {
+        return headers[level.ordinal()];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LogLevel getLevel() {
+        return LogLevel.values()[threshold];
+    }
+
+    void setLevel(LogLevel level) {
+        threshold = level.ordinal();
+    }
+
+    // OFF is only a threshold: a message logged at OFF is never written, so a category set to OFF is silent.
+    public boolean isEnabled(LogLevel level) {
+        return level.ordinal() >= threshold && level != LogLevel.OFF;
+    }
+
+    public void trace(String msg) {
+        log(LogLevel.TRACE, msg);
+    }
+
+    public void debug(String msg) {
+        log(LogLevel.DEBUG, msg);
+    }
+
+    public void info(String msg) {
+        log(LogLevel.INFO, msg);
+    }
+
+    public void warn(String msg) {
+        log(LogLevel.WARN, msg);
+    }
+
+    public void error(String msg) {
+        log(LogLevel.ERROR, msg);
+    }
+
+    public void log(LogLevel level, String msg) {
+        if(!isEnabled(level)){
+            return;
+        }
+        owner.finish(owner.begin(this, level, LITERAL).arg(msg));
+    }
+
+    // Each "{}" in the pattern is replaced by the next argument. Nothing is formatted unless the level is enabled.
+    public void log(LogLevel level, String pattern, Object arg) {
+        if(!isEnabled(level)){
+            return;
+        }
+        owner.finish(owner.begin(this, level, pattern).arg(arg));
+    }
+
+    public void log(LogLevel level, String pattern, long arg) {
+        if(!isEnabled(level)){
+            return;
+        }
+        owner.finish(owner.begin(this, level, pattern).arg(arg));
+    }
+
+    public void log(LogLevel level, String pattern, boolean arg) {
+        if(!isEnabled(level)){
+            return;
+        }
+        owner.finish(owner.begin(this, level, pattern).arg(arg));
+    }
+
+    public void log(LogLevel level, String pattern, long first, long second) {
+        if(!isEnabled(level)){
+            return;
+        }
+        owner.finish(owner.begin(this, level, pattern).arg(first).arg(second));
+    }
+
+    // The varargs array is allocated by the caller, so guard hot call sites with isEnabled.
+    public void log(LogLevel level, String pattern, Object... args) {
+        if(!isEnabled(level)){
+            return;
+        }
+        LogLineBuffer line = owner.begin(this, level, pattern);
+        for(Object arg : args){
+            line.arg(arg);
+        }
+        owner.finish(line);
+    }
+}
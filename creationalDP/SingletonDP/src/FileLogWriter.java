@@ -0,0 +1,31 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Appends to one long-lived channel instead of reopening the file for every message.
+public class FileLogWriter implements LogWriter {
+    private final FileChannel channel;
+
+    public FileLogWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void write(ByteBuffer record) throws IOException {
+        while(record.hasRemaining()){
+            channel.write(record);
+        }
+    }
+
+    // Channel writes are not buffered in the process, so there is nothing to flush.
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,64 @@
+import java.util.concurrent.CountDownLatch;
+
+// Throughput of Logger.getInstance() at increasing thread counts, against the static synchronized double-checked
+// lookup it used to have. Prints one CSV row per run.
+//
+// Usage: GetInstanceBenchmark [callsPerThread] [maxThreads]
+public class GetInstanceBenchmark {
+    private static final Object LOCK = new Object();
+    private static Object synchronizedInstance;
+
+    static volatile long sink;
+
+    interface Lookup {
+        Object get();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int callsPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        System.out.println("lookup,threads,callsPerSecond");
+        for(int threads = 1; threads <= maxThreads; threads *= 2){
+            run("synchronized", threads, callsPerThread, GetInstanceBenchmark::synchronizedGetInstance);
+            run("holder", threads, callsPerThread, Logger::getInstance);
+        }
+    }
+
+    // The lookup Logger.getInstance() used before, for comparison.
+    static synchronized Object synchronizedGetInstance() {
+        if(synchronizedInstance == null){
+            synchronized(LOCK) {
+                if(synchronizedInstance == null) {
+                    synchronizedInstance = new Object();
+                }
+            }
+        }
+        return synchronizedInstance;
+    }
+
+    static void run(String name, int threads, int callsPerThread, Lookup lookup) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for(int t = 0; t < threads; t++){
+            new Thread(() -> {
+                try {
+                    start.await();
+                    long hashes = 0;
+                    for(int i = 0; i < callsPerThread; i++){
+                        hashes += System.identityHashCode(lookup.get());
+                    }
+                    sink += hashes;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        System.out.printf("%s,%d,%.0f%n", name, threads, (double) threads * callsPerThread * 1_000_000_000d / elapsed);
+    }
+}
@@ -0,0 +1,51 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+// A FileLogWriter that opens its file on the first write rather than when it is created. If opening fails, that
+// write throws and the next one tries again, so a missing directory or a full disk fails single log calls
+// instead of whatever created the writer.
+public class LazyFileLogWriter implements LogWriter {
+    private final Path path;
+    private volatile FileLogWriter file;
+    private boolean closed;
+
+    public LazyFileLogWriter(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public void write(ByteBuffer record) throws IOException {
+        FileLogWriter opened = file;
+        if(opened == null){
+            opened = open();
+        }
+        opened.write(record);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        FileLogWriter opened = file;
+        if(opened != null){
+            opened.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if(file != null){
+            file.close();
+        }
+    }
+
+    private synchronized FileLogWriter open() throws IOException {
+        if(closed){
+            throw new IOException("Log file " + path + " is closed");
+        }
+        if(file == null){
+            file = new FileLogWriter(path);
+        }
+        return file;
+    }
+}
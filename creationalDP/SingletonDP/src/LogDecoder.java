@@ -0,0 +1,243 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+// Turns binary log files (see BinaryLogFormat) back into the text lines Logger would have written, or into one
+// JSON object per line. A directory is read as MappedSegmentLogWriter segments, oldest first. Definitions carry
+// over from one file to the next, so files rolled by RollingFileLogWriter (gzipped or not) are passed oldest first,
+// followed by the base file. A record cut off at the end of a file is ignored.
+//
+// Usage: LogDecoder [--json] <file or segment directory>...
+public class LogDecoder {
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter ISO_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSSSSS");
+
+    private final Map<Integer, String> categories = new HashMap<>();
+    private final Map<Integer, String> templates = new HashMap<>();
+
+    public static class Event {
+        final long epochNanos;
+        final LogLevel level;
+        final String category;
+        final String template;
+        final List<Object> args;
+
+        Event(long epochNanos, LogLevel level, String category, String template, List<Object> args) {
+            this.epochNanos = epochNanos;
+            this.level = level;
+            this.category = category;
+            this.template = template;
+            this.args = args;
+        }
+
+        public long getEpochNanos() {
+            return epochNanos;
+        }
+
+        public LogLevel getLevel() {
+            return level;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public String getTemplate() {
+            return template;
+        }
+
+        public List<Object> getArgs() {
+            return args;
+        }
+
+        // The template with its placeholders filled in, as Logger formats it in text mode.
+        public String message() {
+            StringBuilder message = new StringBuilder();
+            int from = 0;
+            for(Object arg : args){
+                int placeholder = template.indexOf("{}", from);
+                if(placeholder < 0){
+                    break;
+                }
+                message.append(template, from, placeholder).append(arg);
+                from = placeholder + 2;
+            }
+            return message.append(template, from, template.length()).toString();
+        }
+
+        // The same line Logger writes in text mode.
+        public String toText() {
+            String timestamp = time().format(TIMESTAMP) + ": ";
+            return category.isEmpty() ? timestamp + message() : timestamp + level + " " + category + " - " + message();
+        }
+
+        public String toJson() {
+            StringBuilder json = new StringBuilder("{\"time\":\"").append(time().format(ISO_TIMESTAMP))
+                    .append("\",\"epochNanos\":").append(epochNanos)
+                    .append(",\"level\":\"").append(level)
+                    .append("\",\"category\":").append(quote(category))
+                    .append(",\"template\":").append(quote(template))
+                    .append(",\"message\":").append(quote(message()))
+                    .append(",\"args\":[");
+            for(int i = 0; i < args.size(); i++){
+                Object arg = args.get(i);
+                json.append(i == 0 ? "" : ",").append(arg instanceof String ? quote((String) arg) : String.valueOf(arg));
+            }
+            return json.append("]}").toString();
+        }
+
+        private LocalDateTime time() {
+            Instant instant = Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L), Math.floorMod(epochNanos, 1_000_000_000L));
+            return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean json = false;
+        List<Path> inputs = new ArrayList<>();
+        for(String arg : args){
+            if(arg.equals("--json")){
+                json = true;
+            } else {
+                inputs.add(Path.of(arg));
+            }
+        }
+        if(inputs.isEmpty()){
+            System.err.println("Usage: LogDecoder [--json] <file or segment directory>...");
+            System.exit(2);
+        }
+        LogDecoder decoder = new LogDecoder();
+        boolean asJson = json;
+        // UTF-8 like the text log files, whatever the platform default is.
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        Consumer<Event> printer = event -> out.println(asJson ? event.toJson() : event.toText());
+        for(Path input : inputs){
+            if(Files.isDirectory(input)){
+                for(Path segment : MappedSegmentLogWriter.segments(input)){
+                    decoder.decode(ByteBuffer.wrap(MappedSegmentLogWriter.readSegment(segment)), printer);
+                }
+            } else {
+                decoder.decode(ByteBuffer.wrap(read(input)), printer);
+            }
+        }
+        out.flush();
+    }
+
+    // Decodes every complete record in data, passing events to the consumer in order.
+    public void decode(ByteBuffer data, Consumer<Event> events) throws IOException {
+        while(data.hasRemaining()){
+            int start = data.position();
+            try {
+                byte type = data.get();
+                if(type == BinaryLogFormat.PADDING){
+                    continue;
+                }
+                if(type == BinaryLogFormat.DEFINE_CATEGORY){
+                    categories.put(data.getInt(), string(data));
+                } else if(type == BinaryLogFormat.DEFINE_TEMPLATE){
+                    templates.put(data.getInt(), string(data));
+                } else if(type == BinaryLogFormat.EVENT){
+                    events.accept(event(data));
+                } else {
+                    throw new IOException("Unknown record type " + type + " at offset " + start);
+                }
+            } catch (BufferUnderflowException e) {
+                return;
+            }
+        }
+    }
+
+    private static byte[] read(Path file) throws IOException {
+        if(!file.getFileName().toString().endsWith(".gz")){
+            return Files.readAllBytes(file);
+        }
+        try(InputStream in = new GZIPInputStream(Files.newInputStream(file))){
+            return in.readAllBytes();
+        }
+    }
+
+    private Event event(ByteBuffer data) throws IOException {
+        long epochNanos = data.getLong();
+        int ordinal = data.get();
+        if(ordinal < 0 || ordinal >= LogLevel.values().length){
+            throw new IOException("Unknown level " + ordinal);
+        }
+        LogLevel level = LogLevel.values()[ordinal];
+        int categoryId = data.getInt();
+        int templateId = data.getInt();
+        int argCount = data.getInt();
+        // Every argument takes at least its tag byte, so a larger count is a cut-off or corrupt record.
+        if(argCount < 0 || argCount > data.remaining()){
+            throw new BufferUnderflowException();
+        }
+        List<Object> args = new ArrayList<>(argCount);
+        for(int i = 0; i < argCount; i++){
+            byte tag = data.get();
+            if(tag == BinaryLogFormat.ARG_LONG){
+                args.add(data.getLong());
+            } else if(tag == BinaryLogFormat.ARG_BOOLEAN){
+                args.add(data.get() != 0);
+            } else if(tag == BinaryLogFormat.ARG_STRING){
+                args.add(string(data));
+            } else if(tag == BinaryLogFormat.ARG_NULL){
+                args.add(null);
+            } else {
+                throw new IOException("Unknown argument tag " + tag);
+            }
+        }
+        String category = categories.get(categoryId);
+        String template;
+        if(templateId == BinaryLogFormat.INLINE_TEMPLATE){
+            if(args.isEmpty() || !(args.get(0) instanceof String)){
+                throw new IOException("Event with an inline template has no pattern");
+            }
+            template = (String) args.remove(0);
+        } else {
+            template = templates.get(templateId);
+        }
+        if(category == null || template == null){
+            throw new IOException("Event uses undefined category " + categoryId + " or template " + templateId);
+        }
+        return new Event(epochNanos, level, category, template, args);
+    }
+
+    private static String string(ByteBuffer data) {
+        int length = data.getInt();
+        if(length < 0 || length > data.remaining()){
+            throw new BufferUnderflowException();
+        }
+        byte[] utf8 = new byte[length];
+        data.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for(int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            if(c == '"' || c == '\\'){
+                quoted.append('\\').append(c);
+            } else if(c < 0x20){
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,10 @@
+// Severity of a log message, lowest first. A logger set to a level writes that level and everything above it;
+// OFF writes nothing. OFF is not a message level: messages logged at OFF are dropped.
+public enum LogLevel {
+    TRACE,
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF
+}
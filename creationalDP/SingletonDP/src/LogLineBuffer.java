@@ -0,0 +1,296 @@
+import java.nio.ByteBuffer;
+
+// A reusable, per-thread byte buffer that a log record is encoded into, either as a text line or as a binary
+// EVENT record (see BinaryLogFormat). Strings are encoded to UTF-8 and numbers to decimal digits or raw bytes
+// directly into the buffer, so building a record allocates nothing once the buffer has grown to fit the longest
+// record seen.
+class LogLineBuffer {
+    private static final ThreadLocal<LogLineBuffer> BUFFERS = ThreadLocal.withInitial(LogLineBuffer::new);
+    private static final byte[] MIN_LONG = "-9223372036854775808".getBytes();
+    private static final byte[] TRUE = "true".getBytes();
+    private static final byte[] FALSE = "false".getBytes();
+    private static final byte[] NULL = "null".getBytes();
+
+    private byte[] bytes = new byte[256];
+    private ByteBuffer view = ByteBuffer.wrap(bytes);
+    private int length;
+    private int messageStart;
+    private boolean inUse;
+    private boolean binary;
+    // The writer the record goes to, chosen when it was begun.
+    private LogWriter target;
+    // Text records: the pattern and the index just past the placeholder the next argument goes into, or -1.
+    private String pattern;
+    private int next;
+    // Binary records: where the argument count is stored, and the count so far.
+    private int argCountAt;
+    private int argCount;
+
+    // The calling thread's buffer, or a fresh one if it is already busy (a toString() that logs, for example).
+    static LogLineBuffer acquire() {
+        LogLineBuffer buffer = BUFFERS.get();
+        if(buffer.inUse){
+            buffer = new LogLineBuffer();
+        }
+        buffer.inUse = true;
+        buffer.length = 0;
+        buffer.messageStart = 0;
+        return buffer;
+    }
+
+    void release() {
+        inUse = false;
+        pattern = null;
+        target = null;
+    }
+
+    LogLineBuffer writeTo(LogWriter target) {
+        this.target = target;
+        return this;
+    }
+
+    LogWriter target() {
+        return target;
+    }
+
+    // Starts the message part of a text record: the pattern up to its first "{}".
+    LogLineBuffer beginText(String pattern) {
+        binary = false;
+        this.pattern = pattern;
+        next = appendUntilPlaceholder(pattern, 0);
+        return this;
+    }
+
+    LogLineBuffer beginEvent(long epochNanos, LogLevel level, int categoryId, int templateId) {
+        binary = true;
+        appendByte(BinaryLogFormat.EVENT);
+        appendLong(epochNanos);
+        appendByte((byte) level.ordinal());
+        appendInt(categoryId);
+        appendInt(templateId);
+        argCountAt = length;
+        argCount = 0;
+        appendInt(0);
+        return this;
+    }
+
+    // Carries the pattern of an event without a template id as its first argument.
+    LogLineBuffer inlineTemplate(String pattern) {
+        return arg((Object) pattern);
+    }
+
+    boolean isBinary() {
+        return binary;
+    }
+
+    LogLineBuffer arg(long value) {
+        if(binary){
+            argCount++;
+            appendByte(BinaryLogFormat.ARG_LONG);
+            appendLong(value);
+        } else if(next >= 0){
+            append(value);
+            next = appendUntilPlaceholder(pattern, next);
+        }
+        return this;
+    }
+
+    LogLineBuffer arg(boolean value) {
+        if(binary){
+            argCount++;
+            appendByte(BinaryLogFormat.ARG_BOOLEAN);
+            appendByte((byte) (value ? 1 : 0));
+        } else if(next >= 0){
+            append(value);
+            next = appendUntilPlaceholder(pattern, next);
+        }
+        return this;
+    }
+
+    // Boxed numbers and booleans are unboxed rather than turned into strings.
+    LogLineBuffer arg(Object value) {
+        if(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte){
+            return arg(((Number) value).longValue());
+        }
+        if(value instanceof Boolean){
+            return arg(((Boolean) value).booleanValue());
+        }
+        if(binary){
+            argCount++;
+            if(value == null){
+                appendByte(BinaryLogFormat.ARG_NULL);
+            } else {
+                appendByte(BinaryLogFormat.ARG_STRING);
+                int lengthAt = length;
+                appendInt(0);
+                append(value instanceof CharSequence ? (CharSequence) value : String.valueOf(value));
+                putInt(lengthAt, length - lengthAt - 4);
+            }
+        } else if(next >= 0){
+            if(value == null){
+                append(NULL);
+            } else {
+                append(value instanceof CharSequence ? (CharSequence) value : String.valueOf(value));
+            }
+            next = appendUntilPlaceholder(pattern, next);
+        }
+        return this;
+    }
+
+    // Completes the record. Placeholders left without an argument are written as "{}".
+    LogLineBuffer end() {
+        if(binary){
+            putInt(argCountAt, argCount);
+        } else {
+            if(next >= 0){
+                append(pattern, next - 2, pattern.length());
+            }
+            append('\n');
+        }
+        return this;
+    }
+
+    // Marks where the message begins, after the timestamp prefix.
+    void markMessageStart() {
+        messageStart = length;
+    }
+
+    int messageStart() {
+        return messageStart;
+    }
+
+    int length() {
+        return length;
+    }
+
+    byte[] array() {
+        return bytes;
+    }
+
+    // The encoded line, valid until the buffer is released.
+    ByteBuffer line() {
+        view.clear().limit(length);
+        return view;
+    }
+
+    LogLineBuffer append(byte[] source) {
+        ensureCapacity(source.length);
+        System.arraycopy(source, 0, bytes, length, source.length);
+        length += source.length;
+        return this;
+    }
+
+    LogLineBuffer append(char c) {
+        ensureCapacity(3);
+        return appendChar(c);
+    }
+
+    LogLineBuffer append(CharSequence text) {
+        return append(text, 0, text.length());
+    }
+
+    LogLineBuffer append(CharSequence text, int start, int end) {
+        ensureCapacity((end - start) * 3);
+        for(int i = start; i < end; i++){
+            char c = text.charAt(i);
+            if(Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))){
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                appendChar(c);
+            }
+        }
+        return this;
+    }
+
+    LogLineBuffer append(long value) {
+        if(value == Long.MIN_VALUE){
+            return append(MIN_LONG);
+        }
+        ensureCapacity(20);
+        if(value < 0){
+            bytes[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for(long rest = value / 10; rest != 0; rest /= 10){
+            digits++;
+        }
+        for(int i = length + digits - 1; i >= length; i--){
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    LogLineBuffer append(boolean value) {
+        return append(value ? TRUE : FALSE);
+    }
+
+    // Appends the pattern up to the next "{}" placeholder and returns the index just past it, or appends the
+    // rest of the pattern and returns -1 if there is none.
+    private int appendUntilPlaceholder(String pattern, int from) {
+        int placeholder = pattern.indexOf("{}", from);
+        if(placeholder < 0){
+            append(pattern, from, pattern.length());
+            return -1;
+        }
+        append(pattern, from, placeholder);
+        return placeholder + 2;
+    }
+
+    private void appendByte(byte value) {
+        ensureCapacity(1);
+        bytes[length++] = value;
+    }
+
+    private void appendInt(int value) {
+        ensureCapacity(4);
+        putInt(length, value);
+        length += 4;
+    }
+
+    private void appendLong(long value) {
+        appendInt((int) (value >>> 32));
+        appendInt((int) value);
+    }
+
+    private void putInt(int at, int value) {
+        bytes[at] = (byte) (value >>> 24);
+        bytes[at + 1] = (byte) (value >>> 16);
+        bytes[at + 2] = (byte) (value >>> 8);
+        bytes[at + 3] = (byte) value;
+    }
+
+    private LogLineBuffer appendChar(char c) {
+        if(c < 0x80){
+            bytes[length++] = (byte) c;
+        } else if(c < 0x800){
+            bytes[length++] = (byte) (0xC0 | (c >> 6));
+            bytes[length++] = (byte) (0x80 | (c & 0x3F));
+        } else {
+            // Unpaired surrogates are encoded as "?" like String.getBytes does.
+            if(Character.isSurrogate(c)){
+                bytes[length++] = '?';
+                return this;
+            }
+            bytes[length++] = (byte) (0xE0 | (c >> 12));
+            bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            bytes[length++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return this;
+    }
+
+    private void ensureCapacity(int extra) {
+        if(length + extra > bytes.length){
+            byte[] grown = new byte[Math.max(bytes.length * 2, length + extra)];
+            System.arraycopy(bytes, 0, grown, 0, length);
+            bytes = grown;
+            view = ByteBuffer.wrap(bytes);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Destination for encoded log records. Implementations must be safe to call from many threads;
+// write may consume the buffer's remaining bytes.
+public interface LogWriter extends Closeable {
+    public void write(ByteBuffer record) throws IOException;
+    public void flush() throws IOException;
+
+    // Writes a definition record of the binary format (see BinaryLogFormat). Writers that start new files keep
+    // the definitions and repeat them at the top of each new file, so every file can be decoded on its own.
+    public default void writeDefinition(ByteBuffer definition) throws IOException {
+        write(definition);
+    }
+}
@@ -1,36 +1,329 @@
-import java.io.FileWriter;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Logger {
+    // Distinct patterns that get their own template id in the binary format. Patterns beyond that, typically
+    // built at runtime, are carried inline in each event instead, so the table and its lock stay bounded.
+    static final int MAX_TEMPLATES = 4096;
 
-    private static Logger logger;
-
+    // Guards configuration changes only; logging itself takes no lock.
     private static Object lock = new Object();
-    private Logger() {}
-    public static synchronized  Logger getInstance() {
-        if(logger==null){
-            synchronized(lock) {
-                if(logger==null) {
-                    logger = new Logger();
+    // Stands in for the writer after shutdown, so late messages are dropped instead of hitting a closed file.
+    private static final LogWriter DISCARD = new LogWriter() {
+        @Override
+        public void write(ByteBuffer record) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+    // The writer and the format records are written in, replaced together so a message begun in one format is
+    // never written to a writer that expects the other.
+    private static final class Destination {
+        final LogWriter writer;
+        final boolean binary;
+
+        Destination(LogWriter writer, boolean binary) {
+            this.writer = writer;
+            this.binary = binary;
+        }
+    }
+
+    private volatile Destination destination;
+    private final TimestampCache timestamps = new TimestampCache();
+    private final CategoryLogger root = new CategoryLogger(this, 0, "", LogLevel.INFO);
+    private final Map<String, CategoryLogger> categories = new ConcurrentHashMap<>();
+    private final Map<String, Integer> templateIds = new ConcurrentHashMap<>();
+    // Every category and template definition record so far, guarded by lock. Replayed into a writer that
+    // starts receiving binary records, so its output can be decoded on its own.
+    private final List<byte[]> definitions = new ArrayList<>();
+    private final long epochNanosBase = System.currentTimeMillis() * 1_000_000L;
+    private final long nanoTimeBase = System.nanoTime();
+    // Whether the current writer has been given a text line, after which binary records cannot follow.
+    private volatile boolean textWritten;
+    // The log.txt writer the shared logger starts with, replaced by log.bin when the binary format is enabled.
+    private final LogWriter defaultWriter;
+    // Levels set through setLevel, by category. A category without one inherits from its parent ("orders" for
+    // "orders.fills") and finally from the root logger.
+    private final Map<String, LogLevel> configuredLevels = new ConcurrentHashMap<>();
+    private volatile boolean consoleEcho = true;
+    private Logger() {
+        this(new LazyFileLogWriter(Path.of("log.txt")), true);
+    }
+
+    // Package-private so tests can use a logger of their own, writing to the given writer, rather than the
+    // shared instance.
+    Logger(LogWriter initialWriter) {
+        this(initialWriter, false);
+    }
+
+    private Logger(LogWriter initialWriter, boolean isDefault) {
+        definitions.add(BinaryLogFormat.definition(BinaryLogFormat.DEFINE_CATEGORY, root.getId(), root.getName()));
+        destination = new Destination(initialWriter, false);
+        defaultWriter = isDefault ? initialWriter : null;
+    }
+    // The JVM initializes Holder, and so creates the logger, exactly once on first use, and publishes it safely to
+    // every thread. After that getInstance is a plain static field read with no synchronization. Creating the
+    // logger does no I/O, so Holder's initialization cannot fail and leave the class unusable; log.txt is opened
+    // by the first message, and a failure there only fails that log call.
+    private static class Holder {
+        static final Logger INSTANCE = new Logger();
+    }
+
+    public static Logger getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    // Switches to asynchronous logging: callers only copy the message into a ring buffer of the given
+    // capacity (a power of two) and a background thread writes it to the file. Console echo is turned off,
+    // since printing to System.out would make every caller queue on its lock again; setConsoleEcho(true)
+    // turns it back on.
+    public void enableAsync(int capacity, OverflowPolicy policy) {
+        synchronized(lock) {
+            if(!(destination.writer instanceof AsyncLogWriter)) {
+                destination = new Destination(new AsyncLogWriter(destination.writer, capacity, policy), destination.binary);
+            }
+            consoleEcho = false;
+        }
+    }
+
+    // Replaces the current destination, e.g. with a MappedSegmentLogWriter. The previous writer is flushed and closed.
+    public void setWriter(LogWriter newWriter) {
+        synchronized(lock) {
+            LogWriter previous = destination.writer;
+            try {
+                if(destination.binary){
+                    writeDefinitions(newWriter);
                 }
+                destination = new Destination(newWriter, destination.binary);
+                textWritten = false;
+                previous.flush();
+                previous.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
             }
         }
-        return logger;
     }
-    public void log(String msg){
+
+    // Writes to basePath instead of log.txt, rolling it by size and age and keeping retainedFiles gzipped
+    // rolled files next to it. See RollingFileLogWriter.
+    public void enableRolling(Path basePath, long maxBytes, long rollIntervalMillis, int retainedFiles) {
+        try {
+            setWriter(new RollingFileLogWriter(basePath, maxBytes, rollIntervalMillis, retainedFiles));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // The logger for a category, created on first use. Keep the result in a field rather than looking it up per call.
+    public CategoryLogger getLogger(String category) {
+        CategoryLogger existing = categories.get(category);
+        if(existing != null){
+            return existing;
+        }
+        synchronized(lock) {
+            return categories.computeIfAbsent(category, name -> {
+                CategoryLogger created = new CategoryLogger(this, categories.size() + 1, name, effectiveLevel(name));
+                define(BinaryLogFormat.definition(BinaryLogFormat.DEFINE_CATEGORY, created.getId(), name));
+                return created;
+            });
+        }
+    }
+
+    // Switches to the structured binary format described in BinaryLogFormat: each record carries epoch nanos,
+    // the level, a category id, a message template id and the typed arguments, and LogDecoder turns it back
+    // into text or JSON. Nothing is echoed to the console in this format.
+    //
+    // A decoder cannot read past text, so binary records need a destination of their own: the default log.txt is
+    // swapped for log.bin, and a writer installed with setWriter must not have been given text lines yet.
+    public void enableBinaryFormat() {
         synchronized(lock) {
+            if(destination.binary){
+                return;
+            }
+            if(destination.writer == defaultWriter){
+                setWriter(new LazyFileLogWriter(Path.of("log.bin")));
+            } else if(textWritten){
+                throw new IllegalStateException("The current log writer already holds text lines; setWriter a fresh destination before enabling the binary format");
+            }
+            writeDefinitions(destination.writer);
+            destination = new Destination(destination.writer, true);
+        }
+    }
+
+    // Changes the level of the root logger, which is used by log(...) and inherited by categories without a level.
+    public void setLevel(LogLevel level) {
+        synchronized(lock) {
+            root.setLevel(level);
+            categories.values().forEach(category -> category.setLevel(effectiveLevel(category.getName())));
+        }
+    }
+
+    // Changes the level of a category and of its sub-categories that do not have their own, at runtime.
+    public void setLevel(String category, LogLevel level) {
+        synchronized(lock) {
+            configuredLevels.put(category, level);
+            categories.values().forEach(each -> each.setLevel(effectiveLevel(each.getName())));
+        }
+    }
+
+    public LogLevel getLevel() {
+        return root.getLevel();
+    }
+
+    // Whether messages are also printed to System.out.
+    public void setConsoleEcho(boolean enabled) {
+        consoleEcho = enabled;
+    }
+
+    public boolean isEnabled(LogLevel level) {
+        return root.isEnabled(level);
+    }
+
+    // Writes out everything logged so far and closes the log file. Messages logged afterwards are discarded
+    // until setWriter installs a new destination.
+    public void shutdown() {
+        synchronized(lock) {
+            LogWriter previous = destination.writer;
+            destination = new Destination(DISCARD, destination.binary);
             try {
-                FileWriter fw = new FileWriter("log.txt", true);
-                String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
-                fw.write(timestamp + ": " + msg + "\n");
-                fw.close();
-                System.out.println(msg);
+                previous.flush();
+                previous.close();
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
         }
+    }
+
+    public void log(String msg){
+        root.log(LogLevel.INFO, msg);
+    }
+
+    // Parameterized messages: each "{}" in the pattern is replaced by the next argument. Arguments are only
+    // formatted here, on the logging thread, and straight into a reused buffer.
+    public void log(String pattern, Object arg){
+        root.log(LogLevel.INFO, pattern, arg);
+    }
+
+    public void log(String pattern, long arg){
+        root.log(LogLevel.INFO, pattern, arg);
+    }
+
+    public void log(String pattern, boolean arg){
+        root.log(LogLevel.INFO, pattern, arg);
+    }
+
+    public void log(String pattern, long first, long second){
+        root.log(LogLevel.INFO, pattern, first, second);
+    }
+
+    public void log(String pattern, Object... args){
+        root.log(LogLevel.INFO, pattern, args);
+    }
+
+    // The destination is read once here and the record goes to that writer in finish(), whatever setWriter,
+    // enableBinaryFormat or shutdown does while the arguments are appended.
+    LogLineBuffer begin(CategoryLogger category, LogLevel level, String pattern) {
+        Destination target = destination;
+        LogLineBuffer line = LogLineBuffer.acquire().writeTo(target.writer);
+        if(target.binary){
+            long epochNanos = epochNanosBase + (System.nanoTime() - nanoTimeBase);
+            int templateId = templateId(pattern);
+            line.beginEvent(epochNanos, level, category.getId(), templateId);
+            return templateId == BinaryLogFormat.INLINE_TEMPLATE ? line.inlineTemplate(pattern) : line;
+        }
+        line.append(timestamps.prefix(System.currentTimeMillis()));
+        line.markMessageStart();
+        line.append(category.header(level));
+        return line.beginText(pattern);
+    }
 
+    void finish(LogLineBuffer line) {
+        line.end();
+        LogWriter target = line.target();
+        try {
+            target.write(line.line());
+            if(!line.isBinary()){
+                if(!textWritten && destination.writer == target){
+                    textWritten = true;
+                }
+                if(consoleEcho){
+                    System.out.write(line.array(), line.messageStart(), line.length() - line.messageStart());
+                }
+            }
+        } catch (IOException e) {
+            // A message that raced with shutdown or setWriter found its writer already closed; it is discarded
+            // like any other message logged after shutdown.
+            if(destination.writer == target){
+                throw new RuntimeException(e);
+            }
+        } finally {
+            line.release();
+        }
+    }
+
+    private int templateId(String pattern) {
+        Integer id = templateIds.get(pattern);
+        if(id == null){
+            if(templateIds.size() >= MAX_TEMPLATES){
+                return BinaryLogFormat.INLINE_TEMPLATE;
+            }
+            // Defined under the lock, so the definition reaches the writer before any event that uses the id.
+            synchronized(lock) {
+                if(templateIds.size() >= MAX_TEMPLATES && !templateIds.containsKey(pattern)){
+                    return BinaryLogFormat.INLINE_TEMPLATE;
+                }
+                id = templateIds.computeIfAbsent(pattern, key -> {
+                    int created = templateIds.size();
+                    define(BinaryLogFormat.definition(BinaryLogFormat.DEFINE_TEMPLATE, created, key));
+                    return created;
+                });
+            }
+        }
+        return id;
+    }
+
+    private void define(byte[] definition) {
+        definitions.add(definition);
+        Destination target = destination;
+        if(target.binary){
+            writeDefinition(target.writer, definition);
+        }
+    }
+
+    private void writeDefinitions(LogWriter target) {
+        for(byte[] definition : definitions){
+            writeDefinition(target, definition);
+        }
+    }
+
+    private static void writeDefinition(LogWriter target, byte[] definition) {
+        try {
+            target.writeDefinition(ByteBuffer.wrap(definition));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private LogLevel effectiveLevel(String category) {
+        for(String name = category; ; name = name.substring(0, name.lastIndexOf('.'))){
+            LogLevel level = configuredLevels.get(name);
+            if(level != null){
+                return level;
+            }
+            if(name.lastIndexOf('.') < 0){
+                return root.getLevel();
+            }
+        }
     }
 }
@@ -0,0 +1,97 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+
+// Throughput of the log write path at increasing thread counts. "reopen-per-call" is the logger's original
+// path: under one lock, open log.txt for append, write the line and close it again. It is about a hundred
+// times slower, so it writes a hundredth of the messages. Prints one CSV row per run.
+//
+// Usage: LoggerBenchmark [messagesPerThread] [maxThreads]
+public class LoggerBenchmark {
+    private static final byte[] LINE = "2024-08-09 10:15:30: Thread 1 logging a message.\n".getBytes(StandardCharsets.UTF_8);
+
+    interface WriterFactory {
+        LogWriter create(Path file) throws IOException;
+    }
+
+    // The original Logger.log file handling, minus formatting and console output.
+    static class ReopeningLogWriter implements LogWriter {
+        private final Path file;
+
+        ReopeningLogWriter(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public synchronized void write(ByteBuffer record) throws IOException {
+            try(FileOutputStream out = new FileOutputStream(file.toFile(), true)){
+                out.getChannel().write(record);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int messagesPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        System.out.println("writer,threads,messagesPerSecond");
+        for(int threads = 1; threads <= maxThreads; threads *= 2){
+            run("reopen-per-call", threads, Math.max(1, messagesPerThread / 100), ReopeningLogWriter::new);
+            run("sync", threads, messagesPerThread, FileLogWriter::new);
+            run("async-block", threads, messagesPerThread,
+                    file -> new AsyncLogWriter(new FileLogWriter(file), 1 << 16, OverflowPolicy.BLOCK));
+            run("mapped-segments", threads, messagesPerThread,
+                    file -> new MappedSegmentLogWriter(segmentDirectory(file), 64 << 20, 1_000));
+        }
+    }
+
+    static void run(String name, int threads, int messagesPerThread, WriterFactory factory) throws Exception {
+        Path file = Files.createTempFile("logger-benchmark", ".log");
+        LogWriter writer = factory.create(file);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for(int t = 0; t < threads; t++){
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for(int i = 0; i < messagesPerThread; i++){
+                        writer.write(ByteBuffer.wrap(LINE));
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        writer.flush();
+        long elapsed = System.nanoTime() - begin;
+        writer.close();
+        Files.delete(file);
+        if(Files.isDirectory(segmentDirectory(file))){
+            for(Path segment : MappedSegmentLogWriter.segments(segmentDirectory(file))){
+                Files.delete(segment);
+            }
+            Files.delete(segmentDirectory(file));
+        }
+        System.out.printf("%s,%d,%.0f%n", name, threads, (double) threads * messagesPerThread * 1_000_000_000d / elapsed);
+    }
+
+    private static Path segmentDirectory(Path file) {
+        return file.resolveSibling(file.getFileName() + ".segments");
+    }
+}
@@ -0,0 +1,102 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Cost of a single Logger call on one thread: nanoseconds, bytes allocated and bytes written per call, in the
+// text format and then in the binary format. Output goes to a writer that only counts bytes and the console echo
+// goes to a null stream, so only the call path itself is measured. Prints one CSV row per variant.
+//
+// Usage: LoggerCallBenchmark [callsPerRun]
+public class LoggerCallBenchmark {
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final DiscardingWriter DISCARD = new DiscardingWriter();
+
+    interface Call {
+        void run(long i);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Logger logger = Logger.getInstance();
+        logger.setWriter(DISCARD);
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            console.println("call,nanosPerCall,allocatedBytesPerCall,writtenBytesPerCall");
+            // The line format Logger used before it formatted into reusable buffers.
+            run(console, "concat-baseline", calls, i -> {
+                String msg = "Order " + i + " filled";
+                String line = LocalDateTime.now().format(TIMESTAMP) + ": " + msg + "\n";
+                DISCARD.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+                System.out.println(msg);
+            });
+            run(console, "log-string", calls, i -> logger.log("Order filled"));
+            run(console, "log-pattern-long", calls, i -> logger.log("Order {} filled", i));
+            run(console, "log-pattern-two-longs", calls, i -> logger.log("Order {} filled at {}", i, i * 3));
+            run(console, "log-pattern-object", calls, i -> logger.log("Order {} filled", "ABC"));
+
+            CategoryLogger orders = logger.getLogger("orders.fills");
+            logger.setLevel("orders", LogLevel.INFO);
+            run(console, "category-info-pattern-long", calls, i -> orders.log(LogLevel.INFO, "Order {} filled", i));
+            // Disabled levels: the check is one volatile read and nothing is formatted.
+            run(console, "disabled-debug-string", calls, i -> orders.debug("Order filled"));
+            run(console, "disabled-debug-pattern-long", calls, i -> orders.log(LogLevel.DEBUG, "Order {} filled", i));
+            run(console, "disabled-debug-guarded-varargs", calls, i -> {
+                if(orders.isEnabled(LogLevel.DEBUG)){
+                    orders.log(LogLevel.DEBUG, "Order {} filled at {} by {}", i, i * 3, "ABC");
+                }
+            });
+
+            // Binary records need a writer that has not been given text lines yet; reinstalling it counts as fresh.
+            logger.setWriter(DISCARD);
+            logger.enableBinaryFormat();
+            run(console, "binary-log-string", calls, i -> logger.log("Order filled"));
+            run(console, "binary-log-pattern-long", calls, i -> logger.log("Order {} filled", i));
+            run(console, "binary-log-pattern-two-longs", calls, i -> logger.log("Order {} filled at {}", i, i * 3));
+            run(console, "binary-log-pattern-object", calls, i -> logger.log("Order {} filled", "ABC"));
+            run(console, "binary-category-info-pattern-long", calls, i -> orders.log(LogLevel.INFO, "Order {} filled", i));
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    static void run(PrintStream out, String name, int calls, Call call) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for(int i = 0; i < calls; i++){
+            call.run(i);
+        }
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long writtenBefore = DISCARD.written;
+        long begin = System.nanoTime();
+        for(int i = 0; i < calls; i++){
+            call.run(i);
+        }
+        long elapsed = System.nanoTime() - begin;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        long written = DISCARD.written - writtenBefore;
+        out.printf("%s,%.1f,%.2f,%.1f%n", name, (double) elapsed / calls, (double) allocated / calls, (double) written / calls);
+    }
+
+    static class DiscardingWriter implements LogWriter {
+        long written;
+
+        @Override
+        public void write(ByteBuffer record) {
+            written += record.remaining();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -24,5 +24,8 @@ public class Main {
         thread3.start();
         thread2.join();
         thread4.start();
+        thread3.join();
+        thread4.join();
+        Logger.getInstance().shutdown();
     }
 }
\ No newline at end of file
@@ -0,0 +1,262 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Writes records straight into memory-mapped segment files. Writers reserve space with one atomic add on the
+// segment's cursor and copy their bytes in, so a message costs no system call. When a reservation runs past
+// the end of the segment, the next segment is mapped. Dirty pages of every segment still being written or not
+// yet forced are forced to disk on a fixed schedule.
+//
+// Each record is framed as length(4) crc32c(4) followed by the record bytes, padded to 8 bytes. The header is
+// written last. Segments are preallocated, so a segment that was not closed cleanly ends in zero bytes, and a
+// writer that died between reserving and copying leaves a zero-filled hole. Readers take only frames whose
+// checksum matches and step over anything else 8 bytes at a time (see readSegment), so records may contain
+// zero bytes.
+public class MappedSegmentLogWriter implements LogWriter {
+    private static final String SEGMENT_PREFIX = "log-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int FRAME_HEADER = 8;
+    private static final int ALIGNMENT = 8;
+    // Parks a segment's cursor past any reservation once the writer is closed.
+    private static final long CLOSED = Long.MAX_VALUE / 2;
+    private static final ThreadLocal<CRC32C> CHECKSUMS = ThreadLocal.withInitial(CRC32C::new);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ScheduledExecutorService forcer;
+    // Segments that may hold pages not yet forced: the current one, and full ones until their last record is
+    // copied in and forced.
+    private final List<Segment> dirty = new CopyOnWriteArrayList<>();
+    private volatile Segment current;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    public MappedSegmentLogWriter(Path directory, int segmentSize, long forceIntervalMillis) throws IOException {
+        if(segmentSize <= FRAME_HEADER || segmentSize % ALIGNMENT != 0){
+            throw new IllegalArgumentException("Segment size must be a multiple of " + ALIGNMENT + " above " + FRAME_HEADER + ": " + segmentSize);
+        }
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.current = new Segment(directory.resolve(segmentName(nextSegmentIndex(directory))), segmentSize);
+        this.dirty.add(current);
+        this.forcer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-segment-force");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A scheduled task that throws is never run again, so a failed force is kept for flush to report and
+        // the next run tries again.
+        this.forcer.scheduleAtFixedRate(() -> {
+            try {
+                forceDirty();
+            } catch (RuntimeException e) {
+                failure = new IOException("Forcing log segments failed", e);
+            }
+        }, forceIntervalMillis, forceIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void write(ByteBuffer record) throws IOException {
+        int length = record.remaining();
+        int frame = frameSize(length);
+        if(frame > segmentSize){
+            throw new IOException("Record of " + length + " bytes does not fit in a " + segmentSize + " byte segment");
+        }
+        while(true){
+            Segment segment = current;
+            long offset = segment.cursor.getAndAdd(frame);
+            if(offset + frame <= segmentSize){
+                int at = (int) offset;
+                segment.buffer.put(at + FRAME_HEADER, record, record.position(), length);
+                CRC32C crc = CHECKSUMS.get();
+                crc.reset();
+                crc.update(record);
+                segment.buffer.putInt(at + 4, (int) crc.getValue());
+                segment.buffer.putInt(at, length);
+                segment.written.addAndGet(frame);
+                return;
+            }
+            // Everything before the first failed reservation is all this segment will ever hold.
+            segment.seal(offset);
+            roll(segment);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        IOException failed = failure;
+        if(failed != null){
+            failure = null;
+            throw failed;
+        }
+        try {
+            forceDirty();
+        } catch (RuntimeException e) {
+            throw new IOException("Forcing log segments failed", e);
+        }
+    }
+
+    // Stops new reservations and waits for the records already reserved to be copied in before forcing and
+    // trimming, so no writer can touch a segment after its file shrinks. Writes after close fail.
+    @Override
+    public synchronized void close() throws IOException {
+        if(closed){
+            return;
+        }
+        closed = true;
+        forcer.shutdown();
+        try {
+            forcer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Segment segment = current;
+        segment.seal(segment.cursor.getAndSet(CLOSED));
+        long end = segment.awaitWritten();
+        for(Segment other : dirty){
+            other.awaitWritten();
+            other.buffer.force();
+        }
+        dirty.clear();
+        // Trim the unused preallocated tail of a cleanly closed segment.
+        try(FileChannel channel = FileChannel.open(segment.file, StandardOpenOption.WRITE)){
+            channel.truncate(end);
+        }
+    }
+
+    // Records of every segment in the directory, oldest first, with the framing removed and concatenated.
+    public static byte[] readAll(Path directory) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for(Path segment : segments(directory)){
+            out.write(readSegment(segment));
+        }
+        return out.toByteArray();
+    }
+
+    // Records of one segment in write order, concatenated. Holes and a torn or unwritten tail are skipped.
+    public static byte[] readSegment(Path segment) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(segment));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CRC32C crc = new CRC32C();
+        int position = 0;
+        while(position + FRAME_HEADER <= data.limit()){
+            int length = data.getInt(position);
+            if(length > 0 && length <= data.limit() - position - FRAME_HEADER){
+                crc.reset();
+                crc.update(data.slice(position + FRAME_HEADER, length));
+                if((int) crc.getValue() == data.getInt(position + 4)){
+                    out.write(data.array(), position + FRAME_HEADER, length);
+                    position += frameSize(length);
+                    continue;
+                }
+            }
+            position += ALIGNMENT;
+        }
+        return out.toByteArray();
+    }
+
+    public static List<Path> segments(Path directory) throws IOException {
+        try(Stream<Path> files = Files.list(directory)){
+            return files.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private synchronized void roll(Segment full) throws IOException {
+        if(closed){
+            throw new ClosedChannelException();
+        }
+        if(current != full){
+            return;
+        }
+        Segment next = new Segment(directory.resolve(segmentName(full.index + 1)), segmentSize);
+        dirty.add(next);
+        current = next;
+    }
+
+    // A full segment leaves the dirty list once its last record is copied in and forced after that.
+    private void forceDirty() {
+        for(Segment segment : dirty){
+            boolean complete = segment != current && segment.isWritten();
+            segment.buffer.force();
+            if(complete){
+                dirty.remove(segment);
+            }
+        }
+    }
+
+    private static int frameSize(int length) {
+        return (FRAME_HEADER + length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    private static int nextSegmentIndex(Path directory) throws IOException {
+        List<Path> existing = segments(directory);
+        if(existing.isEmpty()){
+            return 0;
+        }
+        String last = existing.get(existing.size() - 1).getFileName().toString();
+        return Integer.parseInt(last.substring(SEGMENT_PREFIX.length(), last.length() - SEGMENT_SUFFIX.length())) + 1;
+    }
+
+    private static String segmentName(int index) {
+        return String.format("%s%08d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+    }
+
+    private static class Segment {
+        final Path file;
+        final int index;
+        final MappedByteBuffer buffer;
+        final AtomicLong cursor = new AtomicLong();
+        // Bytes of the reservations copied in so far.
+        final AtomicLong written = new AtomicLong();
+        // Where the segment's records end, known once a reservation failed or the writer closed.
+        final AtomicLong end = new AtomicLong(Long.MAX_VALUE);
+
+        // The mapping stays valid after the channel is closed, so no file descriptor is held per segment.
+        Segment(Path file, int size) throws IOException {
+            String name = file.getFileName().toString();
+            this.file = file;
+            this.index = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+
+        // Every reservation below offset succeeded and every one from it failed, so the smallest offset seen
+        // is where the records end.
+        void seal(long offset) {
+            end.accumulateAndGet(Math.min(offset, buffer.capacity()), Math::min);
+        }
+
+        boolean isWritten() {
+            long sealedAt = end.get();
+            return sealedAt != Long.MAX_VALUE && written.get() >= sealedAt;
+        }
+
+        long awaitWritten() {
+            while(!isWritten()){
+                Thread.onSpinWait();
+            }
+            return end.get();
+        }
+    }
+}
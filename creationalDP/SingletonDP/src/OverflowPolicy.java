@@ -0,0 +1,6 @@
+// What AsyncLogWriter does with a message when its ring buffer is full.
+public enum OverflowPolicy {
+    BLOCK,
+    DROP,
+    SAMPLE
+}
@@ -0,0 +1,258 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+// Appends to a file at a configurable base path and rolls it once it has reached maxBytes or has been open for
+// rollIntervalMillis. Rolling renames the file to "<base>.<n>" (n keeps increasing across restarts) and opens a
+// fresh base file. Only the write that crosses the limit pays for the rename and open; writes racing with it
+// still land in the old file. Closing, gzipping ("<base>.<n>.gz") and deleting rolled files beyond the
+// retention count happen on a background thread, so the write path never waits for them; if that fails, the
+// next flush or close reports it. Binary format definitions are repeated at the top of every new base file, so
+// each file still decodes after the ones before it were deleted.
+public class RollingFileLogWriter implements LogWriter {
+    private final Path basePath;
+    private final long maxBytes;
+    private final long rollIntervalMillis;
+    private final int retainedFiles;
+    private final ExecutorService compressor;
+    private final AtomicInteger nextIndex;
+    // Every definition written so far, guarded by this writer's monitor like roll.
+    private final List<byte[]> definitions = new ArrayList<>();
+    private volatile Active current;
+    private volatile IOException failure;
+
+    // An open base file. Writers register in inFlight before using the channel, so the compressor only closes
+    // it once every write that started on it has finished.
+    private static class Active {
+        final FileChannel channel;
+        final long openedAt;
+        final AtomicLong size;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicBoolean rolling = new AtomicBoolean();
+
+        Active(FileChannel channel, long openedAt, long size) {
+            this.channel = channel;
+            this.openedAt = openedAt;
+            this.size = new AtomicLong(size);
+        }
+    }
+
+    // rollIntervalMillis <= 0 disables time-based rolling; retainedFiles is the number of rolled files kept.
+    public RollingFileLogWriter(Path basePath, long maxBytes, long rollIntervalMillis, int retainedFiles) throws IOException {
+        Path parent = basePath.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        this.basePath = basePath;
+        this.maxBytes = maxBytes;
+        this.rollIntervalMillis = rollIntervalMillis;
+        this.retainedFiles = retainedFiles;
+        this.nextIndex = new AtomicInteger(highestRolledIndex(basePath) + 1);
+        this.current = open();
+        this.compressor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-roll-compress");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void write(ByteBuffer record) throws IOException {
+        int length = record.remaining();
+        while(true){
+            Active active = current;
+            active.inFlight.incrementAndGet();
+            try {
+                if(active != current){
+                    // Rolled in the meantime; the compressor may already be closing this channel.
+                    continue;
+                }
+                while(record.hasRemaining()){
+                    active.channel.write(record);
+                }
+            } finally {
+                active.inFlight.decrementAndGet();
+            }
+            long size = active.size.addAndGet(length);
+            if(shouldRoll(active, size) && active.rolling.compareAndSet(false, true)){
+                try {
+                    roll(active);
+                } catch (IOException | RuntimeException e) {
+                    // Nothing was rolled, so a later write tries again.
+                    active.rolling.set(false);
+                    throw e;
+                }
+            }
+            return;
+        }
+    }
+
+    // Kept for the files opened from now on, and written to the current one under the monitor, so a roll cannot
+    // open a file that misses it.
+    @Override
+    public synchronized void writeDefinition(ByteBuffer definition) throws IOException {
+        byte[] copy = new byte[definition.remaining()];
+        definition.get(definition.position(), copy);
+        definitions.add(copy);
+        write(definition);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        throwIfFailed();
+        current.channel.force(false);
+    }
+
+    // Closes the base file and waits for pending compression. The base file is left in place, not rolled.
+    @Override
+    public synchronized void close() throws IOException {
+        Active active = current;
+        awaitWriters(active);
+        active.channel.close();
+        compressor.shutdown();
+        try {
+            compressor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throwIfFailed();
+    }
+
+    public Path getBasePath() {
+        return basePath;
+    }
+
+    // Rolled files of a base path, oldest first, compressed or not.
+    public static List<Path> rolledFiles(Path basePath) throws IOException {
+        Path directory = basePath.toAbsolutePath().getParent();
+        String prefix = basePath.getFileName() + ".";
+        try(Stream<Path> files = Files.list(directory)){
+            return files.filter(file -> rolledIndex(file, prefix) >= 0)
+                    .sorted(Comparator.comparingInt(file -> rolledIndex(file, prefix)))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private boolean shouldRoll(Active active, long size) {
+        return size >= maxBytes || (rollIntervalMillis > 0 && System.currentTimeMillis() - active.openedAt >= rollIntervalMillis);
+    }
+
+    private synchronized void roll(Active full) throws IOException {
+        Path rolled = basePath.resolveSibling(basePath.getFileName() + "." + nextIndex.getAndIncrement());
+        // The old channel keeps writing to the renamed file until its last in-flight write is done.
+        Files.move(basePath, rolled);
+        Active next;
+        try {
+            next = open();
+        } catch (IOException e) {
+            // Put the file back, so writes go on in it and a later write can roll again.
+            try {
+                Files.move(rolled, basePath);
+            } catch (IOException moveBack) {
+                e.addSuppressed(moveBack);
+            }
+            throw e;
+        }
+        current = next;
+        compressor.execute(() -> {
+            try {
+                awaitWriters(full);
+                full.channel.close();
+                compress(rolled);
+                deleteExpired();
+            } catch (IOException | RuntimeException e) {
+                failure = new IOException("Closing or compressing rolled log file " + rolled + " failed", e);
+            }
+        });
+    }
+
+    private Active open() throws IOException {
+        FileChannel channel = FileChannel.open(basePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        try {
+            for(byte[] definition : definitions){
+                ByteBuffer record = ByteBuffer.wrap(definition);
+                while(record.hasRemaining()){
+                    channel.write(record);
+                }
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new Active(channel, System.currentTimeMillis(), channel.size());
+    }
+
+    private void throwIfFailed() throws IOException {
+        IOException e = failure;
+        if(e != null){
+            throw e;
+        }
+    }
+
+    private static void awaitWriters(Active active) {
+        while(active.inFlight.get() != 0){
+            LockSupport.parkNanos(10_000);
+        }
+    }
+
+    private static void compress(Path rolled) throws IOException {
+        if(!Files.exists(rolled)){
+            // Already past the retention count while it waited in the queue.
+            return;
+        }
+        Path compressed = rolled.resolveSibling(rolled.getFileName() + ".gz");
+        try(InputStream in = Files.newInputStream(rolled);
+            OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed), 1 << 16)){
+            in.transferTo(out);
+        }
+        Files.delete(rolled);
+    }
+
+    private void deleteExpired() throws IOException {
+        List<Path> rolled = rolledFiles(basePath);
+        for(int i = 0; i < rolled.size() - retainedFiles; i++){
+            Files.deleteIfExists(rolled.get(i));
+        }
+    }
+
+    private static int highestRolledIndex(Path basePath) throws IOException {
+        Path directory = basePath.toAbsolutePath().getParent();
+        if(!Files.isDirectory(directory)){
+            return 0;
+        }
+        List<Path> rolled = rolledFiles(basePath);
+        return rolled.isEmpty() ? 0 : rolledIndex(rolled.get(rolled.size() - 1), basePath.getFileName() + ".");
+    }
+
+    // n for "<base>.<n>" or "<base>.<n>.gz", otherwise -1.
+    private static int rolledIndex(Path file, String prefix) {
+        String name = file.getFileName().toString();
+        if(!name.startsWith(prefix)){
+            return -1;
+        }
+        String index = name.substring(prefix.length());
+        if(index.endsWith(".gz")){
+            index = index.substring(0, index.length() - 3);
+        }
+        if(index.isEmpty() || index.length() > 9 || !index.chars().allMatch(Character::isDigit)){
+            return -1;
+        }
+        return Integer.parseInt(index);
+    }
+}
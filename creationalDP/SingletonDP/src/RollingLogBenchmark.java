@@ -0,0 +1,79 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+// Per-write latency of RollingFileLogWriter, rolling every few hundred KB, against a FileLogWriter that never
+// rolls. Several threads write at once so rolls happen under concurrent writes. Prints one CSV row per run.
+//
+// Usage: RollingLogBenchmark [messagesPerThread] [threads] [maxBytes]
+public class RollingLogBenchmark {
+
+    interface WriterFactory {
+        LogWriter create(Path directory) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int messagesPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        long maxBytes = args.length > 2 ? Long.parseLong(args[2]) : 256 << 10;
+        System.out.println("writer,threads,files,p50Nanos,p99Nanos,p999Nanos,maxNanos");
+        run("single-file", threads, messagesPerThread, directory -> new FileLogWriter(directory.resolve("app.log")));
+        run("rolling", threads, messagesPerThread,
+                directory -> new RollingFileLogWriter(directory.resolve("app.log"), maxBytes, 0, Integer.MAX_VALUE));
+    }
+
+    static void run(String name, int threads, int messagesPerThread, WriterFactory factory) throws Exception {
+        Path directory = Files.createTempDirectory("rolling-benchmark");
+        LogWriter writer = factory.create(directory);
+        long[][] latencies = new long[threads][messagesPerThread];
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for(int t = 0; t < threads; t++){
+            int thread = t;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for(int i = 0; i < messagesPerThread; i++){
+                        ByteBuffer line = ByteBuffer.wrap(("thread " + thread + " message " + i + "\n").getBytes(StandardCharsets.UTF_8));
+                        long begin = System.nanoTime();
+                        writer.write(line);
+                        latencies[thread][i] = System.nanoTime() - begin;
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        writer.close();
+
+        List<Path> files = files(directory);
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%s,%d,%d,%d,%d,%d,%d%n", name, threads, files.size(),
+                percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999), all[all.length - 1]);
+        for(Path file : files){
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    private static List<Path> files(Path directory) throws IOException {
+        try(Stream<Path> files = Files.list(directory)){
+            return files.collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+}
@@ -0,0 +1,34 @@
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+// The "yyyy-MM-dd HH:mm:ss: " prefix only changes once a second, so it is rendered once and shared by every
+// line logged within that second.
+class TimestampCache {
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final class Entry {
+        final long second;
+        final byte[] prefix;
+
+        Entry(long second, byte[] prefix) {
+            this.second = second;
+            this.prefix = prefix;
+        }
+    }
+
+    private volatile Entry entry = new Entry(Long.MIN_VALUE, new byte[0]);
+
+    byte[] prefix(long epochMillis) {
+        long second = Math.floorDiv(epochMillis, 1000);
+        Entry current = entry;
+        if(current.second != second){
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault());
+            current = new Entry(second, (time.format(TIMESTAMP) + ": ").getBytes(StandardCharsets.UTF_8));
+            entry = current;
+        }
+        return current.prefix;
+    }
+}
@@ -0,0 +1,152 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class AsyncLogWriterTest {
+
+    // Records each call as "E:" or "D:" followed by the bytes, with the thread it came from. The first write
+    // can be made to throw.
+    static class RecordingWriter implements LogWriter {
+        final List<String> calls = new ArrayList<>();
+        final List<String> threads = new ArrayList<>();
+        Throwable failFirstWrite;
+
+        @Override
+        public synchronized void write(ByteBuffer record) {
+            Throwable failure = failFirstWrite;
+            if(failure != null){
+                failFirstWrite = null;
+                if(failure instanceof Error){
+                    throw (Error) failure;
+                }
+                throw (RuntimeException) failure;
+            }
+            record("E:", record);
+        }
+
+        @Override
+        public synchronized void writeDefinition(ByteBuffer definition) {
+            record("D:", definition);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        synchronized List<String> calls() {
+            return new ArrayList<>(calls);
+        }
+
+        private void record(String kind, ByteBuffer bytes) {
+            byte[] copy = new byte[bytes.remaining()];
+            bytes.get(copy);
+            calls.add(kind + new String(copy, StandardCharsets.UTF_8));
+            threads.add(Thread.currentThread().getName());
+        }
+    }
+
+    private static ByteBuffer text(String line) {
+        return ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testDefinitionsGoThroughTheWriterThreadInOrder() throws IOException {
+        RecordingWriter delegate = new RecordingWriter();
+        AsyncLogWriter writer = new AsyncLogWriter(delegate, 16, OverflowPolicy.DROP);
+        writer.write(text("first"));
+        writer.writeDefinition(text("template"));
+        writer.write(text("second"));
+        writer.close();
+
+        Assertions.assertEquals(List.of("E:first", "D:template", "E:second"), delegate.calls());
+        Assertions.assertEquals(List.of("async-log-writer", "async-log-writer", "async-log-writer"), delegate.threads);
+    }
+
+    @Test
+    public void testRuntimeFailureInTheDelegateIsReportedAndWritingGoesOn() throws IOException {
+        RecordingWriter delegate = new RecordingWriter();
+        delegate.failFirstWrite = new IllegalStateException("disk gone");
+        AsyncLogWriter writer = new AsyncLogWriter(delegate, 4, OverflowPolicy.BLOCK);
+        writer.write(text("lost"));
+        IOException reported = Assertions.assertThrows(IOException.class, writer::flush);
+        Assertions.assertInstanceOf(IllegalStateException.class, reported.getCause());
+
+        // More than the ring holds, so the producer needs the writer thread to still be draining.
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for(int i = 0; i < 100; i++){
+                writer.write(text("kept"));
+            }
+            Assertions.assertThrows(IOException.class, writer::flush);
+        });
+        Assertions.assertEquals(100, delegate.calls().stream().mapToInt(call -> (call.length() - 2) / 4).sum());
+    }
+
+    @Test
+    public void testDeadWriterThreadFailsProducersInsteadOfBlockingThem() {
+        RecordingWriter delegate = new RecordingWriter();
+        delegate.failFirstWrite = new AssertionError("writer thread killed");
+        AsyncLogWriter writer = new AsyncLogWriter(delegate, 2, OverflowPolicy.BLOCK);
+
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            IOException failed = Assertions.assertThrows(IOException.class, () -> {
+                while(true){
+                    writer.write(text("x"));
+                }
+            });
+            Assertions.assertInstanceOf(AssertionError.class, failed.getCause().getCause());
+            Assertions.assertThrows(IOException.class, () -> writer.writeDefinition(text("template")));
+            Assertions.assertThrows(IOException.class, writer::flush);
+            Assertions.assertThrows(IOException.class, writer::close);
+        });
+    }
+
+    @Test
+    public void testDefinitionIsNotDroppedWhenTheRingIsFull() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingWriter delegate = new RecordingWriter() {
+            @Override
+            public void write(ByteBuffer record) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(record);
+            }
+        };
+        AsyncLogWriter writer = new AsyncLogWriter(delegate, 2, OverflowPolicy.DROP);
+        writer.write(text("held"));
+        entered.await();
+        // The writer thread copied "held" out of the ring before writing it, so the ring has room for two.
+        writer.write(text("one"));
+        writer.write(text("two"));
+        writer.write(text("dropped"));
+        Assertions.assertEquals(1, writer.getDroppedCount());
+
+        Thread definer = new Thread(() -> {
+            try {
+                writer.writeDefinition(text("template"));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        definer.start();
+        release.countDown();
+        definer.join();
+        writer.close();
+        Assertions.assertEquals(List.of("E:held", "E:onetwo", "D:template"), delegate.calls());
+    }
+}
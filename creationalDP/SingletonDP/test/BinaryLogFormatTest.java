@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BinaryLogFormatTest {
+
+    private static List<LogDecoder.Event> decode(LoggerTest.CapturingWriter writer) throws IOException {
+        List<LogDecoder.Event> events = new ArrayList<>();
+        new LogDecoder().decode(ByteBuffer.wrap(writer.bytes.toByteArray()), events::add);
+        return events;
+    }
+
+    private static Logger binaryLogger(LoggerTest.CapturingWriter writer) {
+        Logger logger = new Logger(writer);
+        logger.setConsoleEcho(false);
+        logger.enableBinaryFormat();
+        return logger;
+    }
+
+    @Test
+    public void testEventsRoundTripThroughDecoder() throws IOException {
+        LoggerTest.CapturingWriter writer = new LoggerTest.CapturingWriter();
+        Logger logger = binaryLogger(writer);
+        CategoryLogger orders = logger.getLogger("orders.fills");
+        logger.setLevel("orders", LogLevel.DEBUG);
+
+        logger.log("plain message");
+        logger.log("Order {} filled at {}", 7L, -21L);
+        logger.log("flag {}", true);
+        logger.log("{} and {} for {}", "caf\u00e9 \uD83D\uDE00", null, 3);
+        orders.log(LogLevel.WARN, "late fill {}", Long.MIN_VALUE);
+        orders.debug("debug line");
+
+        List<LogDecoder.Event> events = decode(writer);
+        Assertions.assertEquals(6, events.size());
+        Assertions.assertEquals("plain message", events.get(0).message());
+        Assertions.assertEquals("Order {} filled at {}", events.get(1).getTemplate());
+        Assertions.assertEquals(Arrays.asList(7L, -21L), events.get(1).getArgs());
+        Assertions.assertEquals("Order 7 filled at -21", events.get(1).message());
+        Assertions.assertEquals(List.of(true), events.get(2).getArgs());
+        Assertions.assertEquals(Arrays.asList("caf\u00e9 \uD83D\uDE00", null, 3L), events.get(3).getArgs());
+        Assertions.assertEquals(LogLevel.WARN, events.get(4).getLevel());
+        Assertions.assertEquals("orders.fills", events.get(4).getCategory());
+        Assertions.assertEquals("late fill " + Long.MIN_VALUE, events.get(4).message());
+        Assertions.assertEquals(LogLevel.DEBUG, events.get(5).getLevel());
+        Assertions.assertEquals("debug line", events.get(5).message());
+        Assertions.assertTrue(events.get(0).toText().endsWith(": plain message"));
+        Assertions.assertTrue(events.get(4).toText().endsWith(": WARN orders.fills - late fill " + Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testBinaryAfterTextNeedsAFreshWriter() throws IOException {
+        LoggerTest.CapturingWriter text = new LoggerTest.CapturingWriter();
+        Logger logger = new Logger(text);
+        logger.setConsoleEcho(false);
+        logger.log("a text line");
+        Assertions.assertThrows(IllegalStateException.class, logger::enableBinaryFormat);
+
+        LoggerTest.CapturingWriter fresh = new LoggerTest.CapturingWriter();
+        logger.setWriter(fresh);
+        logger.enableBinaryFormat();
+        logger.log("binary {}", 1L);
+        List<LogDecoder.Event> events = decode(fresh);
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals("binary 1", events.get(0).message());
+    }
+
+    @Test
+    public void testPatternsBeyondTheTemplateLimitAreCarriedInline() throws IOException {
+        LoggerTest.CapturingWriter writer = new LoggerTest.CapturingWriter();
+        Logger logger = binaryLogger(writer);
+        int patterns = Logger.MAX_TEMPLATES + 100;
+        for(int i = 0; i < patterns; i++){
+            logger.log("pattern " + i + " value {}", (long) i);
+        }
+        logger.log("pattern 0 value {}", 42L);
+
+        List<LogDecoder.Event> events = decode(writer);
+        Assertions.assertEquals(patterns + 1, events.size());
+        for(int i = 0; i < patterns; i++){
+            Assertions.assertEquals("pattern " + i + " value {}", events.get(i).getTemplate());
+            Assertions.assertEquals(List.of((long) i), events.get(i).getArgs());
+        }
+        Assertions.assertEquals("pattern 0 value 42", events.get(patterns).message());
+        // Only the first MAX_TEMPLATES patterns were defined; the rest travel with their events.
+        byte[] bytes = writer.bytes.toByteArray();
+        int definitions = 0;
+        for(int i = 0; i + 1 < bytes.length; i++){
+            if(bytes[i] == BinaryLogFormat.DEFINE_TEMPLATE && bytes[i + 1] == 0 && i + 9 < bytes.length
+                    && new String(bytes, i + 9, Math.min(8, bytes.length - i - 9)).equals("pattern ")){
+                definitions++;
+            }
+        }
+        Assertions.assertEquals(Logger.MAX_TEMPLATES, definitions);
+    }
+
+    @Test
+    public void testMoreThan255ArgumentsAreKept() throws IOException {
+        LoggerTest.CapturingWriter writer = new LoggerTest.CapturingWriter();
+        Logger logger = binaryLogger(writer);
+        Object[] args = new Object[300];
+        StringBuilder pattern = new StringBuilder();
+        for(int i = 0; i < args.length; i++){
+            args[i] = (long) i;
+            pattern.append("{} ");
+        }
+        logger.log(pattern.toString(), args);
+
+        List<LogDecoder.Event> events = decode(writer);
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals(300, events.get(0).getArgs().size());
+        Assertions.assertEquals(299L, events.get(0).getArgs().get(299));
+    }
+
+    @Test
+    public void testCorruptLevelIsReported() {
+        ByteBuffer data = ByteBuffer.allocate(64);
+        data.put(BinaryLogFormat.definition(BinaryLogFormat.DEFINE_TEMPLATE, 0, "x"));
+        data.put(BinaryLogFormat.EVENT).putLong(0).put((byte) 99).putInt(0).putInt(0).putInt(0);
+        data.flip();
+        IOException e = Assertions.assertThrows(IOException.class, () -> new LogDecoder().decode(data, event -> { }));
+        Assertions.assertTrue(e.getMessage().contains("level"));
+    }
+}
@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class LazyFileLogWriterTest {
+
+    @TempDir
+    Path directory;
+
+    private static ByteBuffer text(String line) {
+        return ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testFileIsOpenedByFirstWrite() throws IOException {
+        Path file = directory.resolve("log.txt");
+        LazyFileLogWriter writer = new LazyFileLogWriter(file);
+        Assertions.assertFalse(Files.exists(file));
+
+        writer.write(text("first\n"));
+        writer.write(text("second\n"));
+        writer.close();
+        Assertions.assertEquals("first\nsecond\n", Files.readString(file));
+    }
+
+    @Test
+    public void testFailedOpenFailsTheWriteAndIsRetried() throws IOException {
+        Path missing = directory.resolve("not-yet");
+        LazyFileLogWriter writer = new LazyFileLogWriter(missing.resolve("log.txt"));
+        Assertions.assertThrows(IOException.class, () -> writer.write(text("lost\n")));
+
+        Files.createDirectories(missing);
+        writer.write(text("kept\n"));
+        writer.close();
+        Assertions.assertEquals("kept\n", Files.readString(missing.resolve("log.txt")));
+        Assertions.assertThrows(IOException.class, () -> writer.write(text("after close\n")));
+    }
+
+    @Test
+    public void testCloseBeforeAnyWriteCreatesNoFile() throws IOException {
+        Path file = directory.resolve("log.txt");
+        LazyFileLogWriter writer = new LazyFileLogWriter(file);
+        writer.flush();
+        writer.close();
+        Assertions.assertFalse(Files.exists(file));
+    }
+}
@@ -0,0 +1,178 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+public class LoggerTest {
+
+    // Collects everything written to it as text.
+    static class CapturingWriter implements LogWriter {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        volatile boolean closed;
+
+        @Override
+        public synchronized void write(ByteBuffer record) {
+            Assertions.assertFalse(closed, "write after close");
+            while (record.hasRemaining()) {
+                bytes.write(record.get());
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        synchronized String text() {
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testLogAfterShutdownIsDiscarded() {
+        Logger logger = Logger.getInstance();
+        CapturingWriter writer = new CapturingWriter();
+        logger.setWriter(writer);
+        logger.setConsoleEcho(false);
+        logger.log("before shutdown");
+        logger.shutdown();
+        Assertions.assertTrue(writer.closed);
+
+        logger.log("after shutdown");
+        logger.log("after {}", 42L);
+        Assertions.assertTrue(writer.text().contains("before shutdown"));
+        Assertions.assertFalse(writer.text().contains("after"));
+
+        CapturingWriter next = new CapturingWriter();
+        logger.setWriter(next);
+        logger.log("logging again");
+        Assertions.assertTrue(next.text().contains("logging again"));
+    }
+
+    @Test
+    public void testEnableAsyncTurnsConsoleEchoOff() {
+        Logger logger = Logger.getInstance();
+        CapturingWriter writer = new CapturingWriter();
+        logger.setWriter(writer);
+        logger.setConsoleEcho(true);
+        logger.enableAsync(1024, OverflowPolicy.BLOCK);
+
+        PrintStream console = System.out;
+        ByteArrayOutputStream echoed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(echoed, true, StandardCharsets.UTF_8));
+        try {
+            logger.log("quiet message");
+            logger.shutdown();
+        } finally {
+            System.setOut(console);
+        }
+        Assertions.assertEquals("", echoed.toString(StandardCharsets.UTF_8));
+        Assertions.assertTrue(writer.text().contains("quiet message"));
+    }
+
+    @Test
+    public void testMessagesLoggedAtOffAreNeverWritten() {
+        CapturingWriter writer = new CapturingWriter();
+        Logger logger = new Logger(writer);
+        logger.setConsoleEcho(false);
+        CategoryLogger orders = logger.getLogger("orders");
+        int definitions = writer.bytes.size();
+
+        logger.setLevel("orders", LogLevel.OFF);
+        orders.log(LogLevel.OFF, "silenced");
+        orders.log(LogLevel.OFF, "silenced {}", 1L);
+        orders.error("silenced too");
+        Assertions.assertFalse(orders.isEnabled(LogLevel.OFF));
+
+        logger.setLevel("orders", LogLevel.TRACE);
+        orders.log(LogLevel.OFF, "not a message level");
+        Assertions.assertFalse(orders.isEnabled(LogLevel.OFF));
+        Assertions.assertFalse(logger.isEnabled(LogLevel.OFF));
+        Assertions.assertEquals(definitions, writer.bytes.size());
+
+        orders.info("written");
+        Assertions.assertTrue(writer.text().contains("written"));
+        Assertions.assertFalse(writer.text().contains("silenced"));
+        Assertions.assertFalse(writer.text().contains("not a message level"));
+    }
+
+    // An argument whose toString() installs a binary writer: the text line was begun for the old writer, so it is
+    // discarded with that writer rather than written into the binary one.
+    @Test
+    public void testLineGoesToTheWriterItWasBegunFor() {
+        ByteArrayOutputStream firstBytes = new ByteArrayOutputStream();
+        LogWriter first = new LogWriter() {
+            boolean closed;
+
+            @Override
+            public synchronized void write(ByteBuffer record) throws IOException {
+                if(closed){
+                    throw new IOException("closed");
+                }
+                firstBytes.write(record.array(), record.position(), record.remaining());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public synchronized void close() {
+                closed = true;
+            }
+        };
+        CapturingWriter second = new CapturingWriter();
+        Logger logger = new Logger(first);
+        logger.setConsoleEcho(false);
+        Object swapping = new Object() {
+            @Override
+            public String toString() {
+                logger.setWriter(second);
+                logger.enableBinaryFormat();
+                return "swapped";
+            }
+        };
+
+        logger.log("line {}", swapping);
+        Assertions.assertEquals(0, firstBytes.size());
+        Assertions.assertFalse(second.text().contains("line"));
+        logger.log("after {}", 1L);
+        Assertions.assertTrue(second.text().contains("after {}"));
+    }
+
+    @Test
+    public void testThreadsRacingOnFirstAccessGetOneLogger() throws InterruptedException {
+        int threads = 16;
+        Set<Logger> seen = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for(int t = 0; t < threads; t++){
+            new Thread(() -> {
+                try {
+                    start.await();
+                    seen.add(Logger.getInstance());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        Assertions.assertEquals(1, seen.size());
+        Assertions.assertSame(Logger.getInstance(), seen.iterator().next());
+    }
+}
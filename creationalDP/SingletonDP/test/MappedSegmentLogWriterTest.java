@@ -0,0 +1,122 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class MappedSegmentLogWriterTest {
+
+    @TempDir
+    Path directory;
+
+    private static ByteBuffer text(String line) {
+        return ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String readAllText() throws IOException {
+        return new String(MappedSegmentLogWriter.readAll(directory), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testRecordsAreReadableAfterUncleanShutdown() throws IOException {
+        // Never closed, as if the process died: the segment keeps its preallocated zero tail.
+        MappedSegmentLogWriter crashed = new MappedSegmentLogWriter(directory, 512, 60_000);
+        for(int i = 0; i < 100; i++){
+            crashed.write(text("line " + i + "\n"));
+        }
+
+        MappedSegmentLogWriter restarted = new MappedSegmentLogWriter(directory, 512, 60_000);
+        restarted.write(text("after restart\n"));
+        restarted.close();
+
+        StringBuilder expected = new StringBuilder();
+        for(int i = 0; i < 100; i++){
+            expected.append("line ").append(i).append('\n');
+        }
+        expected.append("after restart\n");
+        Assertions.assertEquals(expected.toString(), readAllText());
+        Assertions.assertTrue(MappedSegmentLogWriter.segments(directory).size() > 2);
+    }
+
+    @Test
+    public void testHoleLeftByDeadWriterIsSkipped() throws IOException {
+        MappedSegmentLogWriter writer = new MappedSegmentLogWriter(directory, 4096, 60_000);
+        writer.write(text("first\n"));
+        writer.write(text("second\n"));
+        writer.write(text("third\n"));
+        writer.close();
+
+        // "first\n" takes one 16 byte frame; wipe the frame after it, as if its writer died before copying.
+        Path segment = MappedSegmentLogWriter.segments(directory).get(0);
+        try(FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)){
+            channel.write(ByteBuffer.allocate(16), 16);
+        }
+        Assertions.assertEquals("first\nthird\n", readAllText());
+    }
+
+    @Test
+    public void testBinaryRecordsKeepZeroBytes() throws IOException {
+        byte[] record = {0, 1, 0, 0, 2, 0, 0, 0, 0, 0, 0, 0, 3, 0};
+        MappedSegmentLogWriter writer = new MappedSegmentLogWriter(directory, 64, 60_000);
+        for(int i = 0; i < 10; i++){
+            writer.write(ByteBuffer.wrap(record));
+        }
+        writer.close();
+
+        byte[] read = MappedSegmentLogWriter.readAll(directory);
+        Assertions.assertEquals(10 * record.length, read.length);
+        for(int i = 0; i < read.length; i++){
+            Assertions.assertEquals(record[i % record.length], read[i]);
+        }
+    }
+
+    @Test
+    public void testCloseWhileWritingKeepsEveryAcceptedRecord() throws Exception {
+        MappedSegmentLogWriter writer = new MappedSegmentLogWriter(directory, 1024, 1);
+        int threads = 4;
+        Set<String> accepted = ConcurrentHashMap.newKeySet();
+        AtomicReference<Throwable> unexpected = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for(int t = 0; t < threads; t++){
+            int thread = t;
+            new Thread(() -> {
+                started.countDown();
+                try {
+                    for(int i = 0; ; i++){
+                        String line = thread + ":" + i + "\n";
+                        writer.write(text(line));
+                        accepted.add(line);
+                    }
+                } catch (IOException e) {
+                    // Closed under us, which is the point of the test.
+                } catch (Throwable e) {
+                    unexpected.set(e);
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        started.await();
+        Thread.sleep(50);
+        writer.close();
+        done.await();
+
+        Assertions.assertNull(unexpected.get());
+        Set<String> read = new HashSet<>();
+        for(String line : readAllText().split("(?<=\n)")){
+            Assertions.assertTrue(read.add(line), "duplicate " + line);
+        }
+        Assertions.assertEquals(accepted, read);
+    }
+}
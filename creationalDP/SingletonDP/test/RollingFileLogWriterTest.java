@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+public class RollingFileLogWriterTest {
+
+    @TempDir
+    Path directory;
+
+    private static ByteBuffer text(String line) {
+        return ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] read(Path file) throws IOException {
+        if(!file.getFileName().toString().endsWith(".gz")){
+            return Files.readAllBytes(file);
+        }
+        try(InputStream in = new GZIPInputStream(Files.newInputStream(file))){
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testConcurrentRollsKeepEveryLineOnce() throws Exception {
+        Path base = directory.resolve("app.log");
+        RollingFileLogWriter writer = new RollingFileLogWriter(base, 8 << 10, 0, Integer.MAX_VALUE);
+        int threads = 4;
+        int messages = 20_000;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for(int t = 0; t < threads; t++){
+            int thread = t;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for(int i = 0; i < messages; i++){
+                        writer.write(text("thread " + thread + " message " + i + "\n"));
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        writer.close();
+        Assertions.assertNull(failure.get());
+
+        List<Path> files = RollingFileLogWriter.rolledFiles(base);
+        Assertions.assertTrue(files.size() > 10);
+        files.add(base);
+        boolean[][] seen = new boolean[threads][messages];
+        int lines = 0;
+        for(Path file : files){
+            for(String line : new String(read(file), StandardCharsets.UTF_8).split("\n")){
+                if(line.isEmpty()){
+                    continue;
+                }
+                String[] parts = line.split(" ");
+                int thread = Integer.parseInt(parts[1]);
+                int message = Integer.parseInt(parts[3]);
+                Assertions.assertFalse(seen[thread][message], "duplicate " + line);
+                seen[thread][message] = true;
+                lines++;
+            }
+        }
+        Assertions.assertEquals(threads * messages, lines);
+    }
+
+    @Test
+    public void testEveryRetainedFileDecodesOnItsOwn() throws IOException {
+        Path base = directory.resolve("app.bin");
+        Logger logger = new Logger(new RollingFileLogWriter(base, 4 << 10, 0, 2));
+        logger.setConsoleEcho(false);
+        logger.enableBinaryFormat();
+        CategoryLogger orders = logger.getLogger("orders");
+        for(int i = 0; i < 2_000; i++){
+            orders.log(LogLevel.INFO, "Order {} filled", (long) i);
+        }
+        logger.shutdown();
+
+        List<Path> files = RollingFileLogWriter.rolledFiles(base);
+        Assertions.assertEquals(2, files.size());
+        files.add(base);
+        long last = -1;
+        for(Path file : files){
+            List<LogDecoder.Event> events = new ArrayList<>();
+            new LogDecoder().decode(ByteBuffer.wrap(read(file)), events::add);
+            Assertions.assertFalse(events.isEmpty(), file.toString());
+            for(LogDecoder.Event event : events){
+                Assertions.assertEquals("orders", event.getCategory());
+                Assertions.assertTrue((Long) event.getArgs().get(0) > last);
+                last = (Long) event.getArgs().get(0);
+            }
+        }
+        Assertions.assertEquals(1_999L, last);
+    }
+
+    @Test
+    public void testFailedRollIsRetried() throws IOException {
+        Path base = directory.resolve("app.log");
+        RollingFileLogWriter writer = new RollingFileLogWriter(base, 8, 0, Integer.MAX_VALUE);
+        // The name the first roll moves the base file to is taken.
+        Files.createDirectory(directory.resolve("app.log.1"));
+        Assertions.assertThrows(IOException.class, () -> writer.write(text("first line\n")));
+
+        // The next write that crosses the limit rolls under the next name.
+        writer.write(text("second line\n"));
+        writer.close();
+        Assertions.assertEquals("first line\nsecond line\n",
+                new String(read(directory.resolve("app.log.2.gz")), StandardCharsets.UTF_8));
+        Assertions.assertEquals("", Files.readString(base));
+    }
+}
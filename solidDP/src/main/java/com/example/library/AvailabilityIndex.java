@@ -0,0 +1,95 @@
+package main.java.com.example.library;
+
+import main.java.com.example.library.BookPackage.IBook;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Bitmaps over catalogued books: which are available, plus static filters (printed, shelf location) that
+// availability queries are intersected with word by word. Each book object gets its own dense slot when it is
+// added, so copies that share an id are tracked separately and negative ids need no special case.
+public class AvailabilityIndex {
+    private final Map<IBook, Integer> slots;
+    private final BookBitmap available;
+    private final BookBitmap printed;
+    private final Map<String, BookBitmap> byLocation;
+    // Slot -> book. Grown under the monitor and republished through the volatile field.
+    private volatile IBook[] books;
+    private int size;
+
+    public AvailabilityIndex(){
+        this.slots = new ConcurrentHashMap<>();
+        this.available = new BookBitmap();
+        this.printed = new BookBitmap();
+        this.byLocation = new ConcurrentHashMap<>();
+        this.books = new IBook[16];
+    }
+
+    public synchronized void addBook(IBook book) {
+        if(slots.containsKey(book)){
+            return;
+        }
+        int slot = size++;
+        IBook[] current = books;
+        if(slot == current.length){
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[slot] = book;
+        books = current;
+        String location = book.getLocation();
+        if(location != null){
+            printed.set(slot);
+            byLocation.computeIfAbsent(location, name -> new BookBitmap()).set(slot);
+        }
+        slots.put(book, slot);
+        refresh(book);
+    }
+
+    // Copies the book's availability into the bitmap. Called after every availability change; re-reading the
+    // book afterwards means a racing borrow/return can never leave a stale bit behind.
+    public void refresh(IBook book) {
+        Integer slot = slots.get(book);
+        if(slot == null){
+            return;
+        }
+        boolean isAvailable;
+        do {
+            isAvailable = book.isAvailable();
+            if(isAvailable){
+                available.set(slot);
+            } else {
+                available.clear(slot);
+            }
+        } while(book.isAvailable() != isAvailable);
+    }
+
+    public int countAvailable() {
+        return available.cardinality();
+    }
+
+    public int countAvailablePrinted() {
+        return available.cardinalityAnd(printed);
+    }
+
+    public int countAvailableAt(String location) {
+        BookBitmap atLocation = byLocation.get(location);
+        return atLocation == null ? 0 : available.cardinalityAnd(atLocation);
+    }
+
+    public void forEachAvailable(Consumer<IBook> action) {
+        available.forEach(slot -> action.accept(books[slot]));
+    }
+
+    public void forEachAvailablePrinted(Consumer<IBook> action) {
+        available.forEachAnd(printed, slot -> action.accept(books[slot]));
+    }
+
+    public void forEachAvailableAt(String location, Consumer<IBook> action) {
+        BookBitmap atLocation = byLocation.get(location);
+        if(atLocation != null){
+            available.forEachAnd(atLocation, slot -> action.accept(books[slot]));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package main.java.com.example.library;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+// Thread-safe bitset over non-negative ids. Words live in fixed-size chunks that are allocated on demand,
+// so growing the bitmap only copies the chunk directory and never loses a concurrent update to a word.
+public class BookBitmap {
+    private static final int WORDS_PER_CHUNK = 1024;
+    private static final int BITS_PER_CHUNK = WORDS_PER_CHUNK * 64;
+
+    private volatile AtomicLongArray[] chunks = new AtomicLongArray[0];
+
+    public void set(int id) {
+        chunkFor(id).accumulateAndGet(wordIndex(id), 1L << id, (word, mask) -> word | mask);
+    }
+
+    public void clear(int id) {
+        AtomicLongArray chunk = existingChunk(id);
+        if(chunk != null){
+            chunk.accumulateAndGet(wordIndex(id), ~(1L << id), (word, mask) -> word & mask);
+        }
+    }
+
+    public boolean get(int id) {
+        AtomicLongArray chunk = existingChunk(id);
+        return chunk != null && (chunk.get(wordIndex(id)) & (1L << id)) != 0;
+    }
+
+    public int cardinality() {
+        return cardinalityAnd(null);
+    }
+
+    // Number of ids set in both bitmaps; a null filter matches every id.
+    public int cardinalityAnd(BookBitmap filter) {
+        AtomicLongArray[] own = chunks;
+        AtomicLongArray[] other = filter == null ? null : filter.chunks;
+        int count = 0;
+        for(int c = 0; c < own.length; c++){
+            AtomicLongArray chunk = own[c];
+            AtomicLongArray filterChunk = other == null ? null : (c < other.length ? other[c] : null);
+            if(chunk == null || (other != null && filterChunk == null)){
+                continue;
+            }
+            for(int w = 0; w < WORDS_PER_CHUNK; w++){
+                long word = chunk.get(w);
+                if(filterChunk != null){
+                    word &= filterChunk.get(w);
+                }
+                count += Long.bitCount(word);
+            }
+        }
+        return count;
+    }
+
+    public void forEach(IntConsumer action) {
+        forEachAnd(null, action);
+    }
+
+    // Visits ids set in both bitmaps in ascending order; a null filter matches every id.
+    public void forEachAnd(BookBitmap filter, IntConsumer action) {
+        AtomicLongArray[] own = chunks;
+        AtomicLongArray[] other = filter == null ? null : filter.chunks;
+        for(int c = 0; c < own.length; c++){
+            AtomicLongArray chunk = own[c];
+            AtomicLongArray filterChunk = other == null ? null : (c < other.length ? other[c] : null);
+            if(chunk == null || (other != null && filterChunk == null)){
+                continue;
+            }
+            for(int w = 0; w < WORDS_PER_CHUNK; w++){
+                long word = chunk.get(w);
+                if(filterChunk != null){
+                    word &= filterChunk.get(w);
+                }
+                int base = c * BITS_PER_CHUNK + w * 64;
+                while(word != 0){
+                    action.accept(base + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    private AtomicLongArray existingChunk(int id) {
+        if(id < 0){
+            throw new IllegalArgumentException("BookBitmap ids must not be negative: " + id);
+        }
+        AtomicLongArray[] current = chunks;
+        int index = id / BITS_PER_CHUNK;
+        return index < current.length ? current[index] : null;
+    }
+
+    private AtomicLongArray chunkFor(int id) {
+        AtomicLongArray chunk = existingChunk(id);
+        return chunk != null ? chunk : allocateChunk(id / BITS_PER_CHUNK);
+    }
+
+    private synchronized AtomicLongArray allocateChunk(int index) {
+        AtomicLongArray[] current = chunks;
+        if(index >= current.length){
+            AtomicLongArray[] grown = new AtomicLongArray[Math.max(index + 1, current.length * 2)];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            current = grown;
+        }
+        if(current[index] == null){
+            current[index] = new AtomicLongArray(WORDS_PER_CHUNK);
+        }
+        chunks = current;
+        return current[index];
+    }
+
+    private static int wordIndex(int id) {
+        return (id % BITS_PER_CHUNK) >>> 6;
+    }
+}
@@ -1,14 +1,16 @@
 package main.java.com.example.library.BookPackage;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public class DigitalBook implements IBook{
     private int id;
     private String name;
-    private boolean isAvailable;
+    private final AtomicBoolean isAvailable;
 
     public DigitalBook(int id, String bookName){
         this.id = id;
         this.name = bookName;
-        this.isAvailable = true;
+        this.isAvailable = new AtomicBoolean(true);
     }
     @Override
     public int getId() {
@@ -22,12 +24,17 @@ public class DigitalBook implements IBook{
 
     @Override
     public boolean isAvailable() {
-        return isAvailable;
+        return isAvailable.get();
     }
 
     @Override
     public void setAvailability(boolean availability) {
-        isAvailable = availability;
+        isAvailable.set(availability);
+    }
+
+    @Override
+    public boolean compareAndSetAvailability(boolean expected, boolean availability) {
+        return isAvailable.compareAndSet(expected, availability);
     }
 
 }
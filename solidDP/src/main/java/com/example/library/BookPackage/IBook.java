@@ -5,4 +5,10 @@ public interface IBook {
     public String getName();
     public boolean isAvailable();
     public void setAvailability(boolean availability);
+    public boolean compareAndSetAvailability(boolean expected, boolean availability);
+
+    // Shelf location of a printed book, null for books that are not on a shelf.
+    public default String getLocation() {
+        return null;
+    }
 }
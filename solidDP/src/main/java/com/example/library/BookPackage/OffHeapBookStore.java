@@ -0,0 +1,170 @@
+package main.java.com.example.library.BookPackage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Keeps books in off-heap columns instead of one heap object per book. Each slot holds an id, an availability
+// flag, an interned name code and an interned location code (-1 for digital books). Each distinct name and
+// location is kept once, as a String on the heap, so copies of a title cost one column entry each and getName
+// allocates nothing. book(slot) hands out a small flyweight IBook that reads and writes the columns directly.
+public class OffHeapBookStore {
+    private static final VarHandle INT_COLUMN = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final int NO_LOCATION = -1;
+    // Columns are int-indexed direct buffers of four bytes per slot.
+    public static final int MAX_CAPACITY = Integer.MAX_VALUE / 4;
+
+    private final int capacity;
+    private final ByteBuffer ids;
+    private final ByteBuffer availability;
+    private final ByteBuffer nameCodes;
+    private final ByteBuffer locationCodes;
+    // Code -> string tables. Grown under the monitor and republished through the volatile fields.
+    private volatile String[] names;
+    private volatile String[] locations;
+    private final Map<String, Integer> nameCodesByName;
+    private final Map<String, Integer> locationCodesByName;
+    private volatile int size;
+
+    public OffHeapBookStore(int capacity){
+        if(capacity < 0 || capacity > MAX_CAPACITY){
+            throw new IllegalArgumentException("Capacity must be between 0 and " + MAX_CAPACITY + ": " + capacity);
+        }
+        this.capacity = capacity;
+        this.ids = column(capacity);
+        this.availability = column(capacity);
+        this.nameCodes = column(capacity);
+        this.locationCodes = column(capacity);
+        this.names = new String[16];
+        this.locations = new String[16];
+        this.nameCodesByName = new HashMap<>();
+        this.locationCodesByName = new HashMap<>();
+    }
+
+    public IBook addPrintedBook(int id, String bookName, String location) {
+        return add(id, bookName, location);
+    }
+
+    public IBook addDigitalBook(int id, String bookName) {
+        return add(id, bookName, null);
+    }
+
+    public IBook book(int slot) {
+        if(slot < 0 || slot >= size){
+            throw new IndexOutOfBoundsException("No book in slot " + slot);
+        }
+        return new BookView(slot);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private synchronized IBook add(int id, String bookName, String location) {
+        int slot = size;
+        if(slot == capacity){
+            throw new IllegalStateException("Book store is full: " + capacity);
+        }
+        ids.putInt(slot * 4, id);
+        INT_COLUMN.setVolatile(availability, slot * 4, 1);
+        nameCodes.putInt(slot * 4, nameCode(bookName));
+        locationCodes.putInt(slot * 4, location == null ? NO_LOCATION : locationCode(location));
+        size = slot + 1;
+        return new BookView(slot);
+    }
+
+    private int nameCode(String bookName) {
+        Integer code = nameCodesByName.get(bookName);
+        if(code == null){
+            code = nameCodesByName.size();
+            names = intern(names, code, bookName);
+            nameCodesByName.put(bookName, code);
+        }
+        return code;
+    }
+
+    private int locationCode(String location) {
+        Integer code = locationCodesByName.get(location);
+        if(code == null){
+            code = locationCodesByName.size();
+            locations = intern(locations, code, location);
+            locationCodesByName.put(location, code);
+        }
+        return code;
+    }
+
+    private static String[] intern(String[] table, int code, String value) {
+        if(code == table.length){
+            table = Arrays.copyOf(table, table.length * 2);
+        }
+        table[code] = value;
+        return table;
+    }
+
+    private static ByteBuffer column(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder());
+    }
+
+    public class BookView implements IBook {
+        private final int slot;
+
+        BookView(int slot){
+            this.slot = slot;
+        }
+
+        @Override
+        public int getId() {
+            return ids.getInt(slot * 4);
+        }
+
+        @Override
+        public String getName() {
+            return names[nameCodes.getInt(slot * 4)];
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return (int) INT_COLUMN.getVolatile(availability, slot * 4) != 0;
+        }
+
+        @Override
+        public void setAvailability(boolean isAvailable) {
+            INT_COLUMN.setVolatile(availability, slot * 4, isAvailable ? 1 : 0);
+        }
+
+        @Override
+        public boolean compareAndSetAvailability(boolean expected, boolean isAvailable) {
+            return INT_COLUMN.compareAndSet(availability, slot * 4, expected ? 1 : 0, isAvailable ? 1 : 0);
+        }
+
+        // Null for digital books.
+        @Override
+        public String getLocation() {
+            int code = locationCodes.getInt(slot * 4);
+            return code == NO_LOCATION ? null : locations[code];
+        }
+
+        // Views are created on demand, so two views of the same slot must compare equal.
+        @Override
+        public boolean equals(Object other) {
+            if(!(other instanceof BookView)){
+                return false;
+            }
+            BookView view = (BookView) other;
+            return view.slot == slot && view.store() == store();
+        }
+
+        @Override
+        public int hashCode() {
+            return slot;
+        }
+
+        private OffHeapBookStore store() {
+            return OffHeapBookStore.this;
+        }
+    }
+}
@@ -1,15 +1,17 @@
 package main.java.com.example.library.BookPackage;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public class PrintedBook implements IBook{
     private int id;
     private String name;
-    private boolean isAvailable;
+    private final AtomicBoolean isAvailable;
     private String location;
 
     public PrintedBook(int id, String bookName, String location){
         this.id = id;
         this.name = bookName;
-        this.isAvailable = true;
+        this.isAvailable = new AtomicBoolean(true);
         this.location = location;
     }
     @Override
@@ -24,14 +26,20 @@ public class PrintedBook implements IBook{
 
     @Override
     public boolean isAvailable() {
-        return isAvailable;
+        return isAvailable.get();
     }
 
     @Override
     public void setAvailability(boolean availability) {
-        isAvailable = availability;
+        isAvailable.set(availability);
     }
 
+    @Override
+    public boolean compareAndSetAvailability(boolean expected, boolean availability) {
+        return isAvailable.compareAndSet(expected, availability);
+    }
+
+    @Override
     public String getLocation(){
         return location;
     }
@@ -0,0 +1,49 @@
+package main.java.com.example.library;
+
+import main.java.com.example.library.BookPackage.IBook;
+import main.java.com.example.library.userPackage.Iuser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Id and name indexes over the books and users of a Library. The id indexes are IntMaps, so a lookup by id
+// boxes nothing.
+public class Catalog {
+    private final IntMap<IBook> booksById;
+    private final IntMap<Iuser> usersById;
+    private final NavigableMap<String, List<IBook>> booksByName;
+
+    public Catalog(){
+        this.booksById = new IntMap<>();
+        this.usersById = new IntMap<>();
+        this.booksByName = new ConcurrentSkipListMap<>();
+    }
+
+    public void addBook(IBook book){
+        booksById.put(book.getId(), book);
+        booksByName.computeIfAbsent(book.getName(), name -> new CopyOnWriteArrayList<>()).add(book);
+    }
+
+    public void addUser(Iuser user){
+        usersById.put(user.getUserID(), user);
+    }
+
+    public IBook findBookById(int id){
+        return booksById.get(id);
+    }
+
+    public Iuser findUserById(int id){
+        return usersById.get(id);
+    }
+
+    public List<IBook> searchByNamePrefix(String prefix){
+        List<IBook> result = new ArrayList<>();
+        for(List<IBook> sameName : booksByName.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()){
+            result.addAll(sameName);
+        }
+        return result;
+    }
+}
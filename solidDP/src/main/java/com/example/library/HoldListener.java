@@ -0,0 +1,8 @@
+package main.java.com.example.library;
+
+import main.java.com.example.library.BookPackage.IBook;
+import main.java.com.example.library.userPackage.Iuser;
+
+public interface HoldListener {
+    public void onHoldFulfilled(Iuser user, IBook book);
+}
@@ -0,0 +1,75 @@
+package main.java.com.example.library;
+
+import main.java.com.example.library.userPackage.Iuser;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+// Lock-free FIFO of users waiting for one book. The depth is tracked separately because
+// ConcurrentLinkedQueue.size() walks the whole queue.
+public class HoldQueue {
+    private final Queue<Hold> waiting;
+    private final AtomicInteger depth;
+    // Bumped whenever a waiter is added or may have become able to take the book.
+    private final AtomicLong version;
+
+    // One place in the queue. Claimed while a hand-off is offering the book to it, so a second hand-off of
+    // the same book can never serve the same place twice.
+    private static final class Hold {
+        final Iuser user;
+        final AtomicBoolean claimed = new AtomicBoolean();
+
+        Hold(Iuser user) {
+            this.user = user;
+        }
+    }
+
+    public HoldQueue(){
+        this.waiting = new ConcurrentLinkedQueue<>();
+        this.depth = new AtomicInteger();
+        this.version = new AtomicLong();
+    }
+
+    public void add(Iuser user) {
+        waiting.add(new Hold(user));
+        depth.incrementAndGet();
+        version.incrementAndGet();
+    }
+
+    // Removes and returns the first waiter, in FIFO order, that the taker accepts. Waiters it turns down keep
+    // their place. Returns null if it accepts nobody.
+    public Iuser pollFirst(Predicate<Iuser> taker) {
+        for(Hold hold : waiting){
+            if(!hold.claimed.compareAndSet(false, true)){
+                continue;
+            }
+            if(taker.test(hold.user)){
+                waiting.remove(hold);
+                depth.decrementAndGet();
+                return hold.user;
+            }
+            hold.claimed.set(false);
+        }
+        return null;
+    }
+
+    public void wake() {
+        version.incrementAndGet();
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public boolean isEmpty() {
+        return waiting.isEmpty();
+    }
+
+    public int depth() {
+        return depth.get();
+    }
+}
@@ -0,0 +1,95 @@
+package main.java.com.example.library;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Thread-safe map from int keys to non-null values, with open addressing over parallel key and value arrays, so
+// a lookup boxes nothing and follows no per-entry node. Reads take no lock; writers serialize on the map.
+//
+// A slot is taken once its value is set. Writers store the key before the value and readers load the value
+// before the key, so a reader that sees a value also sees its key. A full table is copied into one twice the
+// size and swapped in; readers still probing the old one see it as it was.
+public class IntMap<V> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final class Table<V> {
+        final AtomicIntegerArray keys;
+        final AtomicReferenceArray<V> values;
+        final int mask;
+
+        Table(int capacity) {
+            this.keys = new AtomicIntegerArray(capacity);
+            this.values = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+        }
+    }
+
+    private volatile Table<V> table = new Table<>(INITIAL_CAPACITY);
+    private int size;
+
+    public V get(int key) {
+        Table<V> current = table;
+        for(int i = slot(key, current.mask); ; i = (i + 1) & current.mask){
+            V value = current.values.get(i);
+            if(value == null){
+                return null;
+            }
+            if(current.keys.get(i) == key){
+                return value;
+            }
+        }
+    }
+
+    // Returns the value previously stored under key, or null.
+    public synchronized V put(int key, V value) {
+        if(value == null){
+            throw new NullPointerException("IntMap values must not be null");
+        }
+        // At most half full, so probes stay short and always reach an empty slot.
+        if((size + 1) * 2 > table.keys.length()){
+            table = grow(table);
+        }
+        Table<V> current = table;
+        for(int i = slot(key, current.mask); ; i = (i + 1) & current.mask){
+            V existing = current.values.get(i);
+            if(existing == null){
+                current.keys.set(i, key);
+                current.values.set(i, value);
+                size++;
+                return null;
+            }
+            if(current.keys.get(i) == key){
+                current.values.set(i, value);
+                return existing;
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private static <V> Table<V> grow(Table<V> old) {
+        Table<V> bigger = new Table<>(old.keys.length() * 2);
+        for(int i = 0; i < old.keys.length(); i++){
+            V value = old.values.get(i);
+            if(value == null){
+                continue;
+            }
+            int key = old.keys.get(i);
+            int j = slot(key, bigger.mask);
+            while(bigger.values.get(j) != null){
+                j = (j + 1) & bigger.mask;
+            }
+            bigger.keys.set(j, key);
+            bigger.values.set(j, value);
+        }
+        return bigger;
+    }
+
+    // The key is mixed before masking, so ids that share their low bits do not pile up in one run of slots.
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
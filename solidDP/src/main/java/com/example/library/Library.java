@@ -4,47 +4,345 @@ import main.java.com.example.library.BookPackage.IBook;
 import main.java.com.example.library.userPackage.Iuser;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 public class Library {
+    private static final int USER_LOCK_STRIPES = 64;
+
     List<IBook> books;
     List<Iuser> users;
+    Catalog catalog;
+    LoanJournal journal;
+    AvailabilityIndex availability;
+    Map<Integer, HoldQueue> holds;
+    // Books whose hand-off skipped the user because they were at their borrow limit.
+    Map<Iuser, Set<IBook>> deferredHolds;
+    List<LoanEventListener> loanListeners;
+    private final Object[] userLocks;
+    private HoldListener holdListener;
+    private Executor holdNotifier;
 
     public Library(){
-        this.books = new ArrayList<>();
-        this.users = new ArrayList<>();
+        this(null);
     }
 
+    public Library(LoanJournal journal){
+        this.journal = journal;
+        this.books = Collections.synchronizedList(new ArrayList<>());
+        this.users = Collections.synchronizedList(new ArrayList<>());
+        this.catalog = new Catalog();
+        this.availability = new AvailabilityIndex();
+        this.holds = new ConcurrentHashMap<>();
+        this.deferredHolds = new ConcurrentHashMap<>();
+        this.loanListeners = new CopyOnWriteArrayList<>();
+        this.userLocks = new Object[USER_LOCK_STRIPES];
+        for(int i=0;i<USER_LOCK_STRIPES;i++){
+            userLocks[i] = new Object();
+        }
+    }
+
+    // Safe to add to from several threads. Iterate while holding the list's monitor if books may be added
+    // concurrently.
     public List<IBook> getBooks() {
         return books;
     }
 
     public void addBook(IBook book) {
         this.books.add(book);
+        this.catalog.addBook(book);
+        this.availability.addBook(book);
     }
 
+    // Same rules as getBooks.
     public List<Iuser> getUsers() {
         return users;
     }
 
     public void addUser(Iuser user) {
         this.users.add(user);
+        this.catalog.addUser(user);
+    }
+
+    public IBook findBookById(int id) {
+        return catalog.findBookById(id);
+    }
+
+    public Iuser findUserById(int id) {
+        return catalog.findUserById(id);
+    }
+
+    public List<IBook> searchByNamePrefix(String prefix) {
+        return catalog.searchByNamePrefix(prefix);
+    }
+
+    public int countAvailableBooks() {
+        return availability.countAvailable();
+    }
+
+    public void forEachAvailableBook(Consumer<IBook> action) {
+        availability.forEachAvailable(action);
+    }
+
+    public List<IBook> getAvailablePrintedBooks() {
+        List<IBook> result = new ArrayList<>();
+        availability.forEachAvailablePrinted(result::add);
+        return result;
+    }
+
+    public List<IBook> getAvailableBooksAt(String location) {
+        List<IBook> result = new ArrayList<>();
+        availability.forEachAvailableAt(location, result::add);
+        return result;
     }
 
+    // Availability is claimed with a CAS on the book, so two users can never hold the same copy.
+    // The user's stripe lock keeps the borrow-limit check and the user's loan list consistent.
     public void borrowBook(Iuser user, IBook book) {
-        if(!(user.canBorrow() && book.isAvailable())){
-            throw new RuntimeException("Book can not be borrowed");
+        synchronized (lockFor(user)) {
+            if(!(user.canBorrow() && !hasWaiters(book) && book.compareAndSetAvailability(true, false))){
+                throw new RuntimeException("Book can not be borrowed");
+            }
+            availability.refresh(book);
+            user.addBorrowedBook(book);
+            recordBorrow(user, book);
         }
-        book.setAvailability(false);
-        user.addBorrowedBook(book);
     }
 
     public void returnBook(Iuser user, IBook book) {
-        if(book.isAvailable()){
-            throw new RuntimeException("Book already returned");
+        synchronized (lockFor(user)) {
+            if(!user.hasBorrowedBook(book)){
+                throw new RuntimeException("Book is not borrowed by this user");
+            }
+            if(!book.compareAndSetAvailability(false, true)){
+                throw new RuntimeException("Book already returned");
+            }
+            availability.refresh(book);
+            user.removeBorrowedBook(book);
+            recordReturn(user, book);
+        }
+        handOff(book);
+        retryDeferredHolds(user);
+    }
+
+    // Validates the whole batch under the user's lock and applies it all-or-nothing.
+    // Results are returned in the iteration order of the given collection.
+    public List<LoanResult> borrowBooks(Iuser user, Collection<IBook> booksToBorrow) {
+        List<LoanResult> results = new ArrayList<>(booksToBorrow.size());
+        List<IBook> rolledBack;
+        synchronized (lockFor(user)) {
+            if(booksToBorrow.size() > user.getRemainingBorrowLimit()){
+                for(IBook book : booksToBorrow){
+                    results.add(new LoanResult(book, LoanStatus.LIMIT_EXCEEDED));
+                }
+                return results;
+            }
+            List<IBook> claimed = new ArrayList<>(booksToBorrow.size());
+            for(IBook book : booksToBorrow){
+                if(!hasWaiters(book) && book.compareAndSetAvailability(true, false)){
+                    claimed.add(book);
+                    results.add(new LoanResult(book, LoanStatus.SUCCESS));
+                } else {
+                    results.add(new LoanResult(book, LoanStatus.UNAVAILABLE));
+                }
+            }
+            if(claimed.size() == booksToBorrow.size()){
+                for(IBook book : claimed){
+                    availability.refresh(book);
+                    user.addBorrowedBook(book);
+                    recordBorrow(user, book);
+                }
+                return results;
+            }
+            for(IBook book : claimed){
+                book.setAvailability(true);
+                availability.refresh(book);
+            }
+            rolledBack = claimed;
+        }
+        // Anyone who placed a hold while the batch had these books claimed found them taken.
+        for(IBook book : rolledBack){
+            handOff(book);
+        }
+        return notApplied(results);
+    }
+
+    public List<LoanResult> returnBooks(Iuser user, Collection<IBook> booksToReturn) {
+        List<LoanResult> results = new ArrayList<>(booksToReturn.size());
+        synchronized (lockFor(user)) {
+            Set<IBook> seen = new HashSet<>();
+            boolean valid = true;
+            for(IBook book : booksToReturn){
+                if(seen.add(book) && !book.isAvailable() && user.hasBorrowedBook(book)){
+                    results.add(new LoanResult(book, LoanStatus.SUCCESS));
+                } else {
+                    results.add(new LoanResult(book, LoanStatus.NOT_BORROWED));
+                    valid = false;
+                }
+            }
+            if(!valid){
+                return notApplied(results);
+            }
+            for(IBook book : booksToReturn){
+                book.setAvailability(true);
+                availability.refresh(book);
+                user.removeBorrowedBook(book);
+                recordReturn(user, book);
+            }
+        }
+        for(IBook book : booksToReturn){
+            handOff(book);
         }
-        user.removeBorrowedBook(book);
-        book.setAvailability(true);
+        retryDeferredHolds(user);
+        return results;
+    }
+
+    // Queues the user for the book. Holds are served in FIFO order: a returned book goes straight to the
+    // first waiter, and plain borrowBook calls are refused while anyone is waiting. If the book is already
+    // free it is handed to the head of the queue right away.
+    public void placeHold(Iuser user, IBook book) {
+        holds.computeIfAbsent(book.getId(), id -> new HoldQueue()).add(user);
+        handOff(book);
+    }
+
+    public void addLoanListener(LoanEventListener listener) {
+        this.loanListeners.add(listener);
+    }
+
+    public void setHoldListener(HoldListener listener, Executor notifier) {
+        this.holdListener = listener;
+        this.holdNotifier = notifier;
+    }
+
+    public int getHoldQueueDepth(IBook book) {
+        HoldQueue queue = holds.get(book.getId());
+        return queue == null ? 0 : queue.depth();
+    }
+
+    public int getTotalHoldCount() {
+        int total = 0;
+        for(HoldQueue queue : holds.values()){
+            total += queue.depth();
+        }
+        return total;
+    }
+
+    // Re-applies the loans recorded in the journal to the books and users already added to this library.
+    public void restoreLoans() {
+        if(journal == null){
+            throw new IllegalStateException("This library has no loan journal to restore from");
+        }
+        for(Map.Entry<Integer, Integer> loan : journal.loans().entrySet()){
+            IBook book = catalog.findBookById(loan.getKey());
+            Iuser user = catalog.findUserById(loan.getValue());
+            if(book != null && user != null && book.compareAndSetAvailability(true, false)){
+                availability.refresh(book);
+                user.addBorrowedBook(book);
+                for(LoanEventListener listener : loanListeners){
+                    listener.onRestore(user, book);
+                }
+            }
+        }
+    }
+
+    private boolean hasWaiters(IBook book) {
+        HoldQueue queue = holds.get(book.getId());
+        return queue != null && !queue.isEmpty();
+    }
+
+    // Both placeHold and returnBook call this after their own step, so whichever runs second sees the other
+    // and no waiter is left behind on a free book. The book goes to the first waiter below their borrow limit;
+    // waiters at the limit keep their place and are tried again when they return a book.
+    private void handOff(IBook book) {
+        HoldQueue queue = holds.get(book.getId());
+        if(queue == null){
+            return;
+        }
+        while(!queue.isEmpty()){
+            long version = queue.version();
+            if(!book.compareAndSetAvailability(true, false)){
+                return;
+            }
+            if(queue.pollFirst(user -> assignHold(user, book)) != null){
+                return;
+            }
+            book.setAvailability(true);
+            availability.refresh(book);
+            // A hold placed, or a waiter freed up, while this thread had the book claimed could not take it.
+            if(queue.version() == version){
+                return;
+            }
+        }
+    }
+
+    private boolean assignHold(Iuser user, IBook book) {
+        synchronized (lockFor(user)) {
+            if(!user.canBorrow()){
+                deferredHolds.computeIfAbsent(user, u -> ConcurrentHashMap.newKeySet()).add(book);
+                return false;
+            }
+            availability.refresh(book);
+            user.addBorrowedBook(book);
+            recordBorrow(user, book);
+        }
+        HoldListener listener = holdListener;
+        if(listener != null){
+            holdNotifier.execute(() -> listener.onHoldFulfilled(user, book));
+        }
+        return true;
+    }
+
+    // Called after the user's return has released their lock. A hand-off that skipped the user did so under
+    // the same lock, so it is either visible here or saw the freed slot.
+    private void retryDeferredHolds(Iuser user) {
+        Set<IBook> deferred = deferredHolds.remove(user);
+        if(deferred == null){
+            return;
+        }
+        for(IBook book : deferred){
+            HoldQueue queue = holds.get(book.getId());
+            if(queue != null){
+                queue.wake();
+            }
+            handOff(book);
+        }
+    }
+
+    private void recordBorrow(Iuser user, IBook book) {
+        if(journal != null){
+            journal.recordBorrow(user.getUserID(), book.getId());
+        }
+        for(LoanEventListener listener : loanListeners){
+            listener.onBorrow(user, book);
+        }
+    }
+
+    private void recordReturn(Iuser user, IBook book) {
+        if(journal != null){
+            journal.recordReturn(user.getUserID(), book.getId());
+        }
+        for(LoanEventListener listener : loanListeners){
+            listener.onReturn(user, book);
+        }
+    }
+
+    private List<LoanResult> notApplied(List<LoanResult> results) {
+        List<LoanResult> rolledBack = new ArrayList<>(results.size());
+        for(LoanResult result : results){
+            rolledBack.add(result.isSuccess() ? new LoanResult(result.getBook(), LoanStatus.NOT_APPLIED) : result);
+        }
+        return rolledBack;
+    }
 
+    private Object lockFor(Iuser user) {
+        return userLocks[Math.floorMod(user.getUserID(), USER_LOCK_STRIPES)];
     }
 }
@@ -0,0 +1,13 @@
+package main.java.com.example.library;
+
+import main.java.com.example.library.BookPackage.IBook;
+import main.java.com.example.library.userPackage.Iuser;
+
+public interface LoanEventListener {
+    public void onBorrow(Iuser user, IBook book);
+    public void onReturn(Iuser user, IBook book);
+
+    // A loan re-applied by Library.restoreLoans after a restart.
+    public default void onRestore(Iuser user, IBook book) {
+    }
+}
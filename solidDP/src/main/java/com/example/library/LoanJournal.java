@@ -0,0 +1,353 @@
+package main.java.com.example.library;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Append-only, memory-mapped log of borrow/return events plus a compacted snapshot.
+// The journal starts with a header holding a generation number. Records are fixed size:
+// type(1) userId(4) bookId(4) checksum(4), and the checksum covers the generation too. A record that is zero, torn
+// or from an older generation marks the end of the log.
+//
+// Appenders claim a slot with one atomic increment and write it without locking, so journaling does not
+// serialize checkouts. The monitor is only taken to compact or to read the loans, which first stops new claims
+// and waits for the claimed slots to be written.
+//
+// Appenders never do disk I/O themselves: Library appends while holding a user's lock, so a group commit's force
+// and the compaction of a filling journal are handed to the background thread. The journal is compacted once it
+// is three quarters full; only an appender that still finds it full waits for that compaction to finish.
+//
+// Compaction writes a snapshot of the next generation and then moves the header to that generation, so the old
+// records become invalid in one step. A crash at any point leaves either the old snapshot with a matching
+// journal, or the new snapshot with a journal whose records it already contains.
+public class LoanJournal implements Closeable {
+    private static final byte BORROW = 1;
+    private static final byte RETURN = 2;
+    private static final int RECORD_SIZE = 13;
+    private static final int HEADER_SIZE = 16;
+    private static final int JOURNAL_MAGIC = 0x4C4A524E;
+    private static final int SNAPSHOT_MAGIC = 0x4C4F414E;
+
+    private final Path snapshotFile;
+    private final int capacity;
+    private final int groupCommitSize;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    // Next slot to claim. Parked at capacity while the journal is being compacted or read.
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final AtomicInteger writtenSlots = new AtomicInteger();
+    private final AtomicInteger unforced = new AtomicInteger();
+    private final int compactionMark;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicBoolean compactionRequested = new AtomicBoolean();
+    private final ScheduledExecutorService background;
+    private volatile long generation;
+
+    public LoanJournal(Path directory) throws IOException {
+        this(directory, 1 << 20, 64);
+    }
+
+    public LoanJournal(Path directory, int capacityInRecords, int groupCommitSize) throws IOException {
+        this(directory, capacityInRecords, groupCommitSize, 50, 60_000);
+    }
+
+    // Unforced records are forced after at most commitIntervalMillis, and the journal is compacted into a new
+    // snapshot every snapshotIntervalMillis. Zero turns either off; group commits and compaction of a filling
+    // journal still run in the background.
+    public LoanJournal(Path directory, int capacityInRecords, int groupCommitSize, long commitIntervalMillis,
+                       long snapshotIntervalMillis) throws IOException {
+        Files.createDirectories(directory);
+        this.snapshotFile = directory.resolve("loans.snapshot");
+        this.capacity = capacityInRecords;
+        this.groupCommitSize = groupCommitSize;
+        this.compactionMark = Math.max(1, capacityInRecords - capacityInRecords / 4);
+        this.channel = FileChannel.open(directory.resolve("loans.journal"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long existingSize = channel.size();
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacityInRecords * RECORD_SIZE);
+
+        long snapshotGeneration = readSnapshotGeneration();
+        int end = 0;
+        if(buffer.getInt(0) == JOURNAL_MAGIC && buffer.getLong(8) >= snapshotGeneration){
+            generation = buffer.getLong(8);
+            end = findEnd();
+        } else {
+            // New journal, or one whose records a later snapshot already holds.
+            generation = snapshotGeneration;
+            writeHeader();
+        }
+        // Wipe whatever follows the end, so records that outlived a torn one cannot rejoin the log later.
+        for(long i = HEADER_SIZE + (long) end * RECORD_SIZE; i < Math.min(existingSize, buffer.capacity()); i++){
+            buffer.put((int) i, (byte) 0);
+        }
+        buffer.force();
+        nextSlot.set(end);
+        writtenSlots.set(end);
+
+        background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "loan-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if(commitIntervalMillis > 0){
+            background.scheduleWithFixedDelay(() -> reportFailure(this::flushIfPending), commitIntervalMillis,
+                    commitIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        if(snapshotIntervalMillis > 0){
+            background.scheduleWithFixedDelay(() -> reportFailure(this::compact), snapshotIntervalMillis,
+                    snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void recordBorrow(int userId, int bookId) {
+        append(BORROW, userId, bookId);
+    }
+
+    public void recordReturn(int userId, int bookId) {
+        append(RETURN, userId, bookId);
+    }
+
+    // Current loans as bookId -> userId, rebuilt from the snapshot and the journal tail.
+    public synchronized Map<Integer, Integer> loans() {
+        int end = stopAppends();
+        try {
+            return replay(end);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            nextSlot.set(end);
+        }
+    }
+
+    // Folds the journal into a new snapshot and starts an empty journal of the next generation.
+    public synchronized void compact() {
+        int end = stopAppends();
+        try {
+            writeSnapshot(replay(end), generation + 1);
+            generation++;
+            writeHeader();
+            buffer.force();
+        } catch (IOException e) {
+            // Nothing changed on disk that replay depends on, so appending can go on in the old generation.
+            nextSlot.set(end);
+            throw new RuntimeException(e);
+        }
+        unforced.set(0);
+        writtenSlots.set(0);
+        nextSlot.set(0);
+    }
+
+    public void flush() {
+        unforced.set(0);
+        buffer.force();
+    }
+
+    // Records written since the last force.
+    public int getUnforcedRecords() {
+        return unforced.get();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        background.shutdownNow();
+        buffer.force();
+        channel.close();
+    }
+
+    private void append(byte type, int userId, int bookId) {
+        int slot;
+        while((slot = nextSlot.getAndIncrement()) >= capacity){
+            awaitRoom();
+        }
+        int offset = HEADER_SIZE + slot * RECORD_SIZE;
+        buffer.putInt(offset + 1, userId);
+        buffer.putInt(offset + 5, bookId);
+        buffer.putInt(offset + 9, checksum(generation, type, userId, bookId));
+        buffer.put(offset, type);
+        writtenSlots.incrementAndGet();
+        if(slot + 1 == compactionMark){
+            requestCompaction();
+        }
+        if(unforced.incrementAndGet() >= groupCommitSize && flushRequested.compareAndSet(false, true)){
+            submit(() -> {
+                flushRequested.set(false);
+                flushIfPending();
+            });
+        }
+    }
+
+    // Called when a claim lands past the end: the journal is full, or is being compacted or read right now.
+    // Waits for the background thread to make room rather than compacting on the appender's thread.
+    private void awaitRoom() {
+        while(nextSlot.get() >= capacity){
+            if(background.isShutdown()){
+                throw new IllegalStateException("LoanJournal is closed");
+            }
+            requestCompaction();
+            LockSupport.parkNanos(50_000);
+        }
+    }
+
+    private void requestCompaction() {
+        if(compactionRequested.compareAndSet(false, true)){
+            submit(() -> {
+                compactionRequested.set(false);
+                compactIfFilling();
+            });
+        }
+    }
+
+    // An explicit compact() may have emptied the journal since the request.
+    private synchronized void compactIfFilling() {
+        if(nextSlot.get() >= compactionMark){
+            compact();
+        }
+    }
+
+    private void submit(Runnable task) {
+        try {
+            background.execute(() -> reportFailure(task));
+        } catch (RejectedExecutionException e) {
+            // Closed; close() forces what was written.
+        }
+    }
+
+    private void flushIfPending() {
+        if(unforced.get() > 0){
+            flush();
+        }
+    }
+
+    // A scheduled task that throws is never run again, so background failures are reported and the next run
+    // tries again.
+    private static void reportFailure(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Parks the claim counter past the end and waits until every slot claimed before that is written.
+    // Returns the number of records in the journal. Callers hold the monitor and reopen the counter.
+    private int stopAppends() {
+        int end = Math.min(nextSlot.getAndSet(capacity), capacity);
+        while(writtenSlots.get() < end){
+            Thread.onSpinWait();
+        }
+        return end;
+    }
+
+    private Map<Integer, Integer> replay(int end) throws IOException {
+        Map<Integer, Integer> loans = readSnapshot();
+        for(int slot = 0; slot < end; slot++){
+            int offset = HEADER_SIZE + slot * RECORD_SIZE;
+            int userId = buffer.getInt(offset + 1);
+            int bookId = buffer.getInt(offset + 5);
+            if(buffer.get(offset) == BORROW){
+                loans.put(bookId, userId);
+            } else {
+                // Returns are journaled after the CAS that frees the book, so a later borrower's record can
+                // land first; only clear the loan if it still belongs to the returning user.
+                loans.remove(bookId, userId);
+            }
+        }
+        return loans;
+    }
+
+    private int findEnd() {
+        int slot = 0;
+        while(slot < capacity){
+            int offset = HEADER_SIZE + slot * RECORD_SIZE;
+            byte type = buffer.get(offset);
+            if(type != BORROW && type != RETURN){
+                break;
+            }
+            if(buffer.getInt(offset + 9) != checksum(generation, type, buffer.getInt(offset + 1), buffer.getInt(offset + 5))){
+                break;
+            }
+            slot++;
+        }
+        return slot;
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, JOURNAL_MAGIC);
+        buffer.putLong(8, generation);
+    }
+
+    private long readSnapshotGeneration() throws IOException {
+        if(!Files.exists(snapshotFile)){
+            return 0;
+        }
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))){
+            if(in.readInt() != SNAPSHOT_MAGIC){
+                throw new IOException("Not a loan snapshot: " + snapshotFile);
+            }
+            return in.readLong();
+        }
+    }
+
+    private Map<Integer, Integer> readSnapshot() throws IOException {
+        Map<Integer, Integer> loans = new HashMap<>();
+        if(!Files.exists(snapshotFile)){
+            return loans;
+        }
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))){
+            if(in.readInt() != SNAPSHOT_MAGIC){
+                throw new IOException("Not a loan snapshot: " + snapshotFile);
+            }
+            in.readLong();
+            int count = in.readInt();
+            for(int i = 0; i < count; i++){
+                loans.put(in.readInt(), in.readInt());
+            }
+        }
+        return loans;
+    }
+
+    private void writeSnapshot(Map<Integer, Integer> loans, long snapshotGeneration) throws IOException {
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try(FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(out)))){
+            data.writeInt(SNAPSHOT_MAGIC);
+            data.writeLong(snapshotGeneration);
+            data.writeInt(loans.size());
+            for(Map.Entry<Integer, Integer> loan : loans.entrySet()){
+                data.writeInt(loan.getKey());
+                data.writeInt(loan.getValue());
+            }
+            data.flush();
+            out.force(true);
+        }
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int checksum(long generation, byte type, int userId, int bookId) {
+        int h = (int) (generation ^ (generation >>> 32)) * 0x27D4EB2F;
+        h = (h ^ type) * 0x9E3779B1;
+        h = (h ^ userId) * 0x85EBCA6B;
+        h = (h ^ bookId) * 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+}
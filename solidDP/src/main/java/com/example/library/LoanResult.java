@@ -0,0 +1,33 @@
+package main.java.com.example.library;
+
+import main.java.com.example.library.BookPackage.IBook;
+
+public class LoanResult {
+    private final IBook book;
+    private final LoanStatus status;
+
+    public LoanResult(IBook book, LoanStatus status){
+        this.book = book;
+        this.status = status;
+    }
+
+    public IBook getBook() {
+        return book;
+    }
+
+    public LoanStatus getStatus() {
+        return status;
+    }
+
+    public boolean isSuccess() {
+        return status == LoanStatus.SUCCESS;
+    }
+
+    @Override
+    public String toString() {
+        return "LoanResult{" +
+                "book=" + book.getId() +
+                ", status=" + status +
+                '}';
+    }
+}
@@ -0,0 +1,247 @@
+package main.java.com.example.library;
+
+import main.java.com.example.library.BookPackage.IBook;
+import main.java.com.example.library.userPackage.Iuser;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Incremental loan statistics fed by Library borrow/return events, so reports never walk users or books.
+// Top titles use the Space-Saving heavy-hitters sketch: at most `trackedTitles` counters, where a new title
+// replaces the smallest counter and inherits its count as an error bound. The counters sit in a Stream-Summary
+// list of count buckets, so counting, finding the smallest and reading the top n are O(1) per title.
+//
+// Borrows only queue the title. Whichever borrower finds the sketch unlocked folds the queue in, and the
+// others go on without waiting, so counting never holds up a checkout.
+public class LoanStatistics implements LoanEventListener {
+    private static final int WINDOW_SECONDS = 60;
+    private static final int DRAIN_THRESHOLD = 64;
+
+    private final int trackedTitles;
+    private final Queue<String> pendingTitles;
+    private final AtomicInteger pendingCount;
+    private final ReentrantLock sketchLock;
+    private final Map<String, Counter> titleCounters;
+    private Bucket smallest;
+    private Bucket largest;
+    private final Map<String, LongAdder> activeLoansByUserType;
+    // Per bucket: the second it counts in the high 32 bits, the borrows in that second in the low 32 bits.
+    private final AtomicLongArray borrowsPerSecond;
+    private final LongSupplier clock;
+
+    // Titles with the same count, in a list ordered from the smallest count to the largest.
+    private static final class Bucket {
+        final long count;
+        Counter first;
+        Bucket smaller;
+        Bucket larger;
+
+        Bucket(long count) {
+            this.count = count;
+        }
+    }
+
+    private static final class Counter {
+        String title;
+        Bucket bucket;
+        Counter previous;
+        Counter next;
+    }
+
+    public LoanStatistics(int trackedTitles){
+        this(trackedTitles, System::currentTimeMillis);
+    }
+
+    public LoanStatistics(int trackedTitles, LongSupplier clock){
+        if(trackedTitles < 1){
+            throw new IllegalArgumentException("At least one title must be tracked: " + trackedTitles);
+        }
+        this.trackedTitles = trackedTitles;
+        this.pendingTitles = new ConcurrentLinkedQueue<>();
+        this.pendingCount = new AtomicInteger();
+        this.sketchLock = new ReentrantLock();
+        this.titleCounters = new HashMap<>();
+        this.activeLoansByUserType = new ConcurrentHashMap<>();
+        this.borrowsPerSecond = new AtomicLongArray(WINDOW_SECONDS);
+        this.clock = clock;
+    }
+
+    @Override
+    public void onBorrow(Iuser user, IBook book) {
+        pendingTitles.add(book.getName());
+        if(pendingCount.incrementAndGet() >= DRAIN_THRESHOLD && sketchLock.tryLock()){
+            try {
+                drainTitles();
+            } finally {
+                sketchLock.unlock();
+            }
+        }
+        activeLoansByUserType.computeIfAbsent(user.getClass().getSimpleName(), type -> new LongAdder()).increment();
+        countBorrowInWindow();
+    }
+
+    @Override
+    public void onRestore(Iuser user, IBook book) {
+        activeLoansByUserType.computeIfAbsent(user.getClass().getSimpleName(), type -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void onReturn(Iuser user, IBook book) {
+        activeLoansByUserType.computeIfAbsent(user.getClass().getSimpleName(), type -> new LongAdder()).decrement();
+    }
+
+    // Up to n most borrowed titles with their (over-)estimated borrow counts, highest first.
+    public Map<String, Long> topTitles(int n) {
+        sketchLock.lock();
+        try {
+            drainTitles();
+            Map<String, Long> top = new LinkedHashMap<>();
+            for(Bucket bucket = largest; bucket != null && top.size() < n; bucket = bucket.smaller){
+                for(Counter counter = bucket.first; counter != null && top.size() < n; counter = counter.next){
+                    top.put(counter.title, bucket.count);
+                }
+            }
+            return top;
+        } finally {
+            sketchLock.unlock();
+        }
+    }
+
+    // User types are keyed by simple class name, e.g. "RegularUser" or "PremiumUser".
+    public long getActiveLoans(String userType) {
+        LongAdder loans = activeLoansByUserType.get(userType);
+        return loans == null ? 0 : loans.sum();
+    }
+
+    // Average borrows per second over the last windowSeconds (at most 60) seconds, including the current one.
+    public double getBorrowRate(int windowSeconds) {
+        int window = Math.min(windowSeconds, WINDOW_SECONDS);
+        long now = clock.getAsLong() / 1000;
+        long borrows = 0;
+        for(int i = 0; i < WINDOW_SECONDS; i++){
+            long packed = borrowsPerSecond.get(i);
+            long second = packed >>> 32;
+            if(second > (now - window) && second <= now){
+                borrows += packed & 0xFFFFFFFFL;
+            }
+        }
+        return (double) borrows / window;
+    }
+
+    // Caller holds sketchLock.
+    private void drainTitles() {
+        String title;
+        while((title = pendingTitles.poll()) != null){
+            pendingCount.decrementAndGet();
+            countTitle(title);
+        }
+    }
+
+    private void countTitle(String title) {
+        Counter counter = titleCounters.get(title);
+        if(counter != null){
+            moveUp(counter);
+            return;
+        }
+        if(titleCounters.size() < trackedTitles){
+            counter = new Counter();
+            counter.title = title;
+            titleCounters.put(title, counter);
+            if(smallest == null || smallest.count != 1){
+                insertAbove(null, new Bucket(1));
+            }
+            attach(counter, smallest);
+            return;
+        }
+        // Take over a counter with the smallest count; its count becomes the new title's error bound.
+        counter = smallest.first;
+        titleCounters.remove(counter.title);
+        counter.title = title;
+        titleCounters.put(title, counter);
+        moveUp(counter);
+    }
+
+    private void moveUp(Counter counter) {
+        Bucket from = counter.bucket;
+        Bucket to = from.larger;
+        if(to == null || to.count != from.count + 1){
+            to = new Bucket(from.count + 1);
+            insertAbove(from, to);
+        }
+        detach(counter);
+        attach(counter, to);
+    }
+
+    // Inserts the bucket just above `below`, or as the smallest bucket if `below` is null.
+    private void insertAbove(Bucket below, Bucket bucket) {
+        Bucket above = below == null ? smallest : below.larger;
+        bucket.smaller = below;
+        bucket.larger = above;
+        if(below == null){
+            smallest = bucket;
+        } else {
+            below.larger = bucket;
+        }
+        if(above == null){
+            largest = bucket;
+        } else {
+            above.smaller = bucket;
+        }
+    }
+
+    private void attach(Counter counter, Bucket bucket) {
+        counter.bucket = bucket;
+        counter.previous = null;
+        counter.next = bucket.first;
+        if(bucket.first != null){
+            bucket.first.previous = counter;
+        }
+        bucket.first = counter;
+    }
+
+    private void detach(Counter counter) {
+        Bucket bucket = counter.bucket;
+        if(counter.previous == null){
+            bucket.first = counter.next;
+        } else {
+            counter.previous.next = counter.next;
+        }
+        if(counter.next != null){
+            counter.next.previous = counter.previous;
+        }
+        if(bucket.first == null){
+            if(bucket.smaller == null){
+                smallest = bucket.larger;
+            } else {
+                bucket.smaller.larger = bucket.larger;
+            }
+            if(bucket.larger == null){
+                largest = bucket.smaller;
+            } else {
+                bucket.larger.smaller = bucket.smaller;
+            }
+        }
+    }
+
+    // The second and its count change in one CAS, so a borrow can never be wiped by another thread moving the
+    // bucket on to a new second.
+    private void countBorrowInWindow() {
+        long second = clock.getAsLong() / 1000;
+        int bucket = (int) (second % WINDOW_SECONDS);
+        long packed;
+        long updated;
+        do {
+            packed = borrowsPerSecond.get(bucket);
+            updated = (packed >>> 32) == second ? packed + 1 : (second << 32) | 1;
+        } while(!borrowsPerSecond.compareAndSet(bucket, packed, updated));
+    }
+}
@@ -0,0 +1,9 @@
+package main.java.com.example.library;
+
+public enum LoanStatus {
+    SUCCESS,
+    UNAVAILABLE,
+    LIMIT_EXCEEDED,
+    NOT_BORROWED,
+    NOT_APPLIED
+}
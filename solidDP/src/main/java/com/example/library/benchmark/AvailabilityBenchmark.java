@@ -0,0 +1,144 @@
+package main.java.com.example.library.benchmark;
+
+import main.java.com.example.library.BookPackage.DigitalBook;
+import main.java.com.example.library.BookPackage.IBook;
+import main.java.com.example.library.BookPackage.PrintedBook;
+import main.java.com.example.library.Library;
+import main.java.com.example.library.userPackage.PremiumUser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Availability queries over the bitmap index against the scan over every book they replaced. Half the books
+// are printed, spread over 16 shelves, and a tenth of all books are on loan. Each query counts or visits the
+// available books, the available printed books, and the available books on one shelf. Prints one CSV row per
+// query and size.
+//
+// Usage: AvailabilityBenchmark [--sizes 1000000,50000000] [--queries 200]
+public class AvailabilityBenchmark {
+    private static final int SHELVES = 16;
+
+    static volatile long sink;
+
+    public static void main(String[] args) {
+        int[] sizes = {1_000_000, 50_000_000};
+        int queries = 200;
+        for(int i = 0; i < args.length; i += 2){
+            switch (args[i]) {
+                case "--sizes": sizes = parseInts(args[i + 1]); break;
+                case "--queries": queries = Integer.parseInt(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        System.out.println("query,books,indexMicros,scanMicros");
+        for(int size : sizes){
+            run(size, queries);
+        }
+    }
+
+    static void run(int size, int queries) {
+        Library library = new Library();
+        PremiumUser user = new PremiumUser(1, "reader");
+        List<IBook> books = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            IBook book = i % 2 == 0 ? new PrintedBook(i, "book" + i, shelf(i)) : new DigitalBook(i, "book" + i);
+            books.add(book);
+            library.addBook(book);
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        for(int i = 0; i < size / 10; i++){
+            IBook book = books.get(random.nextInt(size));
+            if(book.isAvailable()){
+                library.borrowBook(user, book);
+            }
+        }
+
+        for(int round = 0; round < 2; round++){
+            boolean report = round == 1;
+            long check;
+
+            long begin = System.nanoTime();
+            long total = 0;
+            for(int q = 0; q < queries; q++){
+                total += library.countAvailableBooks();
+            }
+            long index = System.nanoTime() - begin;
+            check = total;
+            begin = System.nanoTime();
+            total = 0;
+            for(int q = 0; q < queries; q++){
+                for(IBook book : books){
+                    if(book.isAvailable()){
+                        total++;
+                    }
+                }
+            }
+            print(report, "countAvailable", size, queries, index, System.nanoTime() - begin, check, total);
+
+            begin = System.nanoTime();
+            total = 0;
+            for(int q = 0; q < queries; q++){
+                total += library.getAvailablePrintedBooks().size();
+            }
+            index = System.nanoTime() - begin;
+            check = total;
+            begin = System.nanoTime();
+            total = 0;
+            for(int q = 0; q < queries; q++){
+                List<IBook> result = new ArrayList<>();
+                for(IBook book : books){
+                    if(book.getLocation() != null && book.isAvailable()){
+                        result.add(book);
+                    }
+                }
+                total += result.size();
+            }
+            print(report, "availablePrinted", size, queries, index, System.nanoTime() - begin, check, total);
+
+            begin = System.nanoTime();
+            total = 0;
+            for(int q = 0; q < queries; q++){
+                total += library.getAvailableBooksAt(shelf(q)).size();
+            }
+            index = System.nanoTime() - begin;
+            check = total;
+            begin = System.nanoTime();
+            total = 0;
+            for(int q = 0; q < queries; q++){
+                String location = shelf(q);
+                List<IBook> result = new ArrayList<>();
+                for(IBook book : books){
+                    if(book.isAvailable() && location.equals(book.getLocation())){
+                        result.add(book);
+                    }
+                }
+                total += result.size();
+            }
+            print(report, "availableAtShelf", size, queries, index, System.nanoTime() - begin, check, total);
+        }
+    }
+
+    static String shelf(int i) {
+        return "Shelf " + (i / 2 % SHELVES);
+    }
+
+    static void print(boolean report, String query, int size, int queries, long index, long scan, long indexTotal, long scanTotal) {
+        if(indexTotal != scanTotal){
+            throw new IllegalStateException(query + ": index found " + indexTotal + ", scan found " + scanTotal);
+        }
+        sink += indexTotal;
+        if(report){
+            System.out.printf("%s,%d,%.1f,%.1f%n", query, size, index / 1e3 / queries, scan / 1e3 / queries);
+        }
+    }
+
+    private static int[] parseInts(String csv) {
+        String[] parts = csv.split(",");
+        int[] values = new int[parts.length];
+        for(int i = 0; i < parts.length; i++){
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+}
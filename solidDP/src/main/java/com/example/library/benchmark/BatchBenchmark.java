@@ -0,0 +1,104 @@
+package main.java.com.example.library.benchmark;
+
+import main.java.com.example.library.BookPackage.DigitalBook;
+import main.java.com.example.library.BookPackage.IBook;
+import main.java.com.example.library.Library;
+import main.java.com.example.library.LoanResult;
+import main.java.com.example.library.userPackage.PremiumUser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Cost per book of checking a batch out to one user and back, through borrowBooks/returnBooks versus a loop of
+// borrowBook/returnBook calls. The "failing" rows make the last book of every batch unavailable: the batch
+// reports it and applies nothing, while the loop pays for the exception and hands back what it already took.
+// Prints one CSV row per mode and batch size.
+//
+// Usage: BatchBenchmark [--sizes 10,1000,10000] [--books-per-size 2000000]
+public class BatchBenchmark {
+
+    public static void main(String[] args) {
+        int[] sizes = {10, 1_000, 10_000};
+        long booksPerSize = 2_000_000;
+        for(int i = 0; i < args.length; i += 2){
+            switch (args[i]) {
+                case "--sizes": sizes = parseInts(args[i + 1]); break;
+                case "--books-per-size": booksPerSize = Long.parseLong(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        System.out.println("mode,batchSize,nanosPerBook");
+        for(int size : sizes){
+            int rounds = (int) Math.max(1, booksPerSize / size);
+            for(int pass = 0; pass < 2; pass++){
+                boolean report = pass == 1;
+                run("loop", size, rounds, false, report);
+                run("batch", size, rounds, false, report);
+                run("loopFailing", size, rounds, true, report);
+                run("batchFailing", size, rounds, true, report);
+            }
+        }
+    }
+
+    static void run(String mode, int size, int rounds, boolean failing, boolean report) {
+        Library library = new Library();
+        PremiumUser user = new PremiumUser(1, "reserves");
+        PremiumUser other = new PremiumUser(2, "other");
+        List<IBook> batch = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            IBook book = new DigitalBook(i, "book" + i);
+            library.addBook(book);
+            batch.add(book);
+        }
+        if(failing){
+            library.borrowBook(other, batch.get(size - 1));
+        }
+        boolean loop = mode.startsWith("loop");
+        long begin = System.nanoTime();
+        for(int r = 0; r < rounds; r++){
+            if(loop){
+                borrowInLoop(library, user, batch);
+            } else {
+                List<LoanResult> results = library.borrowBooks(user, batch);
+                if(results.get(0).isSuccess()){
+                    library.returnBooks(user, batch);
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+        if(!user.getBorrowedBooks().isEmpty()){
+            throw new IllegalStateException(mode + " left " + user.getBorrowedBooks().size() + " books out");
+        }
+        if(report){
+            System.out.printf("%s,%d,%.1f%n", mode, size, (double) elapsed / rounds / size);
+        }
+    }
+
+    // What a nightly job did before borrowBooks: one call per book, undoing the partial batch on failure.
+    static void borrowInLoop(Library library, PremiumUser user, List<IBook> batch) {
+        int taken = 0;
+        try {
+            for(IBook book : batch){
+                library.borrowBook(user, book);
+                taken++;
+            }
+        } catch (RuntimeException e) {
+            for(int i = 0; i < taken; i++){
+                library.returnBook(user, batch.get(i));
+            }
+            return;
+        }
+        for(IBook book : batch){
+            library.returnBook(user, book);
+        }
+    }
+
+    private static int[] parseInts(String csv) {
+        String[] parts = csv.split(",");
+        int[] values = new int[parts.length];
+        for(int i = 0; i < parts.length; i++){
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+}
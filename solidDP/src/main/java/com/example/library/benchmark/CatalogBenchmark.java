@@ -0,0 +1,125 @@
+package main.java.com.example.library.benchmark;
+
+import main.java.com.example.library.BookPackage.DigitalBook;
+import main.java.com.example.library.BookPackage.IBook;
+import main.java.com.example.library.Library;
+import main.java.com.example.library.userPackage.PremiumUser;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Lookup cost of the Library catalog as it grows. findBookById, findUserById and searchByNamePrefix should stay
+// flat from 10k to 10M entries; the linear scan they replaced is measured alongside for the sizes where it
+// finishes in reasonable time. Prints one CSV row per benchmark and size.
+//
+// Usage: CatalogBenchmark [--sizes 10000,100000,1000000,10000000] [--ops 2000000] [--scan-limit 1000000]
+public class CatalogBenchmark {
+    static volatile long sink;
+
+    public static void main(String[] args) {
+        int[] sizes = {10_000, 100_000, 1_000_000, 10_000_000};
+        int ops = 2_000_000;
+        int scanLimit = 1_000_000;
+        for(int i = 0; i < args.length; i += 2){
+            switch (args[i]) {
+                case "--sizes": sizes = parseInts(args[i + 1]); break;
+                case "--ops": ops = Integer.parseInt(args[i + 1]); break;
+                case "--scan-limit": scanLimit = Integer.parseInt(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        System.out.println("benchmark,catalogSize,nanosPerOp");
+        for(int size : sizes){
+            run(size, ops, scanLimit);
+        }
+    }
+
+    static void run(int size, int ops, int scanLimit) {
+        Library library = new Library();
+        for(int i = 0; i < size; i++){
+            library.addBook(new DigitalBook(i, name(i)));
+            library.addUser(new PremiumUser(i, "user" + i));
+        }
+        // Keys are drawn up front so the random generator is not part of the measurement.
+        SplittableRandom random = new SplittableRandom(42);
+        int[] keys = new int[Math.min(ops, 1 << 20)];
+        for(int i = 0; i < keys.length; i++){
+            keys[i] = random.nextInt(size);
+        }
+        int mask = Integer.highestOneBit(keys.length) - 1;
+        // A prefix one digit short of a full name matches up to ten titles.
+        String[] prefixes = new String[Math.min(keys.length, 1 << 16)];
+        for(int i = 0; i < prefixes.length; i++){
+            String name = name(keys[i]);
+            prefixes[i] = name.substring(0, name.length() - 1);
+        }
+        int prefixMask = Integer.highestOneBit(prefixes.length) - 1;
+
+        for(int round = 0; round < 2; round++){
+            boolean report = round == 1;
+            long begin = System.nanoTime();
+            long total = 0;
+            for(int i = 0; i < ops; i++){
+                total += library.findBookById(keys[i & mask]).getId();
+            }
+            print(report, "findBookById", size, begin, ops, total);
+
+            begin = System.nanoTime();
+            total = 0;
+            for(int i = 0; i < ops; i++){
+                total += library.findUserById(keys[i & mask]).getUserID();
+            }
+            print(report, "findUserById", size, begin, ops, total);
+
+            int searches = ops / 10;
+            begin = System.nanoTime();
+            total = 0;
+            for(int i = 0; i < searches; i++){
+                total += library.searchByNamePrefix(prefixes[i & prefixMask]).size();
+            }
+            print(report, "searchByNamePrefix", size, begin, searches, total);
+
+            if(size <= scanLimit){
+                int scans = Math.max(10, (int) Math.min(ops, 2_000_000_000L / size));
+                begin = System.nanoTime();
+                total = 0;
+                for(int i = 0; i < scans; i++){
+                    total += scanForId(library.getBooks(), keys[i & mask]).getId();
+                }
+                print(report, "linearScanById", size, begin, scans, total);
+            }
+        }
+    }
+
+    // How a book was found before the catalog indexes existed.
+    static IBook scanForId(List<IBook> books, int id) {
+        for(IBook book : books){
+            if(book.getId() == id){
+                return book;
+            }
+        }
+        throw new IllegalStateException("No book " + id);
+    }
+
+    // Zero-padded so names sort in id order and every prefix of the same length matches the same number.
+    static String name(int id) {
+        return String.format("book%09d", id);
+    }
+
+    static void print(boolean report, String benchmark, int size, long begin, int ops, long total) {
+        long elapsed = System.nanoTime() - begin;
+        sink += total;
+        if(report){
+            System.out.printf("%s,%d,%.1f%n", benchmark, size, (double) elapsed / ops);
+        }
+    }
+
+    private static int[] parseInts(String csv) {
+        String[] parts = csv.split(",");
+        int[] values = new int[parts.length];
+        for(int i = 0; i < parts.length; i++){
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+}
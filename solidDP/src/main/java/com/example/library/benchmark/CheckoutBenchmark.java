@@ -0,0 +1,108 @@
+package main.java.com.example.library.benchmark;
+
+import main.java.com.example.library.BookPackage.DigitalBook;
+import main.java.com.example.library.BookPackage.IBook;
+import main.java.com.example.library.Library;
+import main.java.com.example.library.userPackage.Iuser;
+import main.java.com.example.library.userPackage.PremiumUser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Checkout throughput from 1 to 64 threads. Each thread has its own user and borrows and returns random books
+// from its own slice of the catalog, so threads never touch the same book and throughput should grow with
+// cores. Prints one CSV row per thread count.
+//
+// Usage: CheckoutBenchmark [--threads 1,2,4,8,16,32,64] [--books-per-thread 1000] [--measure-ms 2000]
+public class CheckoutBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int[] threads = {1, 2, 4, 8, 16, 32, 64};
+        int booksPerThread = 1_000;
+        long measureMillis = 2_000;
+        for(int i = 0; i < args.length; i += 2){
+            switch (args[i]) {
+                case "--threads": threads = parseInts(args[i + 1]); break;
+                case "--books-per-thread": booksPerThread = Integer.parseInt(args[i + 1]); break;
+                case "--measure-ms": measureMillis = Long.parseLong(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        System.out.println("threads,cores,checkoutsPerSecond");
+        for(int threadCount : threads){
+            run(threadCount, booksPerThread, measureMillis);
+        }
+    }
+
+    static void run(int threadCount, int booksPerThread, long measureMillis) throws InterruptedException {
+        Library library = new Library();
+        List<IBook> books = new ArrayList<>(threadCount * booksPerThread);
+        List<Iuser> users = new ArrayList<>(threadCount);
+        for(int i = 0; i < threadCount * booksPerThread; i++){
+            IBook book = new DigitalBook(i, "book" + i);
+            books.add(book);
+            library.addBook(book);
+        }
+        for(int t = 0; t < threadCount; t++){
+            Iuser user = new PremiumUser(t, "user" + t);
+            users.add(user);
+            library.addUser(user);
+        }
+
+        AtomicBoolean measuring = new AtomicBoolean(false);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        LongAdder checkouts = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threadCount);
+        for(int t = 0; t < threadCount; t++){
+            int thread = t;
+            new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(thread);
+                Iuser user = users.get(thread);
+                long count = 0;
+                try {
+                    while(running.get()){
+                        IBook book = books.get(thread * booksPerThread + random.nextInt(booksPerThread));
+                        library.borrowBook(user, book);
+                        library.returnBook(user, book);
+                        if(measuring.get()){
+                            count++;
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    checkouts.add(count);
+                    done.countDown();
+                }
+            }).start();
+        }
+        Thread.sleep(Math.max(200, measureMillis / 4));
+        long start = System.nanoTime();
+        measuring.set(true);
+        Thread.sleep(measureMillis);
+        measuring.set(false);
+        long elapsed = System.nanoTime() - start;
+        running.set(false);
+        done.await();
+        if(failure.get() != null){
+            throw new IllegalStateException("Checkout failed with " + threadCount + " threads", failure.get());
+        }
+        System.out.printf("%d,%d,%.0f%n", threadCount, Runtime.getRuntime().availableProcessors(),
+                checkouts.sum() * 1_000_000_000d / elapsed);
+    }
+
+    private static int[] parseInts(String csv) {
+        String[] parts = csv.split(",");
+        int[] values = new int[parts.length];
+        for(int i = 0; i < parts.length; i++){
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+}
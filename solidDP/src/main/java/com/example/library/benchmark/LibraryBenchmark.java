@@ -0,0 +1,247 @@
+package main.java.com.example.library.benchmark;
+
+import main.java.com.example.library.BookPackage.DigitalBook;
+import main.java.com.example.library.BookPackage.IBook;
+import main.java.com.example.library.BookPackage.PrintedBook;
+import main.java.com.example.library.Library;
+import main.java.com.example.library.userPackage.Iuser;
+import main.java.com.example.library.userPackage.PremiumUser;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Load harness for Library. Every benchmark runs for a warmup period and then a measured period, for each
+// catalog size and (where it applies) thread count, and prints one CSV row per run so results can be diffed
+// between versions. Operations return a value that each thread sums privately and publishes once at the end,
+// so keeping results alive adds no shared writes to the measurement.
+//
+// Each run gets a JVM of its own, started with the same JVM options, so the JIT compiles it from a clean
+// profile: in one JVM the Operation call site turns megamorphic after the first few benchmarks and the later
+// ones measure that instead of the library. The warmup runs the same threads through the same call site until
+// the code is compiled, and its operations are not counted. --fork false runs everything in this JVM.
+//
+// Usage: LibraryBenchmark [--sizes 10000,1000000] [--threads 1,4,16] [--warmup-ms 500] [--measure-ms 2000]
+//                         [--only borrowReturn,...] [--out results.csv] [--fork true]
+public class LibraryBenchmark {
+    private static final int HOT_TITLES = 8;
+
+    static volatile long sink;
+
+    private final long warmupMillis;
+    private final long measureMillis;
+
+    LibraryBenchmark(long warmupMillis, long measureMillis){
+        this.warmupMillis = warmupMillis;
+        this.measureMillis = measureMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {10_000, 1_000_000};
+        int[] threads = {1, 4, 16};
+        long warmup = 500;
+        long measure = 2_000;
+        List<String> only = null;
+        Path out = null;
+        boolean fork = true;
+        String single = null;
+        for(int i = 0; i < args.length; i += 2){
+            switch (args[i]) {
+                case "--sizes": sizes = parseInts(args[i + 1]); break;
+                case "--threads": threads = parseInts(args[i + 1]); break;
+                case "--warmup-ms": warmup = Long.parseLong(args[i + 1]); break;
+                case "--measure-ms": measure = Long.parseLong(args[i + 1]); break;
+                case "--only": only = List.of(args[i + 1].split(",")); break;
+                case "--out": out = Path.of(args[i + 1]); break;
+                case "--fork": fork = Boolean.parseBoolean(args[i + 1]); break;
+                // Used by a forked JVM: runs one benchmark given as name,catalogSize,threads and prints its row.
+                case "--run": single = args[i + 1]; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        LibraryBenchmark benchmark = new LibraryBenchmark(warmup, measure);
+        if(single != null){
+            String[] run = single.split(",");
+            System.out.println(benchmark.run(run[0], Integer.parseInt(run[1]), Integer.parseInt(run[2])));
+            return;
+        }
+        List<String> rows = new ArrayList<>();
+        rows.add("benchmark,catalogSize,threads,opsPerSecond,nanosPerOp");
+        for(int size : sizes){
+            for(String name : List.of("borrowReturn", "bookLookup", "userLookup", "availableCountBitmap", "availableCountScan")){
+                if(only == null || only.contains(name)){
+                    rows.add(fork ? benchmark.forked(name, size, 1) : benchmark.run(name, size, 1));
+                }
+            }
+            for(int threadCount : threads){
+                for(String name : List.of("contendedBorrow", "uncontendedBorrow")){
+                    if(only == null || only.contains(name)){
+                        rows.add(fork ? benchmark.forked(name, size, threadCount) : benchmark.run(name, size, threadCount));
+                    }
+                }
+            }
+        }
+        rows.forEach(System.out::println);
+        if(out != null){
+            Files.write(out, rows);
+        }
+    }
+
+    // Runs one benchmark in a new JVM and returns its row.
+    String forked(String name, int catalogSize, int threadCount) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), LibraryBenchmark.class.getName(),
+                "--run", name + "," + catalogSize + "," + threadCount,
+                "--warmup-ms", Long.toString(warmupMillis), "--measure-ms", Long.toString(measureMillis)));
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        String row = new String(process.getInputStream().readAllBytes()).trim();
+        if(process.waitFor() != 0){
+            throw new IllegalStateException(name + " failed in its forked JVM");
+        }
+        return row;
+    }
+
+    String run(String name, int catalogSize, int threadCount) throws InterruptedException {
+        Library library = new Library();
+        List<IBook> books = new ArrayList<>(catalogSize);
+        List<Iuser> users = new ArrayList<>(catalogSize);
+        for(int i = 0; i < catalogSize; i++){
+            IBook book = i % 2 == 0 ? new PrintedBook(i, "book" + i, "Aisle " + (i % 20)) : new DigitalBook(i, "book" + i);
+            Iuser user = new PremiumUser(i, "user" + i);
+            books.add(book);
+            users.add(user);
+            library.addBook(book);
+            library.addUser(user);
+        }
+        if(threadCount > catalogSize){
+            throw new IllegalArgumentException(name + " needs a book and a user per thread: " + threadCount
+                    + " threads, " + catalogSize + " books");
+        }
+        Operation operation = operation(name, library, books, users, threadCount);
+        double opsPerSecond = measure(operation, threadCount);
+        return String.format("%s,%d,%d,%.0f,%.1f", name, catalogSize, threadCount, opsPerSecond,
+                threadCount * 1_000_000_000d / opsPerSecond);
+    }
+
+    private Operation operation(String name, Library library, List<IBook> books, List<Iuser> users, int threadCount) {
+        int size = books.size();
+        switch (name) {
+            case "borrowReturn":
+                return thread -> {
+                    IBook book = books.get(ThreadLocalRandom.current().nextInt(size));
+                    library.borrowBook(users.get(0), book);
+                    library.returnBook(users.get(0), book);
+                    return 1;
+                };
+            case "bookLookup":
+                return thread -> library.findBookById(ThreadLocalRandom.current().nextInt(size)).getId();
+            case "userLookup":
+                return thread -> library.findUserById(ThreadLocalRandom.current().nextInt(size)).getUserID();
+            case "availableCountBitmap":
+                return thread -> library.countAvailableBooks();
+            case "availableCountScan":
+                return thread -> {
+                    int available = 0;
+                    for(IBook book : library.getBooks()){
+                        if(book.isAvailable()){
+                            available++;
+                        }
+                    }
+                    return available;
+                };
+            case "contendedBorrow":
+                // All threads fight over a handful of hot titles; losers count as completed attempts.
+                return thread -> {
+                    IBook book = books.get(ThreadLocalRandom.current().nextInt(Math.min(HOT_TITLES, size)));
+                    try {
+                        library.borrowBook(users.get(thread), book);
+                        library.returnBook(users.get(thread), book);
+                        return 1;
+                    } catch (RuntimeException e) {
+                        return 0;
+                    }
+                };
+            case "uncontendedBorrow":
+                // Each thread borrows from its own slice of the catalog, so no two threads ever share a book.
+                int slice = size / threadCount;
+                return thread -> {
+                    IBook book = books.get(thread * slice + ThreadLocalRandom.current().nextInt(slice));
+                    library.borrowBook(users.get(thread), book);
+                    library.returnBook(users.get(thread), book);
+                    return 1;
+                };
+            default:
+                throw new IllegalArgumentException("Unknown benchmark " + name);
+        }
+    }
+
+    private double measure(Operation operation, int threadCount) throws InterruptedException {
+        AtomicBoolean measuring = new AtomicBoolean(false);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        LongAdder operations = new LongAdder();
+        LongAdder results = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threadCount);
+        for(int t = 0; t < threadCount; t++){
+            int thread = t;
+            new Thread(() -> {
+                long count = 0;
+                long result = 0;
+                boolean counting = false;
+                try {
+                    while(running.get()){
+                        result += operation.run(thread);
+                        if(counting){
+                            count++;
+                        } else if(measuring.get()){
+                            counting = true;
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                    running.set(false);
+                } finally {
+                    operations.add(count);
+                    results.add(result);
+                    done.countDown();
+                }
+            }).start();
+        }
+        Thread.sleep(warmupMillis);
+        long start = System.nanoTime();
+        measuring.set(true);
+        Thread.sleep(measureMillis);
+        running.set(false);
+        long elapsed = System.nanoTime() - start;
+        done.await();
+        sink += results.sum();
+        if(failure.get() != null){
+            throw new IllegalStateException("Benchmark thread failed", failure.get());
+        }
+        return operations.sum() * 1_000_000_000d / elapsed;
+    }
+
+    private static int[] parseInts(String csv) {
+        String[] parts = csv.split(",");
+        int[] values = new int[parts.length];
+        for(int i = 0; i < parts.length; i++){
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    private interface Operation {
+        long run(int thread);
+    }
+}
@@ -0,0 +1,94 @@
+package main.java.com.example.library.benchmark;
+
+import main.java.com.example.library.BookPackage.DigitalBook;
+import main.java.com.example.library.BookPackage.IBook;
+import main.java.com.example.library.Library;
+import main.java.com.example.library.userPackage.PremiumUser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Return latency for a user holding 10 to 100k loans. Each step returns a random book the user holds and
+// borrows it straight back, so the number of loans stays fixed. "listRemove" times the ArrayList.remove(Object)
+// that loan tracking used before, on a list of the same size. Prints one CSV row per mode and loan count.
+//
+// Usage: LoanTrackingBenchmark [--loans 10,100,1000,10000,100000] [--ops 200000]
+public class LoanTrackingBenchmark {
+    static volatile long sink;
+
+    public static void main(String[] args) {
+        int[] loanCounts = {10, 100, 1_000, 10_000, 100_000};
+        int ops = 200_000;
+        for(int i = 0; i < args.length; i += 2){
+            switch (args[i]) {
+                case "--loans": loanCounts = parseInts(args[i + 1]); break;
+                case "--ops": ops = Integer.parseInt(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        System.out.println("mode,loans,nanosPerReturn");
+        for(int loans : loanCounts){
+            for(int pass = 0; pass < 2; pass++){
+                boolean report = pass == 1;
+                returnAndReborrow(loans, ops, report);
+                // The list scan is quadratic overall, so it gets fewer steps at large sizes.
+                listRemove(loans, (int) Math.max(1_000, Math.min(ops, 2_000_000_000L / loans / 10)), report);
+            }
+        }
+    }
+
+    static void returnAndReborrow(int loans, int ops, boolean report) {
+        Library library = new Library();
+        PremiumUser user = new PremiumUser(1, "heavy");
+        List<IBook> held = new ArrayList<>(loans);
+        for(int i = 0; i < loans; i++){
+            IBook book = new DigitalBook(i, "book" + i);
+            library.addBook(book);
+            library.borrowBook(user, book);
+            held.add(book);
+        }
+        SplittableRandom random = new SplittableRandom(7);
+        long begin = System.nanoTime();
+        for(int i = 0; i < ops; i++){
+            IBook book = held.get(random.nextInt(loans));
+            library.returnBook(user, book);
+            library.borrowBook(user, book);
+        }
+        long elapsed = System.nanoTime() - begin;
+        if(user.getBorrowedBooks().size() != loans){
+            throw new IllegalStateException("Expected " + loans + " loans, found " + user.getBorrowedBooks().size());
+        }
+        if(report){
+            System.out.printf("returnAndReborrow,%d,%.1f%n", loans, (double) elapsed / ops);
+        }
+    }
+
+    static void listRemove(int loans, int ops, boolean report) {
+        List<IBook> held = new ArrayList<>(loans);
+        for(int i = 0; i < loans; i++){
+            held.add(new DigitalBook(i, "book" + i));
+        }
+        SplittableRandom random = new SplittableRandom(7);
+        long begin = System.nanoTime();
+        for(int i = 0; i < ops; i++){
+            IBook book = held.get(random.nextInt(loans));
+            held.remove(book);
+            held.add(book);
+        }
+        long elapsed = System.nanoTime() - begin;
+        sink += held.size();
+        if(report){
+            System.out.printf("listRemove,%d,%.1f%n", loans, (double) elapsed / ops);
+        }
+    }
+
+    private static int[] parseInts(String csv) {
+        String[] parts = csv.split(",");
+        int[] values = new int[parts.length];
+        for(int i = 0; i < parts.length; i++){
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,153 @@
+package main.java.com.example.library.benchmark;
+
+import main.java.com.example.library.BookPackage.DigitalBook;
+import main.java.com.example.library.BookPackage.IBook;
+import main.java.com.example.library.BookPackage.OffHeapBookStore;
+import main.java.com.example.library.BookPackage.PrintedBook;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// Heap footprint and GC cost of keeping books as heap objects versus in an OffHeapBookStore. Each store is
+// filled with the same books, half printed over 64 shelves, with a title shared by every ten copies. While the
+// store is live the benchmark measures the heap left after a full collection, how long that collection takes,
+// and the GC time spent while allocating short-lived garbage. It also times one pass that reads every book.
+// Prints one CSV row per store. Run with a heap large enough for the heap store, e.g. -Xmx4g for 10M books.
+//
+// Usage: OffHeapBenchmark [--books 10000000] [--garbage-mb 4096]
+public class OffHeapBenchmark {
+    static volatile Object sink;
+
+    interface BookSource {
+        int size();
+        IBook book(int i);
+    }
+
+    public static void main(String[] args) {
+        int books = 10_000_000;
+        int garbageMb = 4096;
+        for(int i = 0; i < args.length; i += 2){
+            switch (args[i]) {
+                case "--books": books = Integer.parseInt(args[i + 1]); break;
+                case "--garbage-mb": garbageMb = Integer.parseInt(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        System.out.println("store,books,heapAfterGcMb,fullGcMillis,churnGcMillis,churnGcCount,scanMillis");
+        long baseline = heapAfterFullGc();
+        run("heap", heapBooks(books), books, baseline, garbageMb);
+        baseline = heapAfterFullGc();
+        run("offHeap", offHeapBooks(books), books, baseline, garbageMb);
+    }
+
+    static BookSource heapBooks(int count) {
+        String[] titles = titles(count);
+        List<IBook> books = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            books.add(i % 2 == 0 ? new PrintedBook(i, titles[i / 10], shelf(i)) : new DigitalBook(i, titles[i / 10]));
+        }
+        return new BookSource() {
+            @Override
+            public int size() {
+                return books.size();
+            }
+
+            @Override
+            public IBook book(int i) {
+                return books.get(i);
+            }
+        };
+    }
+
+    static BookSource offHeapBooks(int count) {
+        String[] titles = titles(count);
+        OffHeapBookStore store = new OffHeapBookStore(count);
+        for(int i = 0; i < count; i++){
+            if(i % 2 == 0){
+                store.addPrintedBook(i, titles[i / 10], shelf(i));
+            } else {
+                store.addDigitalBook(i, titles[i / 10]);
+            }
+        }
+        return new BookSource() {
+            @Override
+            public int size() {
+                return store.size();
+            }
+
+            @Override
+            public IBook book(int i) {
+                return store.book(i);
+            }
+        };
+    }
+
+    static void run(String name, BookSource books, int count, long baseline, int garbageMb) {
+        long heap = heapAfterFullGc() - baseline;
+
+        long begin = System.nanoTime();
+        System.gc();
+        long fullGc = (System.nanoTime() - begin) / 1_000_000;
+
+        long gcBefore = gcMillis();
+        long countBefore = gcCount();
+        for(int mb = 0; mb < garbageMb; mb++){
+            // 1 MB of short-lived objects per iteration.
+            for(int i = 0; i < 1024; i++){
+                sink = new byte[1008];
+            }
+        }
+        long churnGc = gcMillis() - gcBefore;
+        long churnCount = gcCount() - countBefore;
+
+        begin = System.nanoTime();
+        long total = 0;
+        for(int i = 0; i < books.size(); i++){
+            IBook book = books.book(i);
+            if(book.isAvailable()){
+                total += book.getId() + book.getName().length();
+            }
+        }
+        long scan = (System.nanoTime() - begin) / 1_000_000;
+        sink = total;
+        System.out.printf("%s,%d,%d,%d,%d,%d,%d%n", name, count, heap >> 20, fullGc, churnGc, churnCount, scan);
+        sink = books;
+    }
+
+    static String[] titles(int count) {
+        String[] titles = new String[count / 10 + 1];
+        for(int i = 0; i < titles.length; i++){
+            titles[i] = "title" + i;
+        }
+        return titles;
+    }
+
+    static String shelf(int i) {
+        return "Shelf " + (i / 2 % 64);
+    }
+
+    static long heapAfterFullGc() {
+        sink = null;
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    static long gcMillis() {
+        long total = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    static long gcCount() {
+        long total = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+}
@@ -2,13 +2,17 @@ package main.java.com.example.library.userPackage;
 
 import main.java.com.example.library.BookPackage.IBook;
 
-import java.util.List;
+import java.util.Collection;
 
 public interface Iuser {
     public int getUserID();
     public String getUserName();
     public boolean canBorrow();
-    public List<IBook> getBorrowedBooks();
+    public int getRemainingBorrowLimit();
+    // Loans are tracked per book object: distinct copies that share an id are separate loans, while two
+    // off-heap views of the same slot are equal and count as one.
+    public Collection<IBook> getBorrowedBooks();
+    public boolean hasBorrowedBook(IBook book);
     public void addBorrowedBook(IBook book);
     public void removeBorrowedBook(IBook book);
 }
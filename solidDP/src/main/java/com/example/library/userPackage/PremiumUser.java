@@ -2,18 +2,22 @@ package main.java.com.example.library.userPackage;
 
 import main.java.com.example.library.BookPackage.IBook;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 public class PremiumUser implements Iuser{
     private int id;
     private String name;
-    private List<IBook> borrowedBooks;
+    private Set<IBook> borrowedBooks;
+    private Collection<IBook> borrowedBooksView;
 
     public PremiumUser(int id, String name){
         this.id = id;
         this.name = name;
-        this.borrowedBooks = new ArrayList<>();
+        this.borrowedBooks = new LinkedHashSet<>();
+        this.borrowedBooksView = Collections.unmodifiableSet(borrowedBooks);
     }
     @Override
     public int getUserID() {
@@ -31,8 +35,18 @@ public class PremiumUser implements Iuser{
     }
 
     @Override
-    public List<IBook> getBorrowedBooks(){
-        return this.borrowedBooks;
+    public int getRemainingBorrowLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public Collection<IBook> getBorrowedBooks(){
+        return this.borrowedBooksView;
+    }
+
+    @Override
+    public boolean hasBorrowedBook(IBook book){
+        return this.borrowedBooks.contains(book);
     }
 
     @Override
@@ -2,13 +2,16 @@ package main.java.com.example.library.userPackage;
 
 import main.java.com.example.library.BookPackage.IBook;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 public class RegularUser implements Iuser{
     private int id;
     private String name;
-    private List<IBook> borrowedBooks;
+    private Set<IBook> borrowedBooks;
+    private Collection<IBook> borrowedBooksView;
 
     private final int MAX_NO_OF_BOOKS_BORROW_LIMIT = 5;
     private int currBooksBorrowCount;
@@ -16,7 +19,8 @@ public class RegularUser implements Iuser{
         this.id = id;
         this.name = name;
         this.currBooksBorrowCount = 0;
-        this.borrowedBooks = new ArrayList<>();
+        this.borrowedBooks = new LinkedHashSet<>();
+        this.borrowedBooksView = Collections.unmodifiableSet(borrowedBooks);
     }
     @Override
     public int getUserID() {
@@ -34,18 +38,31 @@ public class RegularUser implements Iuser{
     }
 
     @Override
-    public List<IBook> getBorrowedBooks(){
-        return this.borrowedBooks;
+    public int getRemainingBorrowLimit() {
+        return MAX_NO_OF_BOOKS_BORROW_LIMIT - currBooksBorrowCount;
+    }
+
+    @Override
+    public Collection<IBook> getBorrowedBooks(){
+        return this.borrowedBooksView;
+    }
+
+    @Override
+    public boolean hasBorrowedBook(IBook book){
+        return this.borrowedBooks.contains(book);
     }
 
     @Override
     public void addBorrowedBook(IBook book){
-        this.borrowedBooks.add(book);
-        currBooksBorrowCount++;
+        if(this.borrowedBooks.add(book)){
+            currBooksBorrowCount++;
+        }
     }
 
     @Override
     public void removeBorrowedBook(IBook book){
-        this.borrowedBooks.remove(book);
+        if(this.borrowedBooks.remove(book)){
+            currBooksBorrowCount--;
+        }
     }
 }
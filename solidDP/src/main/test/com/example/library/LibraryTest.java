@@ -1,8 +1,12 @@
 package main.test.com.example.library;
 
 import main.java.com.example.library.BookPackage.DigitalBook;
+import main.java.com.example.library.BookPackage.IBook;
 import main.java.com.example.library.BookPackage.PrintedBook;
+import main.java.com.example.library.BookBitmap;
 import main.java.com.example.library.Library;
+import main.java.com.example.library.LoanResult;
+import main.java.com.example.library.LoanStatus;
 import main.java.com.example.library.userPackage.Iuser;
 import main.java.com.example.library.userPackage.PremiumUser;
 import main.java.com.example.library.userPackage.RegularUser;
@@ -11,6 +15,14 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class LibraryTest {
 
     Library library;
@@ -102,4 +114,450 @@ public class LibraryTest {
         // No limit for PremiumUser, so no exception should be thrown
     }
 
+    @Test
+    public void testCopiesSharingAnIdAreSeparateLoans() {
+        RegularUser user = new RegularUser(1, "Alice");
+        List<PrintedBook> copies = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            PrintedBook copy = new PrintedBook(5, "book 5", "location shelf 1");
+            copies.add(copy);
+            library.borrowBook(user, copy);
+        }
+        Assertions.assertEquals(5, user.getBorrowedBooks().size());
+        Assertions.assertThrows(RuntimeException.class,
+                () -> library.borrowBook(user, new PrintedBook(5, "book 5", "location shelf 1")));
+
+        library.returnBook(user, copies.get(0));
+        Assertions.assertFalse(user.hasBorrowedBook(copies.get(0)));
+        Assertions.assertTrue(user.hasBorrowedBook(copies.get(1)));
+        Assertions.assertEquals(4, user.getBorrowedBooks().size());
+        Assertions.assertTrue(user.canBorrow());
+    }
+
+    @Test
+    public void testFindBookAndUserById() {
+        PrintedBook book = new PrintedBook(7, "Refactoring", "Shelf B");
+        RegularUser user = new RegularUser(3, "Carol");
+        library.addBook(book);
+        library.addUser(user);
+
+        Assertions.assertSame(book, library.findBookById(7));
+        Assertions.assertSame(user, library.findUserById(3));
+        Assertions.assertNull(library.findBookById(8));
+        Assertions.assertNull(library.findUserById(4));
+    }
+
+    @Test
+    public void testFindByIdAcrossManySparseIds() {
+        int count = 20_000;
+        for (int i = 0; i < count; i++) {
+            library.addBook(new PrintedBook(i * 1024 + 3, "Book " + i, "Shelf A"));
+            library.addUser(new RegularUser(i * 1024 + 3, "User " + i));
+        }
+        PrintedBook replacement = new PrintedBook(1024 + 3, "Second edition", "Shelf B");
+        library.addBook(replacement);
+
+        for (int i = 0; i < count; i++) {
+            int id = i * 1024 + 3;
+            Assertions.assertEquals(id, library.findBookById(id).getId());
+            Assertions.assertEquals(id, library.findUserById(id).getUserID());
+            Assertions.assertNull(library.findBookById(id + 1));
+        }
+        Assertions.assertSame(replacement, library.findBookById(1024 + 3));
+    }
+
+    @Test
+    public void testSearchByNamePrefix() {
+        library.addBook(new PrintedBook(1, "Java Programming", "Shelf A"));
+        library.addBook(new DigitalBook(2, "Java Concurrency"));
+        library.addBook(new DigitalBook(3, "Effective Java"));
+
+        Assertions.assertEquals(2, library.searchByNamePrefix("Java").size());
+        Assertions.assertEquals(1, library.searchByNamePrefix("Effective").size());
+        Assertions.assertTrue(library.searchByNamePrefix("Kotlin").isEmpty());
+    }
+
+    @Test
+    public void testConcurrentBorrowNeverDoubleBorrows() throws InterruptedException {
+        int threads = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int round = 0; round < 200; round++) {
+            PrintedBook book = new PrintedBook(round, "Hot title", "Shelf A");
+            AtomicInteger successes = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                Iuser user = new PremiumUser(t, "user" + t);
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                        library.borrowBook(user, book);
+                        successes.incrementAndGet();
+                    } catch (RuntimeException | InterruptedException e) {
+                        // lost the race
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            start.countDown();
+            done.await();
+            Assertions.assertEquals(1, successes.get(), "Exactly one user should get the book");
+        }
+        pool.shutdown();
+        Assertions.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testConcurrentBorrowRespectsRegularUserLimit() throws InterruptedException {
+        int threads = 20;
+        RegularUser user = new RegularUser(1, "Alice");
+        AtomicInteger successes = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            PrintedBook book = new PrintedBook(t, "book" + t, "Shelf A");
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    library.borrowBook(user, book);
+                    successes.incrementAndGet();
+                } catch (RuntimeException | InterruptedException e) {
+                    // over the limit
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Assertions.assertEquals(5, successes.get());
+        Assertions.assertEquals(5, user.getBorrowedBooks().size());
+    }
+
+    @Test
+    public void testReturnBookRejectsAnotherUsersLoan() {
+        PrintedBook book = new PrintedBook(1, "Dune", "Shelf A");
+        RegularUser owner = new RegularUser(1, "Alice");
+        RegularUser other = new RegularUser(2, "Bob");
+        library.borrowBook(owner, book);
+
+        Assertions.assertThrows(RuntimeException.class, () -> library.returnBook(other, book));
+        Assertions.assertFalse(book.isAvailable());
+        Assertions.assertTrue(owner.hasBorrowedBook(book));
+    }
+
+    @Test
+    public void testConcurrentAddBookAndUser() throws InterruptedException {
+        int threads = 8;
+        int perThread = 2_000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            workers[t] = new Thread(() -> {
+                for (int i = base; i < base + perThread; i++) {
+                    library.addBook(new DigitalBook(i, "book" + i));
+                    library.addUser(new PremiumUser(i, "user" + i));
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Assertions.assertEquals(threads * perThread, library.getBooks().size());
+        Assertions.assertEquals(threads * perThread, library.getUsers().size());
+        Assertions.assertEquals(threads * perThread, library.countAvailableBooks());
+    }
+
+    @Test
+    public void testBorrowBooksAppliesWholeBatch() {
+        PremiumUser user = new PremiumUser(1, "Bob");
+        List<IBook> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(new DigitalBook(i, "book" + i));
+        }
+
+        List<LoanResult> results = library.borrowBooks(user, batch);
+        Assertions.assertTrue(results.stream().allMatch(LoanResult::isSuccess));
+        Assertions.assertEquals(100, user.getBorrowedBooks().size());
+        Assertions.assertTrue(batch.stream().noneMatch(IBook::isAvailable));
+
+        results = library.returnBooks(user, batch);
+        Assertions.assertTrue(results.stream().allMatch(LoanResult::isSuccess));
+        Assertions.assertEquals(0, user.getBorrowedBooks().size());
+        Assertions.assertTrue(batch.stream().allMatch(IBook::isAvailable));
+    }
+
+    @Test
+    public void testBorrowBooksIsAllOrNothing() {
+        PremiumUser user = new PremiumUser(1, "Bob");
+        DigitalBook taken = new DigitalBook(2, "taken");
+        library.borrowBook(new PremiumUser(2, "Other"), taken);
+        List<IBook> batch = List.of(new DigitalBook(1, "free"), taken, new DigitalBook(3, "free too"));
+
+        List<LoanResult> results = library.borrowBooks(user, batch);
+        Assertions.assertEquals(LoanStatus.NOT_APPLIED, results.get(0).getStatus());
+        Assertions.assertEquals(LoanStatus.UNAVAILABLE, results.get(1).getStatus());
+        Assertions.assertEquals(LoanStatus.NOT_APPLIED, results.get(2).getStatus());
+        Assertions.assertTrue(batch.get(0).isAvailable());
+        Assertions.assertTrue(batch.get(2).isAvailable());
+        Assertions.assertEquals(0, user.getBorrowedBooks().size());
+    }
+
+    @Test
+    public void testBorrowBooksChecksRegularUserLimitUpFront() {
+        RegularUser user = new RegularUser(1, "Alice");
+        library.borrowBook(user, new PrintedBook(0, "book0", "Shelf A"));
+        List<IBook> batch = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            batch.add(new PrintedBook(i, "book" + i, "Shelf A"));
+        }
+
+        List<LoanResult> results = library.borrowBooks(user, batch);
+        Assertions.assertTrue(results.stream().allMatch(r -> r.getStatus() == LoanStatus.LIMIT_EXCEEDED));
+        Assertions.assertTrue(batch.stream().allMatch(IBook::isAvailable));
+        Assertions.assertEquals(4, library.borrowBooks(user, batch.subList(0, 4)).stream().filter(LoanResult::isSuccess).count());
+    }
+
+    @Test
+    public void testReturnBooksRejectsBooksNotHeldByUser() {
+        PremiumUser user = new PremiumUser(1, "Bob");
+        DigitalBook held = new DigitalBook(1, "held");
+        DigitalBook notHeld = new DigitalBook(2, "not held");
+        library.borrowBook(user, held);
+
+        List<LoanResult> results = library.returnBooks(user, List.of(held, notHeld));
+        Assertions.assertEquals(LoanStatus.NOT_APPLIED, results.get(0).getStatus());
+        Assertions.assertEquals(LoanStatus.NOT_BORROWED, results.get(1).getStatus());
+        Assertions.assertFalse(held.isAvailable());
+        Assertions.assertEquals(1, user.getBorrowedBooks().size());
+    }
+
+    @Test
+    public void testRegularUserCanBorrowAgainAfterReturning() {
+        RegularUser user = new RegularUser(1, "Alice");
+        PrintedBook first = new PrintedBook(0, "book0", "Shelf A");
+        library.borrowBook(user, first);
+        for (int i = 1; i < 5; i++) {
+            library.borrowBook(user, new PrintedBook(i, "book" + i, "Shelf A"));
+        }
+        Assertions.assertFalse(user.canBorrow());
+
+        library.returnBook(user, first);
+        Assertions.assertTrue(user.canBorrow());
+        Assertions.assertFalse(user.hasBorrowedBook(first));
+        Assertions.assertEquals(4, user.getBorrowedBooks().size());
+        library.borrowBook(user, new PrintedBook(5, "book5", "Shelf A"));
+    }
+
+    @Test
+    public void testAvailabilityIndexTracksBorrowAndReturn() {
+        PremiumUser user = new PremiumUser(1, "Bob");
+        List<IBook> books = new ArrayList<>();
+        // Ids span several bitmap chunks.
+        for (int i = 0; i < 200_000; i += 1_000) {
+            IBook book = i % 2000 == 0 ? new PrintedBook(i, "book" + i, "Aisle " + (i % 3)) : new DigitalBook(i, "book" + i);
+            books.add(book);
+            library.addBook(book);
+        }
+        Assertions.assertEquals(200, library.countAvailableBooks());
+        Assertions.assertEquals(100, library.getAvailablePrintedBooks().size());
+
+        library.borrowBook(user, books.get(0));
+        library.borrowBook(user, books.get(1));
+        library.borrowBook(user, books.get(199));
+        Assertions.assertEquals(197, library.countAvailableBooks());
+        Assertions.assertEquals(99, library.getAvailablePrintedBooks().size());
+
+        List<IBook> visited = new ArrayList<>();
+        library.forEachAvailableBook(visited::add);
+        Assertions.assertEquals(197, visited.size());
+        Assertions.assertTrue(visited.stream().allMatch(IBook::isAvailable));
+
+        library.returnBook(user, books.get(0));
+        Assertions.assertEquals(198, library.countAvailableBooks());
+        Assertions.assertTrue(library.getAvailableBooksAt("Aisle 0").stream()
+                .allMatch(book -> ((PrintedBook) book).getLocation().equals("Aisle 0") && book.isAvailable()));
+        Assertions.assertTrue(library.getAvailableBooksAt("Aisle 9").isEmpty());
+    }
+
+    @Test
+    public void testAvailabilityIndexIgnoresUncataloguedBooks() {
+        PremiumUser user = new PremiumUser(1, "Bob");
+        library.addBook(new DigitalBook(1, "catalogued"));
+        DigitalBook loose = new DigitalBook(2, "not catalogued");
+        library.borrowBook(user, loose);
+        library.returnBook(user, loose);
+        Assertions.assertEquals(1, library.countAvailableBooks());
+    }
+
+    @Test
+    public void testAvailabilityIndexTracksCopiesSharingAnId() {
+        PremiumUser user = new PremiumUser(1, "Bob");
+        PrintedBook first = new PrintedBook(5, "Dune", "Shelf A");
+        PrintedBook second = new PrintedBook(5, "Dune", "Shelf A");
+        library.addBook(first);
+        library.addBook(second);
+        library.borrowBook(user, first);
+
+        Assertions.assertEquals(1, library.countAvailableBooks());
+        List<IBook> available = library.getAvailableBooksAt("Shelf A");
+        Assertions.assertEquals(1, available.size());
+        Assertions.assertSame(second, available.get(0));
+    }
+
+    @Test
+    public void testAvailabilityIndexAcceptsNegativeIds() {
+        PremiumUser user = new PremiumUser(1, "Bob");
+        DigitalBook book = new DigitalBook(-7, "negative");
+        library.addBook(book);
+        Assertions.assertEquals(1, library.countAvailableBooks());
+        library.borrowBook(user, book);
+        Assertions.assertEquals(0, library.countAvailableBooks());
+    }
+
+    @Test
+    public void testBookBitmapRejectsNegativeIds() {
+        BookBitmap bitmap = new BookBitmap();
+        IllegalArgumentException error = Assertions.assertThrows(IllegalArgumentException.class, () -> bitmap.set(-1));
+        Assertions.assertTrue(error.getMessage().contains("-1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> bitmap.get(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> bitmap.clear(Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void testReturnedBookGoesToFirstWaiter() {
+        List<String> notifications = new ArrayList<>();
+        library.setHoldListener((user, book) -> notifications.add(user.getUserName() + ":" + book.getName()), Runnable::run);
+        PrintedBook book = new PrintedBook(1, "Dune", "Shelf A");
+        library.addBook(book);
+        PremiumUser holder = new PremiumUser(1, "holder");
+        PremiumUser first = new PremiumUser(2, "first");
+        PremiumUser second = new PremiumUser(3, "second");
+        library.borrowBook(holder, book);
+
+        library.placeHold(first, book);
+        library.placeHold(second, book);
+        Assertions.assertEquals(2, library.getHoldQueueDepth(book));
+        Assertions.assertThrows(RuntimeException.class, () -> library.borrowBook(new PremiumUser(4, "jumper"), book));
+
+        library.returnBook(holder, book);
+        Assertions.assertFalse(book.isAvailable());
+        Assertions.assertTrue(first.hasBorrowedBook(book));
+        Assertions.assertEquals(1, library.getHoldQueueDepth(book));
+        Assertions.assertEquals(0, library.countAvailableBooks());
+        Assertions.assertEquals(List.of("first:Dune"), notifications);
+
+        library.returnBook(first, book);
+        library.returnBook(second, book);
+        Assertions.assertTrue(book.isAvailable());
+        Assertions.assertEquals(0, library.getTotalHoldCount());
+        Assertions.assertEquals(List.of("first:Dune", "second:Dune"), notifications);
+    }
+
+    @Test
+    public void testHoldPlacedDuringRolledBackBatchIsServed() {
+        PremiumUser batcher = new PremiumUser(1, "batcher");
+        PremiumUser waiter = new PremiumUser(2, "waiter");
+        PrintedBook taken = new PrintedBook(2, "Taken", "Shelf A");
+        library.borrowBook(new PremiumUser(3, "owner"), taken);
+        // The hold arrives while the batch has the book claimed, so the waiter cannot take it yet.
+        PrintedBook contended = new PrintedBook(1, "Contended", "Shelf A") {
+            boolean holdPlaced;
+
+            @Override
+            public boolean compareAndSetAvailability(boolean expected, boolean availability) {
+                boolean changed = super.compareAndSetAvailability(expected, availability);
+                if (changed && !availability && !holdPlaced) {
+                    holdPlaced = true;
+                    library.placeHold(waiter, this);
+                }
+                return changed;
+            }
+        };
+        library.addBook(contended);
+
+        List<LoanResult> results = library.borrowBooks(batcher, List.of(contended, taken));
+        Assertions.assertEquals(LoanStatus.NOT_APPLIED, results.get(0).getStatus());
+        Assertions.assertTrue(waiter.hasBorrowedBook(contended));
+        Assertions.assertFalse(contended.isAvailable());
+        Assertions.assertEquals(0, library.getHoldQueueDepth(contended));
+    }
+
+    @Test
+    public void testWaiterAtLimitKeepsPlaceAndIsServedAfterReturning() {
+        RegularUser full = new RegularUser(1, "full");
+        List<IBook> loans = new ArrayList<>();
+        for (int i = 10; i < 15; i++) {
+            PrintedBook loan = new PrintedBook(i, "loan" + i, "Shelf B");
+            library.borrowBook(full, loan);
+            loans.add(loan);
+        }
+        PremiumUser holder = new PremiumUser(2, "holder");
+        PremiumUser next = new PremiumUser(3, "next");
+        PrintedBook book = new PrintedBook(1, "Dune", "Shelf A");
+        library.addBook(book);
+        library.borrowBook(holder, book);
+        library.placeHold(full, book);
+        library.placeHold(next, book);
+
+        // The first waiter is at the limit, so the book skips to the second and the first stays queued.
+        library.returnBook(holder, book);
+        Assertions.assertTrue(next.hasBorrowedBook(book));
+        Assertions.assertFalse(full.hasBorrowedBook(book));
+        Assertions.assertEquals(1, library.getHoldQueueDepth(book));
+
+        // Nobody else is waiting: the book stays free and held for the waiter at the limit.
+        library.returnBook(next, book);
+        Assertions.assertTrue(book.isAvailable());
+        Assertions.assertEquals(1, library.getHoldQueueDepth(book));
+
+        // Returning a loan frees a slot, and the held book follows.
+        library.returnBook(full, loans.get(0));
+        Assertions.assertTrue(full.hasBorrowedBook(book));
+        Assertions.assertFalse(book.isAvailable());
+        Assertions.assertEquals(0, library.getHoldQueueDepth(book));
+    }
+
+    @Test
+    public void testHoldOnAvailableBookIsFulfilledImmediately() {
+        PrintedBook book = new PrintedBook(1, "Dune", "Shelf A");
+        PremiumUser user = new PremiumUser(1, "Bob");
+        library.placeHold(user, book);
+        Assertions.assertTrue(user.hasBorrowedBook(book));
+        Assertions.assertFalse(book.isAvailable());
+    }
+
+    @Test
+    public void testHoldHandOffUnderConcurrentWaiters() throws InterruptedException {
+        int waiters = 1_000;
+        PrintedBook book = new PrintedBook(1, "Hot title", "Shelf A");
+        CountDownLatch served = new CountDownLatch(waiters);
+        ExecutorService notifier = Executors.newFixedThreadPool(4);
+        // Every waiter hands the book back as soon as they are notified, which serves the next waiter.
+        library.setHoldListener((user, b) -> {
+            served.countDown();
+            library.returnBook(user, b);
+        }, notifier);
+        PremiumUser holder = new PremiumUser(-1, "holder");
+        library.borrowBook(holder, book);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < waiters; i++) {
+            PremiumUser user = new PremiumUser(i, "user" + i);
+            pool.execute(() -> library.placeHold(user, book));
+        }
+        pool.shutdown();
+        Assertions.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        library.returnBook(holder, book);
+
+        Assertions.assertTrue(served.await(10, TimeUnit.SECONDS), "Every waiter should get the book once");
+        notifier.shutdown();
+        Assertions.assertTrue(notifier.awaitTermination(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, library.getHoldQueueDepth(book));
+        Assertions.assertTrue(book.isAvailable());
+    }
+
 }
@@ -0,0 +1,297 @@
+package main.test.com.example.library;
+
+import main.java.com.example.library.BookPackage.DigitalBook;
+import main.java.com.example.library.BookPackage.PrintedBook;
+import main.java.com.example.library.Library;
+import main.java.com.example.library.LoanJournal;
+import main.java.com.example.library.userPackage.PremiumUser;
+import main.java.com.example.library.userPackage.RegularUser;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+public class LoanJournalTest {
+    private static final int HEADER = 16;
+    private static final int RECORD = 13;
+
+    Path directory;
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("loan-journal");
+    }
+
+    @Test
+    public void testLoansSurviveReopen() throws IOException {
+        try (LoanJournal journal = new LoanJournal(directory)) {
+            journal.recordBorrow(1, 10);
+            journal.recordBorrow(2, 20);
+            journal.recordReturn(1, 10);
+        }
+        try (LoanJournal journal = new LoanJournal(directory)) {
+            Assertions.assertEquals(Map.of(20, 2), journal.loans());
+        }
+    }
+
+    @Test
+    public void testTruncatedRecordIsDroppedOnRecovery() throws IOException {
+        try (LoanJournal journal = new LoanJournal(directory)) {
+            journal.recordBorrow(1, 10);
+            journal.recordBorrow(2, 20);
+            journal.recordBorrow(3, 30);
+        }
+        // Simulate a crash in the middle of writing the third record.
+        truncateJournal(HEADER + 2 * RECORD + 5);
+
+        try (LoanJournal journal = new LoanJournal(directory)) {
+            Assertions.assertEquals(Map.of(10, 1, 20, 2), journal.loans());
+            journal.recordBorrow(4, 40);
+        }
+        try (LoanJournal journal = new LoanJournal(directory)) {
+            Assertions.assertEquals(Map.of(10, 1, 20, 2, 40, 4), journal.loans());
+        }
+    }
+
+    @Test
+    public void testTornChecksumStopsReplay() throws IOException {
+        try (LoanJournal journal = new LoanJournal(directory)) {
+            journal.recordBorrow(1, 10);
+            journal.recordBorrow(2, 20);
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve("loans.journal"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{7}), HEADER + RECORD + 6);
+        }
+        try (LoanJournal journal = new LoanJournal(directory)) {
+            Assertions.assertEquals(Map.of(10, 1), journal.loans());
+        }
+    }
+
+    @Test
+    public void testCompactionKeepsLoansAndRotatesWhenFull() throws IOException {
+        try (LoanJournal journal = new LoanJournal(directory, 4, 1)) {
+            for (int book = 0; book < 10; book++) {
+                journal.recordBorrow(1, book);
+            }
+            journal.recordReturn(1, 3);
+            journal.compact();
+            journal.recordReturn(1, 4);
+        }
+        // The return of book 4 is torn, so book 4 is still on loan after recovery.
+        truncateJournal(HEADER + 5);
+
+        try (LoanJournal journal = new LoanJournal(directory, 4, 1)) {
+            Map<Integer, Integer> loans = journal.loans();
+            Assertions.assertEquals(9, loans.size());
+            Assertions.assertFalse(loans.containsKey(3));
+            Assertions.assertTrue(loans.containsKey(4));
+        }
+    }
+
+    @Test
+    public void testLateReturnRecordDoesNotClearNewLoan() throws IOException {
+        try (LoanJournal journal = new LoanJournal(directory)) {
+            journal.recordBorrow(1, 10);
+            journal.recordBorrow(2, 10);
+            journal.recordReturn(1, 10);
+            Assertions.assertEquals(Map.of(10, 2), journal.loans());
+        }
+    }
+
+    @Test
+    public void testLibraryRestoresLoansAfterRestart() throws IOException {
+        try (LoanJournal journal = new LoanJournal(directory)) {
+            Library library = new Library(journal);
+            RegularUser alice = new RegularUser(1, "Alice");
+            PremiumUser bob = new PremiumUser(2, "Bob");
+            PrintedBook book = new PrintedBook(10, "1984", "Aisle 3");
+            DigitalBook ebook = new DigitalBook(20, "Brave New World");
+            library.borrowBook(alice, book);
+            library.borrowBook(bob, ebook);
+            library.returnBook(bob, ebook);
+        }
+
+        try (LoanJournal journal = new LoanJournal(directory)) {
+            Library library = new Library(journal);
+            RegularUser alice = new RegularUser(1, "Alice");
+            PremiumUser bob = new PremiumUser(2, "Bob");
+            PrintedBook book = new PrintedBook(10, "1984", "Aisle 3");
+            DigitalBook ebook = new DigitalBook(20, "Brave New World");
+            library.addUser(alice);
+            library.addUser(bob);
+            library.addBook(book);
+            library.addBook(ebook);
+
+            library.restoreLoans();
+            Assertions.assertFalse(book.isAvailable());
+            Assertions.assertTrue(alice.hasBorrowedBook(book));
+            Assertions.assertTrue(ebook.isAvailable());
+            Assertions.assertEquals(0, bob.getBorrowedBooks().size());
+        }
+    }
+
+    @Test
+    public void testRecordsFromBeforeCompactionAreNotReplayed() throws IOException {
+        try (LoanJournal journal = new LoanJournal(directory)) {
+            journal.recordBorrow(1, 10);
+            journal.recordReturn(1, 10);
+            journal.recordBorrow(1, 10);
+            journal.compact();
+            // Overwrites the first old record; the old return and borrow behind it must stay dead.
+            journal.recordReturn(1, 10);
+        }
+        try (LoanJournal journal = new LoanJournal(directory)) {
+            Assertions.assertEquals(Map.of(), journal.loans());
+        }
+    }
+
+    @Test
+    public void testCrashBeforeJournalHeaderMovesKeepsSnapshot() throws IOException {
+        try (LoanJournal journal = new LoanJournal(directory)) {
+            journal.recordBorrow(1, 10);
+            journal.recordReturn(1, 10);
+            journal.recordBorrow(2, 20);
+        }
+        byte[] beforeCompaction = Files.readAllBytes(directory.resolve("loans.journal"));
+        try (LoanJournal journal = new LoanJournal(directory)) {
+            journal.compact();
+        }
+        // The new snapshot reached disk, the journal did not: the borrow survived, the return was lost.
+        Arrays.fill(beforeCompaction, HEADER + RECORD, HEADER + 2 * RECORD, (byte) 0);
+        Files.write(directory.resolve("loans.journal"), beforeCompaction);
+
+        try (LoanJournal journal = new LoanJournal(directory)) {
+            Assertions.assertEquals(Map.of(20, 2), journal.loans());
+            journal.recordBorrow(3, 30);
+        }
+        try (LoanJournal journal = new LoanJournal(directory)) {
+            Assertions.assertEquals(Map.of(20, 2, 30, 3), journal.loans());
+        }
+    }
+
+    @Test
+    public void testConcurrentAppendsAcrossRotations() throws Exception {
+        int threads = 4;
+        int perThread = 2_000;
+        try (LoanJournal journal = new LoanJournal(directory, 64, 16, 0, 0)) {
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                int user = t;
+                workers[t] = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        int book = user * perThread + i;
+                        journal.recordBorrow(user, book);
+                        if (i % 2 == 1) {
+                            journal.recordReturn(user, book);
+                        }
+                    }
+                });
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            Map<Integer, Integer> loans = journal.loans();
+            Assertions.assertEquals(threads * perThread / 2, loans.size());
+            for (int t = 0; t < threads; t++) {
+                Assertions.assertEquals(t, loans.get(t * perThread));
+                Assertions.assertFalse(loans.containsKey(t * perThread + 1));
+            }
+        }
+        try (LoanJournal journal = new LoanJournal(directory, 64, 16, 0, 0)) {
+            Assertions.assertEquals(threads * perThread / 2, journal.loans().size());
+        }
+    }
+
+    @Test
+    public void testGroupCommitIsForcedWithinTheInterval() throws Exception {
+        try (LoanJournal journal = new LoanJournal(directory, 1024, 64, 10, 0)) {
+            journal.recordBorrow(1, 10);
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (journal.getUnforcedRecords() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            Assertions.assertEquals(0, journal.getUnforcedRecords());
+        }
+    }
+
+    @Test
+    public void testPeriodicSnapshot() throws Exception {
+        try (LoanJournal journal = new LoanJournal(directory, 1024, 64, 0, 10)) {
+            journal.recordBorrow(1, 10);
+            Path snapshot = directory.resolve("loans.snapshot");
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (!Files.exists(snapshot) && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            Assertions.assertTrue(Files.exists(snapshot));
+            Assertions.assertEquals(Map.of(10, 1), journal.loans());
+        }
+    }
+
+    // With periodic tasks off, group commits and compaction of a full journal still happen, on the journal's own
+    // thread, while the appender only writes records.
+    @Test
+    public void testFullJournalIsCompactedAndForcedInTheBackground() throws Exception {
+        try (LoanJournal journal = new LoanJournal(directory, 8, 4, 0, 0)) {
+            for (int book = 0; book < 100; book++) {
+                journal.recordBorrow(1, book);
+            }
+            Assertions.assertTrue(Files.exists(directory.resolve("loans.snapshot")));
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (journal.getUnforcedRecords() >= 4 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            Assertions.assertTrue(journal.getUnforcedRecords() < 4);
+            Assertions.assertEquals(100, journal.loans().size());
+        }
+        try (LoanJournal journal = new LoanJournal(directory, 8, 4, 0, 0)) {
+            Assertions.assertEquals(100, journal.loans().size());
+        }
+    }
+
+    // Library appends under a user's lock, so passing the compaction mark hands compaction to the background
+    // and the appender goes on, even while the compaction cannot start yet.
+    @Test
+    public void testAppendPastTheCompactionMarkDoesNotWaitForIt() throws Exception {
+        try (LoanJournal journal = new LoanJournal(directory, 1024, 4, 0, 0)) {
+            Thread appender = new Thread(() -> {
+                for (int book = 0; book < 900; book++) {
+                    journal.recordBorrow(1, book);
+                }
+            });
+            synchronized (journal) {
+                appender.start();
+                appender.join(5_000);
+                Assertions.assertFalse(appender.isAlive());
+                Assertions.assertFalse(Files.exists(directory.resolve("loans.snapshot")));
+            }
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (!Files.exists(directory.resolve("loans.snapshot")) && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            Assertions.assertTrue(Files.exists(directory.resolve("loans.snapshot")));
+            Assertions.assertEquals(900, journal.loans().size());
+        }
+    }
+
+    @Test
+    public void testRestoreLoansWithoutJournal() {
+        Assertions.assertThrows(IllegalStateException.class, () -> new Library().restoreLoans());
+    }
+
+    private void truncateJournal(long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve("loans.journal"), StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+package main.test.com.example.library;
+
+import main.java.com.example.library.BookPackage.DigitalBook;
+import main.java.com.example.library.BookPackage.IBook;
+import main.java.com.example.library.Library;
+import main.java.com.example.library.LoanStatistics;
+import main.java.com.example.library.userPackage.PremiumUser;
+import main.java.com.example.library.userPackage.RegularUser;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LoanStatisticsTest {
+
+    Library library;
+    LoanStatistics statistics;
+    AtomicLong now;
+    @BeforeEach
+    public void setUp(){
+        now = new AtomicLong(1_000_000);
+        library = new Library();
+        statistics = new LoanStatistics(10, now::get);
+        library.addLoanListener(statistics);
+    }
+
+    @Test
+    public void testActiveLoansPerUserType() {
+        RegularUser alice = new RegularUser(1, "Alice");
+        PremiumUser bob = new PremiumUser(2, "Bob");
+        IBook first = new DigitalBook(1, "Dune");
+        IBook second = new DigitalBook(2, "Emma");
+        library.borrowBook(alice, first);
+        library.borrowBooks(bob, List.of(second, new DigitalBook(3, "Ulysses")));
+        Assertions.assertEquals(1, statistics.getActiveLoans("RegularUser"));
+        Assertions.assertEquals(2, statistics.getActiveLoans("PremiumUser"));
+
+        library.returnBook(alice, first);
+        library.returnBook(bob, second);
+        Assertions.assertEquals(0, statistics.getActiveLoans("RegularUser"));
+        Assertions.assertEquals(1, statistics.getActiveLoans("PremiumUser"));
+    }
+
+    @Test
+    public void testTopTitlesKeepsHeavyHitters() {
+        PremiumUser user = new PremiumUser(1, "Bob");
+        int id = 0;
+        for (int round = 0; round < 50; round++) {
+            borrowAndReturn(user, new DigitalBook(id++, "Dune"));
+            if (round % 2 == 0) {
+                borrowAndReturn(user, new DigitalBook(id++, "Emma"));
+            }
+            // A long tail of titles borrowed once each.
+            borrowAndReturn(user, new DigitalBook(id++, "tail" + round));
+        }
+
+        Map<String, Long> top = statistics.topTitles(2);
+        Assertions.assertEquals(List.of("Dune", "Emma"), List.copyOf(top.keySet()));
+        Assertions.assertTrue(top.get("Dune") >= 50);
+    }
+
+    @Test
+    public void testBorrowRateOverSlidingWindow() {
+        PremiumUser user = new PremiumUser(1, "Bob");
+        for (int i = 0; i < 10; i++) {
+            library.borrowBook(user, new DigitalBook(i, "book" + i));
+        }
+        now.addAndGet(1_000);
+        for (int i = 10; i < 15; i++) {
+            library.borrowBook(user, new DigitalBook(i, "book" + i));
+        }
+        Assertions.assertEquals(7.5, statistics.getBorrowRate(2));
+        Assertions.assertEquals(5.0, statistics.getBorrowRate(1));
+
+        now.addAndGet(120_000);
+        Assertions.assertEquals(0.0, statistics.getBorrowRate(60));
+    }
+
+    @Test
+    public void testTopTitlesCountsExactlyWhileTitlesFit() {
+        PremiumUser user = new PremiumUser(1, "Bob");
+        int id = 0;
+        for (int title = 1; title <= 10; title++) {
+            for (int copy = 0; copy < title * 10; copy++) {
+                borrowAndReturn(user, new DigitalBook(id++, "title" + title));
+            }
+        }
+        Map<String, Long> top = statistics.topTitles(3);
+        Assertions.assertEquals(Map.of("title10", 100L, "title9", 90L, "title8", 80L), top);
+        Assertions.assertEquals(List.of("title10", "title9", "title8"), List.copyOf(top.keySet()));
+        Assertions.assertEquals(10, statistics.topTitles(50).size());
+    }
+
+    @Test
+    public void testConcurrentBorrowsAreAllCounted() throws InterruptedException {
+        int threads = 4;
+        int perThread = 50_000;
+        AtomicLong calls = new AtomicLong();
+        // The clock moves on a second every 5000 borrows, so threads keep racing to move buckets on.
+        LoanStatistics counting = new LoanStatistics(10, () -> 1_000_000 + calls.getAndIncrement() / 5_000 * 1_000);
+        PremiumUser user = new PremiumUser(1, "Bob");
+        IBook[] books = new IBook[5];
+        for (int i = 0; i < books.length; i++) {
+            books[i] = new DigitalBook(i, "title" + i);
+        }
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    counting.onBorrow(user, books[i % books.length]);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Map<String, Long> top = counting.topTitles(5);
+        Assertions.assertEquals(5, top.size());
+        for (long count : top.values()) {
+            Assertions.assertEquals(threads * perThread / books.length, count);
+        }
+        // Every borrow falls within the last 60 seconds of the clock.
+        Assertions.assertEquals(threads * perThread, Math.round(counting.getBorrowRate(60) * 60));
+    }
+
+    private void borrowAndReturn(PremiumUser user, IBook book) {
+        library.borrowBook(user, book);
+        library.returnBook(user, book);
+    }
+
+}
@@ -0,0 +1,101 @@
+package main.test.com.example.library;
+
+import main.java.com.example.library.BookPackage.IBook;
+import main.java.com.example.library.BookPackage.OffHeapBookStore;
+import main.java.com.example.library.Library;
+import main.java.com.example.library.userPackage.RegularUser;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class OffHeapBookStoreTest {
+
+    @Test
+    public void testViewsReadColumns() {
+        OffHeapBookStore store = new OffHeapBookStore(10);
+        store.addPrintedBook(1, "1984", "Aisle 3");
+        store.addDigitalBook(2, "Brave New World");
+
+        OffHeapBookStore.BookView printed = (OffHeapBookStore.BookView) store.book(0);
+        OffHeapBookStore.BookView digital = (OffHeapBookStore.BookView) store.book(1);
+        Assertions.assertEquals(1, printed.getId());
+        Assertions.assertEquals("1984", printed.getName());
+        Assertions.assertEquals("Aisle 3", printed.getLocation());
+        Assertions.assertEquals("Brave New World", digital.getName());
+        Assertions.assertNull(digital.getLocation());
+        Assertions.assertTrue(digital.isAvailable());
+        Assertions.assertEquals(store.book(0), printed);
+    }
+
+    @Test
+    public void testAvailabilityIsSharedBetweenViews() {
+        OffHeapBookStore store = new OffHeapBookStore(1);
+        IBook first = store.addDigitalBook(7, "Dune");
+        IBook second = store.book(0);
+
+        Assertions.assertTrue(first.compareAndSetAvailability(true, false));
+        Assertions.assertFalse(second.isAvailable());
+        Assertions.assertFalse(second.compareAndSetAvailability(true, false));
+        second.setAvailability(true);
+        Assertions.assertTrue(first.isAvailable());
+    }
+
+    @Test
+    public void testLongNamesAndFullStoreIsRejected() {
+        OffHeapBookStore store = new OffHeapBookStore(2);
+        String longName = "x".repeat(5_000);
+        store.addDigitalBook(1, longName);
+        store.addDigitalBook(2, "\u00c9owyn \u2014 \u00fcn\u00efcode");
+        Assertions.assertEquals(longName, store.book(0).getName());
+        Assertions.assertEquals("\u00c9owyn \u2014 \u00fcn\u00efcode", store.book(1).getName());
+        Assertions.assertThrows(IllegalStateException.class, () -> store.addDigitalBook(3, "overflow"));
+    }
+
+    @Test
+    public void testViewsWorkWithLibrary() {
+        OffHeapBookStore store = new OffHeapBookStore(4);
+        Library library = new Library();
+        RegularUser user = new RegularUser(1, "Alice");
+        IBook book = store.addPrintedBook(10, "Dune", "Aisle 1");
+        library.addBook(book);
+
+        library.borrowBook(user, store.book(0));
+        Assertions.assertFalse(book.isAvailable());
+        Assertions.assertEquals(0, library.countAvailableBooks());
+        library.returnBook(user, store.book(0));
+        Assertions.assertTrue(library.findBookById(10).isAvailable());
+        Assertions.assertEquals(1, library.countAvailableBooks());
+    }
+
+    @Test
+    public void testNamesAreInternedAndReadWithoutCopying() {
+        OffHeapBookStore store = new OffHeapBookStore(3);
+        store.addPrintedBook(1, new String("Dune"), "Aisle 1");
+        store.addPrintedBook(2, new String("Dune"), "Aisle 2");
+        store.addDigitalBook(3, "Emma");
+        Assertions.assertSame(store.book(0).getName(), store.book(1).getName());
+        Assertions.assertSame(store.book(0).getName(), store.book(0).getName());
+        Assertions.assertEquals("Emma", store.book(2).getName());
+    }
+
+    @Test
+    public void testCapacityIsChecked() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new OffHeapBookStore(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new OffHeapBookStore(OffHeapBookStore.MAX_CAPACITY + 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new OffHeapBookStore(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testPrintedViewsAreIndexedByLocation() {
+        OffHeapBookStore store = new OffHeapBookStore(4);
+        Library library = new Library();
+        library.addBook(store.addPrintedBook(1, "Dune", "Aisle 1"));
+        library.addBook(store.addPrintedBook(2, "Emma", "Aisle 2"));
+        library.addBook(store.addDigitalBook(3, "Ulysses"));
+
+        Assertions.assertEquals(2, library.getAvailablePrintedBooks().size());
+        Assertions.assertEquals(List.of(store.book(1)), library.getAvailableBooksAt("Aisle 2"));
+    }
+}